@@ -74,9 +74,14 @@ public class AccountUtils {
     if (!isAccount(accountName)) {
       return null;
     }
-    Account a = getAccount(ctx, accountName);
-    AccountManager am = AccountManager.get(ctx);
-    return am.blockingGetAuthToken(a, authTokenType, true /* notify */);
+    String authToken = CredentialCache.get(accountName, authTokenType);
+    if (authToken == null) {
+      Account a = getAccount(ctx, accountName);
+      AccountManager am = AccountManager.get(ctx);
+      authToken = am.blockingGetAuthToken(a, authTokenType, true /* notify */);
+      CredentialCache.put(accountName, authTokenType, authToken);
+    }
+    return authToken;
   }
 
   public static boolean hasCredentials(Context ctx, String accountName)
@@ -91,19 +96,32 @@ public class AccountUtils {
     if (!isAccount(accountName) || !hasCredentials(ctx, accountName)) {
       return false;
     }
-    Account a = getAccount(ctx, accountName);
-    AccountManager am = AccountManager.get(ctx);
-    String expValue = am.getUserData(a, AccountAuthenticator.EXPIRATION_MS);
+    return System.currentTimeMillis() >= getExpirationMs(ctx, accountName);
+  }
+
+  /**
+   * Returns the expiration time in milliseconds of the account's access token
+   * or 0 if it is missing and should be treated as expired.
+   */
+  public static long getExpirationMs(Context ctx, String accountName) {
+    String expValue = CredentialCache.get(accountName,
+        AccountAuthenticator.EXPIRATION_MS);
+    if (expValue == null) {
+      Account a = getAccount(ctx, accountName);
+      AccountManager am = AccountManager.get(ctx);
+      expValue = am.getUserData(a, AccountAuthenticator.EXPIRATION_MS);
+      CredentialCache.put(accountName, AccountAuthenticator.EXPIRATION_MS,
+          expValue);
+    }
     if (TextUtils.isEmpty(expValue)) {
       Log.wtf(TAG, "expiration is missing");
-      return true;
+      return 0;
     }
     try {
-      long expirationMs = Long.valueOf(expValue);
-      return System.currentTimeMillis() >= expirationMs;
+      return Long.valueOf(expValue);
     } catch (NumberFormatException e) {
       Log.wtf(TAG, e);
-      return true;
+      return 0;
     }
   }
 
@@ -127,6 +145,11 @@ public class AccountUtils {
         Long.toString(expirationMs));
     am.setUserData(a, AccountAuthenticator.SCOPES, scopes);
 
+    CredentialCache.invalidate(accountName);
+    cacheCredentials(accountName, accessToken, expirationMs);
+    CredentialCache.put(accountName, AccountAuthenticator.REFRESH_TOKEN,
+        refreshToken);
+
     return exists;
   }
 
@@ -142,6 +165,22 @@ public class AccountUtils {
     am.setUserData(a, AccountAuthenticator.EXPIRATION_MS,
         Long.toString(expirationMs));
     am.setUserData(a, AccountAuthenticator.SCOPES, scopes);
+    cacheCredentials(accountName, accessToken, expirationMs);
+  }
+
+  /** Forgets any cached credentials after the account was removed. */
+  public static void invalidateCredentials(String accountName) {
+    CredentialCache.invalidate(accountName);
+  }
+
+  private static void cacheCredentials(
+      String accountName,
+      String accessToken,
+      long expirationMs) {
+    CredentialCache.put(accountName, AccountAuthenticator.ACCESS_TOKEN,
+        accessToken);
+    CredentialCache.put(accountName, AccountAuthenticator.EXPIRATION_MS,
+        Long.toString(expirationMs));
   }
 
   private AccountUtils() {
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.accounts;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CredentialCache} keeps the tokens and user data that
+ * {@link AccountUtils} reads from AccountManager, so that the binder calls
+ * aren't repeated for every request. Values written through
+ * {@link AccountUtils} replace the cached ones. Entries also expire after a
+ * while to pick up changes made outside the app like removing the account
+ * from the system settings.
+ */
+public class CredentialCache {
+
+  /** Duration after which a cached value is read again. */
+  private static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(5);
+
+  /** Map from account name and key to the cached value. */
+  private static final HashMap<String, Entry> CACHE =
+      new HashMap<String, Entry>();
+
+  private static final Stats STATS = new Stats();
+
+  /** Snapshot of the cache's counters for debugging. */
+  public static class Stats {
+
+    /** Reads served from the cache instead of AccountManager. */
+    public int ipcsSaved;
+
+    /** Reads that had to go to AccountManager. */
+    public int ipcsMade;
+
+    /** Times the cached values of an account were dropped. */
+    public int invalidations;
+
+    @Override
+    public String toString() {
+      return "ipcsSaved: " + ipcsSaved
+          + " ipcsMade: " + ipcsMade
+          + " invalidations: " + invalidations;
+    }
+  }
+
+  private static class Entry {
+    final String value;
+    final long timestamp;
+
+    Entry(String value, long timestamp) {
+      this.value = value;
+      this.timestamp = timestamp;
+    }
+  }
+
+  /**
+   * Returns the cached value of the account's key or null if it must be read
+   * from AccountManager.
+   */
+  @Nullable
+  static String get(String accountName, String key) {
+    synchronized (CACHE) {
+      Entry entry = CACHE.get(getKey(accountName, key));
+      if (entry != null
+          && SystemClock.elapsedRealtime() - entry.timestamp < MAX_AGE_MS) {
+        STATS.ipcsSaved++;
+        return entry.value;
+      }
+      STATS.ipcsMade++;
+      return null;
+    }
+  }
+
+  /** Caches the account's value if it is not null. */
+  static void put(String accountName, String key, @Nullable String value) {
+    synchronized (CACHE) {
+      String cacheKey = getKey(accountName, key);
+      if (value != null) {
+        CACHE.put(cacheKey,
+            new Entry(value, SystemClock.elapsedRealtime()));
+      } else {
+        CACHE.remove(cacheKey);
+      }
+    }
+  }
+
+  /** Drops all the cached values of the account. */
+  static void invalidate(String accountName) {
+    String prefix = getKey(accountName, "");
+    synchronized (CACHE) {
+      for (Iterator<String> i = CACHE.keySet().iterator(); i.hasNext(); ) {
+        if (i.next().startsWith(prefix)) {
+          i.remove();
+        }
+      }
+      STATS.invalidations++;
+    }
+  }
+
+  /** Returns a copy of the current cache statistics. */
+  public static Stats getStats() {
+    Stats copy = new Stats();
+    synchronized (CACHE) {
+      copy.ipcsSaved = STATS.ipcsSaved;
+      copy.ipcsMade = STATS.ipcsMade;
+      copy.invalidations = STATS.invalidations;
+    }
+    return copy;
+  }
+
+  private static String getKey(String accountName, String key) {
+    return accountName + "\n" + key;
+  }
+
+  private CredentialCache() {
+  }
+}
@@ -103,6 +103,11 @@ class MessageThingListController
     }
   }
 
+  @Override
+  public int prefetch(String moreId, int count) {
+    return 0;
+  }
+
   // More complex getters.
 
   @Override
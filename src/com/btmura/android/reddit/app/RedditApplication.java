@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.app;
+
+import android.app.Application;
+
+import com.btmura.android.reddit.net.ConnectionPool;
+import com.btmura.android.reddit.widget.BodyCache;
+import com.btmura.android.reddit.widget.LayoutCache;
+
+/**
+ * {@link RedditApplication} sets up the process before any of the app's
+ * components run and empties the app's caches when memory runs low.
+ */
+public class RedditApplication extends Application {
+
+  @Override
+  public void onCreate() {
+    super.onCreate();
+    ConnectionPool.init();
+  }
+
+  @Override
+  public void onTrimMemory(int level) {
+    super.onTrimMemory(level);
+    if (level >= TRIM_MEMORY_RUNNING_LOW) {
+      evictCaches();
+    }
+  }
+
+  @Override
+  public void onLowMemory() {
+    super.onLowMemory();
+    evictCaches();
+  }
+
+  private static void evictCaches() {
+    BodyCache.evictAll();
+    LayoutCache.evictAll();
+  }
+}
@@ -22,6 +22,7 @@ import android.os.Bundle;
 import android.support.v4.content.Loader;
 
 import com.btmura.android.reddit.content.SubredditThingLoader;
+import com.btmura.android.reddit.provider.ThingProvider;
 import com.btmura.android.reddit.widget.ThingView.OnThingViewClickListener;
 
 class SubredditThingListController extends ThingTableListController {
@@ -45,6 +46,18 @@ class SubredditThingListController extends ThingTableListController {
         getCursorExtras());
   }
 
+  @Override
+  public int prefetch(String moreId, int count) {
+    return ThingProvider.prefetchSubredditSession(
+        ctx,
+        getAccountName(),
+        getSubreddit(),
+        getFilter(),
+        moreId,
+        count,
+        getCursorExtras());
+  }
+
   @Override
   public int getSwipeAction() {
     return SWIPE_ACTION_HIDE;
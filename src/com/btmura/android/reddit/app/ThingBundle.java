@@ -20,7 +20,6 @@ import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.text.TextUtils;
-import android.util.JsonReader;
 import android.util.JsonToken;
 
 import com.btmura.android.reddit.database.Kinds;
@@ -29,6 +28,7 @@ import com.btmura.android.reddit.text.MarkdownFormatter;
 import com.btmura.android.reddit.util.BundleSupport;
 import com.btmura.android.reddit.util.JsonParser;
 import com.btmura.android.reddit.util.Strings;
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
 import java.io.IOException;
 
@@ -85,7 +85,7 @@ public class ThingBundle extends BundleSupport implements Parcelable {
   private final int type;
 
   public static ThingBundle fromJsonReader(
-      JsonReader reader,
+      Utf8JsonReader reader,
       MarkdownFormatter formatter) throws IOException {
     ThingBundleParser parser = new ThingBundleParser(formatter);
     parser.parseListingObject(reader);
@@ -357,6 +357,12 @@ public class ThingBundle extends BundleSupport implements Parcelable {
 
   static class ThingBundleParser extends JsonParser {
 
+    private static final boolean[] PARSED_FIELDS = newParsedFields(
+        "author", "created_utc", "domain", "downs", "is_self", "likes",
+        "link_id", "link_title", "name", "num_comments", "over_18",
+        "permalink", "saved", "score", "subject", "subreddit", "thumbnail",
+        "title", "ups", "url");
+
     private final Bundle data = new Bundle(NUM_KEYS);
     private final MarkdownFormatter formatter;
 
@@ -365,32 +371,37 @@ public class ThingBundle extends BundleSupport implements Parcelable {
     }
 
     @Override
-    public void onAuthor(JsonReader r, int i) throws IOException {
+    protected boolean[] getParsedFields() {
+      return PARSED_FIELDS;
+    }
+
+    @Override
+    public void onAuthor(Utf8JsonReader r, int i) throws IOException {
       data.putString(KEY_AUTHOR, readString(r, ""));
     }
 
     @Override
-    public void onCreatedUtc(JsonReader r, int i) throws IOException {
+    public void onCreatedUtc(Utf8JsonReader r, int i) throws IOException {
       data.putLong(KEY_CREATED_UTC, r.nextLong());
     }
 
     @Override
-    public void onDomain(JsonReader r, int i) throws IOException {
+    public void onDomain(Utf8JsonReader r, int i) throws IOException {
       data.putString(KEY_DOMAIN, readString(r, ""));
     }
 
     @Override
-    public void onDowns(JsonReader r, int i) throws IOException {
+    public void onDowns(Utf8JsonReader r, int i) throws IOException {
       data.putInt(KEY_DOWNS, r.nextInt());
     }
 
     @Override
-    public void onKind(JsonReader r, int i) throws IOException {
+    public void onKind(Utf8JsonReader r, int i) throws IOException {
       data.putInt(KEY_KIND, Kinds.parseKind(r.nextString()));
     }
 
     @Override
-    public void onLikes(JsonReader r, int i) throws IOException {
+    public void onLikes(Utf8JsonReader r, int i) throws IOException {
       int likes = 0;
       if (r.peek() == JsonToken.BOOLEAN) {
         likes = r.nextBoolean() ? 1 : -1;
@@ -401,62 +412,62 @@ public class ThingBundle extends BundleSupport implements Parcelable {
     }
 
     @Override
-    public void onLinkId(JsonReader r, int i) throws IOException {
+    public void onLinkId(Utf8JsonReader r, int i) throws IOException {
       data.putString(KEY_LINK_ID, readString(r, null));
     }
 
     @Override
-    public void onLinkTitle(JsonReader r, int i) throws IOException {
+    public void onLinkTitle(Utf8JsonReader r, int i) throws IOException {
       data.putString(KEY_LINK_TITLE, readFormattedString(r));
     }
 
     @Override
-    public void onName(JsonReader r, int i) throws IOException {
+    public void onName(Utf8JsonReader r, int i) throws IOException {
       data.putString(KEY_THING_ID, readString(r, ""));
     }
 
     @Override
-    public void onNumComments(JsonReader r, int i) throws IOException {
+    public void onNumComments(Utf8JsonReader r, int i) throws IOException {
       data.putInt(KEY_NUM_COMMENTS, r.nextInt());
     }
 
     @Override
-    public void onOver18(JsonReader r, int i) throws IOException {
+    public void onOver18(Utf8JsonReader r, int i) throws IOException {
       data.putBoolean(KEY_OVER_18, r.nextBoolean());
     }
 
     @Override
-    public void onPermaLink(JsonReader r, int i) throws IOException {
+    public void onPermaLink(Utf8JsonReader r, int i) throws IOException {
       data.putString(KEY_PERMA_LINK, readString(r, ""));
     }
 
     @Override
-    public void onSaved(JsonReader r, int i) throws IOException {
+    public void onSaved(Utf8JsonReader r, int i) throws IOException {
       data.putBoolean(KEY_SAVED, r.nextBoolean());
     }
 
     @Override
-    public void onScore(JsonReader r, int i) throws IOException {
+    public void onScore(Utf8JsonReader r, int i) throws IOException {
       data.putInt(KEY_SCORE, r.nextInt());
     }
 
     @Override
-    public void onIsSelf(JsonReader r, int i) throws IOException {
+    public void onIsSelf(Utf8JsonReader r, int i) throws IOException {
       data.putBoolean(KEY_SELF, r.nextBoolean());
     }
 
     @Override
-    public void onSubject(JsonReader r, int i) throws IOException {
+    public void onSubject(Utf8JsonReader r, int i) throws IOException {
       data.putString(KEY_SUBJECT, readFormattedString(r));
     }
 
     @Override
-    public void onSubreddit(JsonReader r, int i) throws IOException {
+    public void onSubreddit(Utf8JsonReader r, int i) throws IOException {
       data.putString(KEY_SUBREDDIT, readString(r, ""));
     }
 
     @Override
-    public void onThumbnail(JsonReader r, int i) throws IOException {
+    public void onThumbnail(Utf8JsonReader r, int i) throws IOException {
       String thumbnail = readString(r, null);
       if (!TextUtils.isEmpty(thumbnail) && thumbnail.startsWith("http")) {
         data.putString(KEY_THUMBNAIL_URL, thumbnail);
@@ -464,22 +475,24 @@ public class ThingBundle extends BundleSupport implements Parcelable {
     }
 
     @Override
-    public void onTitle(JsonReader r, int i) throws IOException {
+    public void onTitle(Utf8JsonReader r, int i) throws IOException {
       data.putString(KEY_TITLE, readFormattedString(r));
     }
 
     @Override
-    public void onUps(JsonReader r, int i) throws IOException {
+    public void onUps(Utf8JsonReader r, int i) throws IOException {
       data.putInt(KEY_UPS, r.nextInt());
     }
 
     @Override
-    public void onUrl(JsonReader r, int i) throws IOException {
+    public void onUrl(Utf8JsonReader r, int i) throws IOException {
       data.putString(KEY_URL, readString(r, ""));
     }
 
-    private String readFormattedString(JsonReader reader) throws IOException {
-      return Strings.toString(formatter.formatNoSpans(readString(reader, "")));
+    private String readFormattedString(Utf8JsonReader reader)
+        throws IOException {
+      return Strings.toString(
+          formatter.formatRawNoSpans(readString(reader, "")));
     }
   }
 }
@@ -30,6 +30,13 @@ interface ThingListController<A extends AbstractThingListAdapter> extends
 
   void onThingSelected(int position);
 
+  /**
+   * Starts fetching the page after the more id in the background. Returns how
+   * many rows from the end the next prefetch should start or 0 if the
+   * listing doesn't support prefetching.
+   */
+  int prefetch(String moreId, int count);
+
   // Getters.
 
   String getAccountName();
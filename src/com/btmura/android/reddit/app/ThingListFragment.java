@@ -59,12 +59,17 @@ abstract class ThingListFragment<C extends ThingListController<?>, MC extends Me
   /** Integer argument that is used to paginate things. */
   private static final String LOADER_COUNT = "count";
 
+  /** Rows from the end at which to prefetch until the controller says. */
+  private static final int DEFAULT_PREFETCH_DISTANCE = 10;
+
   protected C controller;
   protected MC menuController;
   protected AC actionModeController;
 
   private OnThingSelectedListener listener;
   private boolean scrollLoading;
+  private String prefetchedMoreId;
+  private int prefetchDistance = DEFAULT_PREFETCH_DISTANCE;
 
   @Override
   public void onAttach(Activity activity) {
@@ -186,6 +191,7 @@ abstract class ThingListFragment<C extends ThingListController<?>, MC extends Me
     if (visibleItemCount <= 0 || scrollLoading) {
       return;
     }
+    prefetchIfNecessary(firstVisibleItem, visibleItemCount, totalItemCount);
     if (firstVisibleItem + visibleItemCount * 2 >= totalItemCount
         && getLoaderManager().getLoader(0) != null
         && controller.hasNextMoreId()) {
@@ -197,6 +203,27 @@ abstract class ThingListFragment<C extends ThingListController<?>, MC extends Me
     }
   }
 
+  private void prefetchIfNecessary(
+      int firstVisibleItem,
+      int visibleItemCount,
+      int totalItemCount) {
+    // Start fetching the next page well before the load below is triggered,
+    // so the "Loading..." row is rarely seen. The provider only starts a
+    // background task, so this is cheap enough for the main thread.
+    int remaining = totalItemCount - firstVisibleItem - visibleItemCount;
+    if (remaining <= visibleItemCount + prefetchDistance
+        && controller.hasNextMoreId()) {
+      String moreId = controller.getNextMoreId();
+      if (!moreId.equals(prefetchedMoreId)) {
+        prefetchedMoreId = moreId;
+        int distance = controller.prefetch(moreId, controller.getNextCount());
+        if (distance > 0) {
+          prefetchDistance = distance;
+        }
+      }
+    }
+  }
+
   @Override
   public void onListItemClick(ListView l, View v, int position, long id) {
     selectThing(v, position, ThingPagerAdapter.TYPE_LINK);
@@ -96,6 +96,11 @@ abstract class ThingTableListController
   public void onThingSelected(int position) {
   }
 
+  @Override
+  public int prefetch(String moreId, int count) {
+    return 0;
+  }
+
   // Getters.
 
   @Override
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.content;
+
+import android.accounts.AuthenticatorException;
+import android.accounts.OperationCanceledException;
+import android.content.Context;
+import android.database.Cursor;
+
+import com.btmura.android.reddit.net.Result;
+
+import java.io.IOException;
+
+/**
+ * {@link BatchSyncer} is a {@link Syncer} whose actions of the same kind can
+ * be synced to the server many at a time, because the API accepts a comma
+ * separated list of thing ids.
+ */
+interface BatchSyncer extends Syncer {
+
+  /** Return the maximum number of actions to sync in one request. */
+  int getMaxBatchSize();
+
+  /** Return the database id of the action. */
+  long getId(Cursor c);
+
+  /** Return the kind of action like hide or unhide. */
+  int getAction(Cursor c);
+
+  /** Return the thing id that the action is performed on. */
+  String getThingId(Cursor c);
+
+  /** Sync actions of the same kind on all the things in one request. */
+  Result syncBatch(
+      Context ctx,
+      String accountName,
+      int action,
+      String[] thingIds)
+      throws AuthenticatorException, IOException, OperationCanceledException;
+
+  /** Add a single DB action to remove all the actions that succeeded. */
+  void addDeleteActions(long[] ids, Ops ops);
+}
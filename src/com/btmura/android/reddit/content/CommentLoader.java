@@ -53,6 +53,7 @@ public class CommentLoader extends AbstractSessionLoader {
       Comments.COLUMN_THUMBNAIL_URL,
       Comments.COLUMN_UPS,
       Comments.COLUMN_URL,
+      Comments.COLUMN_BODY_SPANS,
   };
 
   public static final int INDEX_ID = 0;
@@ -79,6 +80,7 @@ public class CommentLoader extends AbstractSessionLoader {
   public static final int INDEX_THUMBNAIL_URL = 21;
   public static final int INDEX_UPS = 22;
   public static final int INDEX_URL = 23;
+  public static final int INDEX_BODY_SPANS = 24;
 
   private final String accountName;
   private final String thingId;
@@ -39,6 +39,7 @@ public class MessageThingLoader extends AbstractSessionLoader {
       Messages.COLUMN_SUBREDDIT,
       Messages.COLUMN_THING_ID,
       Messages.COLUMN_WAS_COMMENT,
+      Messages.COLUMN_BODY_SPANS,
   };
 
   public static final int INDEX_AUTHOR = 1;
@@ -53,6 +54,7 @@ public class MessageThingLoader extends AbstractSessionLoader {
   public static final int INDEX_SUBREDDIT = 10;
   public static final int INDEX_THING_ID = 11;
   public static final int INDEX_WAS_COMMENT = 12;
+  public static final int INDEX_BODY_SPANS = 13;
 
   private final String accountName;
   private final int filter;
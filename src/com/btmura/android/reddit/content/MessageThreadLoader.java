@@ -33,6 +33,7 @@ public class MessageThreadLoader extends AbstractSessionLoader {
       Messages.COLUMN_NEW,
       Messages.COLUMN_SUBJECT,
       Messages.TABLE_NAME + "." + Messages.COLUMN_THING_ID,
+      Messages.COLUMN_BODY_SPANS,
   };
 
   public static final int INDEX_AUTHOR = 1;
@@ -42,6 +43,7 @@ public class MessageThreadLoader extends AbstractSessionLoader {
   public static final int INDEX_NEW = 5;
   public static final int INDEX_SUBJECT = 6;
   public static final int INDEX_THING_ID = 7;
+  public static final int INDEX_BODY_SPANS = 8;
 
   private final String accountName;
   private final String thingId;
@@ -66,9 +66,7 @@ public class RandomSubredditLoader extends BaseAsyncTaskLoader<String> {
     } catch (AuthenticatorException e) {
       Log.e(TAG, e.getMessage(), e);
     } finally {
-      if (conn != null) {
-        conn.disconnect();
-      }
+      RedditApi.close(null, conn);
     }
     return null;
   }
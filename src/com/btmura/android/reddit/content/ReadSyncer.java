@@ -33,7 +33,7 @@ import com.btmura.android.reddit.util.Array;
 
 import java.io.IOException;
 
-class ReadSyncer implements Syncer {
+class ReadSyncer implements BatchSyncer {
 
   private static final String[] PROJECTION = {
       ReadActions._ID,
@@ -47,6 +47,8 @@ class ReadSyncer implements Syncer {
   private static final int SYNC_FAILURES = 2;
   private static final int THING_ID = 3;
 
+  private static final int MAX_BATCH_SIZE = 50;
+
   @Override
   public String getTag() {
     return "r";
@@ -99,6 +101,42 @@ class ReadSyncer implements Syncer {
             .build());
   }
 
+  @Override
+  public int getMaxBatchSize() {
+    return MAX_BATCH_SIZE;
+  }
+
+  @Override
+  public long getId(Cursor c) {
+    return c.getLong(ID);
+  }
+
+  @Override
+  public int getAction(Cursor c) {
+    return c.getInt(ACTION);
+  }
+
+  @Override
+  public String getThingId(Cursor c) {
+    return c.getString(THING_ID);
+  }
+
+  @Override
+  public Result syncBatch(
+      Context ctx,
+      String accountName,
+      int action,
+      String[] thingIds)
+      throws IOException, AuthenticatorException, OperationCanceledException {
+    boolean read = action == ReadActions.ACTION_READ;
+    return RedditApi.readMessage(ctx, accountName, thingIds, read);
+  }
+
+  @Override
+  public void addDeleteActions(long[] ids, Ops ops) {
+    ops.addDeleteByIds(ThingProvider.READ_ACTIONS_URI, ids);
+  }
+
   @Override
   public int getEstimatedOpCount(int count) {
     return count;
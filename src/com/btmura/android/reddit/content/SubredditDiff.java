@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.content;
+
+import android.support.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * {@link SubredditDiff} matches the subreddits in the database to the ones on
+ * the server ignoring case. Each local row is matched in constant time, and
+ * whatever the server has that no row matched needs to be inserted.
+ */
+class SubredditDiff {
+
+  /** Map from lower case name to the name as the server spells it. */
+  private final HashMap<String, String> unmatched;
+
+  SubredditDiff(Collection<String> serverSubreddits) {
+    unmatched = new HashMap<String, String>(serverSubreddits.size() * 2);
+    for (String subreddit : serverSubreddits) {
+      unmatched.put(getKey(subreddit), subreddit);
+    }
+  }
+
+  /**
+   * Returns the server's spelling of the local subreddit or null if the server
+   * doesn't have it. Each server subreddit is only matched once.
+   */
+  @Nullable
+  String match(String name) {
+    return unmatched.remove(getKey(name));
+  }
+
+  /** Returns the server subreddits that haven't been matched to a row. */
+  Collection<String> getUnmatched() {
+    return unmatched.values();
+  }
+
+  private static String getKey(String name) {
+    return name.toLowerCase(Locale.ENGLISH);
+  }
+}
@@ -35,6 +35,7 @@ import android.util.Log;
 import com.btmura.android.reddit.BuildConfig;
 import com.btmura.android.reddit.accounts.AccountUtils;
 import com.btmura.android.reddit.database.Subreddits;
+import com.btmura.android.reddit.net.RateLimitGovernor;
 import com.btmura.android.reddit.net.RedditApi;
 import com.btmura.android.reddit.net.SubredditResult;
 import com.btmura.android.reddit.provider.SubredditProvider;
@@ -42,7 +43,6 @@ import com.btmura.android.reddit.util.Array;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public class SubredditSyncAdapter extends AbstractThreadedSyncAdapter {
@@ -104,9 +104,17 @@ public class SubredditSyncAdapter extends AbstractThreadedSyncAdapter {
         return;
       }
 
+      // Try again later if the budget is needed for the foreground.
+      if (!RateLimitGovernor.acquireBackgroundPermit()) {
+        syncResult.delayUntil = System.currentTimeMillis() / 1000
+            + RateLimitGovernor.getBackgroundDelaySeconds();
+        syncResult.stats.numSkippedEntries++;
+        return;
+      }
+
       // Get subreddits from reddit. These could be a bit stale.
       SubredditResult result = RedditApi.getMySubreddits(ctx, account.name);
-      ArrayList<String> subreddits = new ArrayList<String>(result.subreddits);
+      SubredditDiff subreddits = new SubredditDiff(result.subreddits);
 
       // Get database operations required to sync with the server.
       ArrayList<ContentProviderOperation> ops = new ArrayList<ContentProviderOperation>();
@@ -140,7 +148,7 @@ public class SubredditSyncAdapter extends AbstractThreadedSyncAdapter {
   private void syncDatabase(
       Account account,
       ContentProviderClient provider,
-      ArrayList<String> subreddits,
+      SubredditDiff subreddits,
       ArrayList<ContentProviderOperation> ops,
       int[] opCounts,
       SyncResult syncResult) throws RemoteException {
@@ -162,7 +170,7 @@ public class SubredditSyncAdapter extends AbstractThreadedSyncAdapter {
   private void syncRow(
       Cursor c,
       Account account,
-      ArrayList<String> subreddits,
+      SubredditDiff subreddits,
       ArrayList<ContentProviderOperation> ops,
       int[] opCounts,
       SyncResult syncResult) {
@@ -176,11 +184,8 @@ public class SubredditSyncAdapter extends AbstractThreadedSyncAdapter {
       return;
     }
 
-    // Remove subreddit from the list, since it's now new.
-    String found = find(subreddits, name);
-    if (found != null) {
-      subreddits.remove(found);
-    }
+    // Match the subreddit, so that it won't be inserted as new.
+    String found = subreddits.match(name);
 
     switch (state) {
       case Subreddits.STATE_NORMAL:
@@ -249,30 +254,18 @@ public class SubredditSyncAdapter extends AbstractThreadedSyncAdapter {
 
   private void insertSubredditOps(
       Account account,
-      ArrayList<String> subreddits,
+      SubredditDiff subreddits,
       ArrayList<ContentProviderOperation> ops,
       int[] opCounts) {
-    int size = subreddits.size();
-    for (int i = 0; i < size; i++) {
+    for (String subreddit : subreddits.getUnmatched()) {
       ops.add(
           ContentProviderOperation.newInsert(SubredditProvider.SUBREDDITS_URI)
               .withValue(Subreddits.COLUMN_ACCOUNT, account.name)
-              .withValue(Subreddits.COLUMN_NAME, subreddits.get(i))
+              .withValue(Subreddits.COLUMN_NAME, subreddit)
               .withValue(Subreddits.COLUMN_STATE, Subreddits.STATE_NORMAL)
               .withValue(Subreddits.COLUMN_EXPIRATION, 0)
               .build());
       opCounts[OP_INSERTS]++;
     }
   }
-
-  /** @return subreddit from list that matches name ignoring case */
-  private static String find(List<String> subreddits, String name) {
-    int count = subreddits.size();
-    for (int i = 0; i < count; i++) {
-      if (name.equalsIgnoreCase(subreddits.get(i))) {
-        return subreddits.get(i);
-      }
-    }
-    return null;
-  }
 }
\ No newline at end of file
@@ -22,7 +22,9 @@ import android.content.ContentProviderClient;
 import android.content.ContentProviderOperation;
 import android.content.Context;
 import android.database.Cursor;
+import android.net.Uri;
 import android.os.RemoteException;
+import android.provider.BaseColumns;
 
 import com.btmura.android.reddit.net.Result;
 
@@ -82,6 +84,24 @@ class Ops extends ArrayList<ContentProviderOperation> {
     deletes++;
   }
 
+  void addDeleteByIds(Uri uri, long[] ids) {
+    StringBuilder selection = new StringBuilder(BaseColumns._ID)
+        .append(" IN (");
+    String[] selectionArgs = new String[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      if (i > 0) {
+        selection.append(',');
+      }
+      selection.append('?');
+      selectionArgs[i] = Long.toString(ids[i]);
+    }
+    selection.append(')');
+    add(ContentProviderOperation.newDelete(uri)
+        .withSelection(selection.toString(), selectionArgs)
+        .build());
+    deletes += ids.length;
+  }
+
   void addUpdate(ContentProviderOperation update) {
     add(update);
     updates++;
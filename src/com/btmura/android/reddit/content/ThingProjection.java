@@ -48,6 +48,7 @@ public interface ThingProjection {
       Things.COLUMN_THUMBNAIL_URL,
       Things.COLUMN_UPS,
       Things.COLUMN_URL,
+      Things.COLUMN_BODY_SPANS,
   };
 
   int INDEX_AUTHOR = 1;
@@ -72,4 +73,5 @@ public interface ThingProjection {
   int INDEX_THUMBNAIL_URL = 20;
   int INDEX_UPS = 21;
   int INDEX_URL = 22;
+  int INDEX_BODY_SPANS = 23;
 }
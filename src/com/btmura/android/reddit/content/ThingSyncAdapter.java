@@ -31,12 +31,15 @@ import android.os.Bundle;
 import android.os.IBinder;
 import android.os.RemoteException;
 import android.util.Log;
+import android.util.SparseArray;
 
 import com.btmura.android.reddit.BuildConfig;
 import com.btmura.android.reddit.accounts.AccountUtils;
+import com.btmura.android.reddit.net.RateLimitGovernor;
 import com.btmura.android.reddit.net.Result;
 
 import java.io.IOException;
+import java.util.ArrayList;
 
 public class ThingSyncAdapter extends AbstractThreadedSyncAdapter {
 
@@ -67,6 +70,15 @@ public class ThingSyncAdapter extends AbstractThreadedSyncAdapter {
       // Indicate whether we need an extra sync to finish.
       needExtraSync |= workLeft;
     }
+
+    void deferForBudget(boolean workLeft) {
+      // Leave the rest of the budget for requests the user is waiting on.
+      long delay = RateLimitGovernor.getBackgroundDelaySeconds();
+      if (rateLimit < delay) {
+        rateLimit = delay;
+      }
+      needExtraSync |= workLeft;
+    }
   }
 
   // Sync votes first due to loose rate limit.
@@ -187,46 +199,56 @@ public class ThingSyncAdapter extends AbstractThreadedSyncAdapter {
       long now = System.currentTimeMillis();
 
       // Process as many actions until we hit some rate limit.
-      for (; c.moveToNext(); count--) {
-        try {
-          // Sync the local action to the server over the network.
-          Result result = syncer.sync(getContext(), account.name, c);
-          int syncFailures = syncer.getSyncFailures(c);
-          CharSequence syncStatus = result.getErrorCodeMessage();
+      if (syncer instanceof BatchSyncer) {
+        syncBatches(account, c, syncResult, (BatchSyncer) syncer, limiter,
+            ops);
+      } else {
+        for (; c.moveToNext(); count--) {
+          if (!RateLimitGovernor.acquireBackgroundPermit()) {
+            limiter.deferForBudget(true);
+            syncResult.stats.numSkippedEntries += count;
+            break;
+          }
+          try {
+            // Sync the local action to the server over the network.
+            Result result = syncer.sync(getContext(), account.name, c);
+            int syncFailures = syncer.getSyncFailures(c);
+            CharSequence syncStatus = result.getErrorCodeMessage();
 
-          if (BuildConfig.DEBUG) {
-            result.logAnyErrors(TAG, syncer.getTag());
-            if (result.hasErrors()) {
-              Log.i(TAG, syncer.getTag()
-                  + "[" + c.getPosition() + "/" + c.getCount() + "] "
-                  + " f: " + syncFailures
-                  + " s: " + syncStatus);
+            if (BuildConfig.DEBUG) {
+              result.logAnyErrors(TAG, syncer.getTag());
+              if (result.hasErrors()) {
+                Log.i(TAG, syncer.getTag()
+                    + "[" + c.getPosition() + "/" + c.getCount() + "] "
+                    + " f: " + syncFailures
+                    + " s: " + syncStatus);
+              }
             }
-          }
 
-          // Quit processing actions if we hit a rate limit.
-          if (result.hasRateLimitError() || result.hasUserRequiredError()) {
-            limiter.updateLimit(result, count > 0);
-            syncer.addUpdateAction(c, ops, syncFailures + 1,
-                syncStatus.toString());
-            syncResult.stats.numSkippedEntries++;
-            break;
-          }
+            // Quit processing actions if we hit a rate limit.
+            if (result.hasRateLimitError() || result.hasUserRequiredError()) {
+              limiter.updateLimit(result, count > 0);
+              syncer.addUpdateAction(c, ops, syncFailures + 1,
+                  syncStatus.toString());
+              syncResult.stats.numSkippedEntries++;
+              break;
+            }
 
-          syncer.addDeleteAction(c, ops);
-          syncResult.stats.numEntries++;
-        } catch (IOException e) {
-          // If we had a network problem then increment the exception
-          // count to indicate a soft error. The sync manager will
-          // keep retrying this with exponential back-off.
-          Log.e(TAG, e.getMessage(), e);
-          syncResult.stats.numIoExceptions++;
-        } catch (AuthenticatorException e) {
-          Log.e(TAG, e.getMessage(), e);
-          syncResult.stats.numAuthExceptions++;
-        } catch (OperationCanceledException e) {
-          Log.e(TAG, e.getMessage(), e);
-          syncResult.stats.numAuthExceptions++;
+            syncer.addDeleteAction(c, ops);
+            syncResult.stats.numEntries++;
+          } catch (IOException e) {
+            // If we had a network problem then increment the exception
+            // count to indicate a soft error. The sync manager will
+            // keep retrying this with exponential back-off.
+            Log.e(TAG, e.getMessage(), e);
+            syncResult.stats.numIoExceptions++;
+          } catch (AuthenticatorException e) {
+            Log.e(TAG, e.getMessage(), e);
+            syncResult.stats.numAuthExceptions++;
+          } catch (OperationCanceledException e) {
+            Log.e(TAG, e.getMessage(), e);
+            syncResult.stats.numAuthExceptions++;
+          }
         }
       }
 
@@ -250,4 +272,83 @@ public class ThingSyncAdapter extends AbstractThreadedSyncAdapter {
       }
     }
   }
+
+  private void syncBatches(
+      Account account,
+      Cursor c,
+      SyncResult syncResult,
+      BatchSyncer syncer,
+      RateLimiter limiter,
+      Ops ops) {
+    // Group the actions by kind, since a request can only do one kind.
+    SparseArray<ArrayList<Integer>> groups =
+        new SparseArray<ArrayList<Integer>>(2);
+    while (c.moveToNext()) {
+      int action = syncer.getAction(c);
+      ArrayList<Integer> positions = groups.get(action);
+      if (positions == null) {
+        positions = new ArrayList<Integer>(c.getCount());
+        groups.put(action, positions);
+      }
+      positions.add(c.getPosition());
+    }
+
+    int remaining = c.getCount();
+    int maxBatchSize = syncer.getMaxBatchSize();
+    for (int i = 0; i < groups.size(); i++) {
+      int action = groups.keyAt(i);
+      ArrayList<Integer> positions = groups.valueAt(i);
+      for (int start = 0; start < positions.size(); start += maxBatchSize) {
+        if (!RateLimitGovernor.acquireBackgroundPermit()) {
+          limiter.deferForBudget(true);
+          syncResult.stats.numSkippedEntries += remaining;
+          return;
+        }
+
+        int batchSize = Math.min(maxBatchSize, positions.size() - start);
+        long[] ids = new long[batchSize];
+        String[] thingIds = new String[batchSize];
+        for (int j = 0; j < batchSize; j++) {
+          c.moveToPosition(positions.get(start + j));
+          ids[j] = syncer.getId(c);
+          thingIds[j] = syncer.getThingId(c);
+        }
+        remaining -= batchSize;
+
+        try {
+          // Sync the local actions to the server in one request.
+          Result result = syncer.syncBatch(getContext(), account.name, action,
+              thingIds);
+          if (BuildConfig.DEBUG) {
+            result.logAnyErrors(TAG, syncer.getTag());
+          }
+
+          // Quit processing actions if we hit a rate limit.
+          if (result.hasRateLimitError() || result.hasUserRequiredError()) {
+            limiter.updateLimit(result, remaining > 0);
+            String syncStatus = result.getErrorCodeMessage().toString();
+            for (int j = 0; j < batchSize; j++) {
+              c.moveToPosition(positions.get(start + j));
+              syncer.addUpdateAction(c, ops, syncer.getSyncFailures(c) + 1,
+                  syncStatus);
+            }
+            syncResult.stats.numSkippedEntries += batchSize;
+            return;
+          }
+
+          syncer.addDeleteActions(ids, ops);
+          syncResult.stats.numEntries += batchSize;
+        } catch (IOException e) {
+          Log.e(TAG, e.getMessage(), e);
+          syncResult.stats.numIoExceptions++;
+        } catch (AuthenticatorException e) {
+          Log.e(TAG, e.getMessage(), e);
+          syncResult.stats.numAuthExceptions++;
+        } catch (OperationCanceledException e) {
+          Log.e(TAG, e.getMessage(), e);
+          syncResult.stats.numAuthExceptions++;
+        }
+      }
+    }
+  }
 }
@@ -34,6 +34,9 @@ public class Comments implements BaseThingColumns, BaseColumns {
   /** Column with the body of a comment. Empty for the header comment. */
   public static final String COLUMN_BODY = "body";
 
+  /** Column with the span runs of the formatted body or null if unformatted. */
+  public static final String COLUMN_BODY_SPANS = "bodySpans";
+
   /** Column with the {@link CommentActions} row ID for a pending comment. */
   public static final String COLUMN_COMMENT_ACTION_ID = "commentActionId";
 
@@ -89,6 +92,16 @@ public class Comments implements BaseThingColumns, BaseColumns {
   public static final String SORT_BY_SEQUENCE_AND_ID =
       COLUMN_SEQUENCE + " ASC, " + _ID + " ASC";
 
+  static void createV2(SQLiteDatabase db) {
+    create(db);
+    upgradeToV2(db);
+  }
+
+  static void upgradeToV2(SQLiteDatabase db) {
+    db.execSQL("ALTER TABLE " + TABLE_NAME
+        + " ADD " + COLUMN_BODY_SPANS + " BLOB");
+  }
+
   static void create(SQLiteDatabase db) {
     db.execSQL("CREATE TABLE " + TABLE_NAME + " ("
         + _ID + " INTEGER PRIMARY KEY,"
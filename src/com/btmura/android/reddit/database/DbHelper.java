@@ -24,7 +24,7 @@ public class DbHelper extends SQLiteOpenHelper {
 
   public static final String DATABASE_REDDIT = "reddit";
   public static final String DATABASE_TEST = "test";
-  public static final int LATEST_VERSION = 4;
+  public static final int LATEST_VERSION = 5;
 
   /**
    * Singleton instances accessible via {@link #getInstance(Context)}.
@@ -73,6 +73,10 @@ public class DbHelper extends SQLiteOpenHelper {
   @Override
   public void onCreate(SQLiteDatabase db) {
     switch (version) {
+      case 5:
+        createDatabaseV5(db);
+        break;
+
       case 4:
         createDatabaseV4(db);
         break;
@@ -103,6 +107,9 @@ public class DbHelper extends SQLiteOpenHelper {
     if (needsUpgrade(oldVersion, newVersion, 4)) {
       upgradeToDatabaseV4(db);
     }
+    if (needsUpgrade(oldVersion, newVersion, 5)) {
+      upgradeToDatabaseV5(db);
+    }
   }
 
   private static boolean needsUpgrade(
@@ -112,6 +119,38 @@ public class DbHelper extends SQLiteOpenHelper {
     return oldVersion < upgrade && newVersion >= upgrade;
   }
 
+  /**
+   * Creates the tables for database version 5. It adds columns to hold the
+   * formatted spans of bodies.
+   */
+  private static void createDatabaseV5(SQLiteDatabase db) {
+    AccountActions.create(db);
+
+    Comments.createV2(db);
+    HideActions.createV2(db);
+    Messages.createV2(db);
+    Sessions.create(db);
+    SubredditResults.create(db);
+    Things.createV2(db);
+
+    Accounts.create(db);
+    CommentActions.createV2(db);
+    MessageActions.createV2(db);
+    ReadActions.createV2(db);
+    SaveActions.createV3(db);
+    VoteActions.createV3(db);
+
+    Subreddits.createV2(db);
+    Subreddits.insertDefaults(db);
+  }
+
+  /** Upgrade database to version 5 from version 4. */
+  private static void upgradeToDatabaseV5(SQLiteDatabase db) {
+    Comments.upgradeToV2(db);
+    Messages.upgradeToV2(db);
+    Things.upgradeToV2(db);
+  }
+
   private static void createDatabaseV4(SQLiteDatabase db) {
     AccountActions.create(db);
 
@@ -27,6 +27,7 @@ public class Messages implements BaseColumns {
 
   public static final String COLUMN_AUTHOR = "author";
   public static final String COLUMN_BODY = "body";
+  public static final String COLUMN_BODY_SPANS = "bodySpans";
   public static final String COLUMN_CONTEXT = "context";
   public static final String COLUMN_CREATED_UTC = "createdUtc";
   public static final String COLUMN_DESTINATION = "destination";
@@ -53,6 +54,16 @@ public class Messages implements BaseColumns {
   public static final String SELECT_BY_SESSION_ID =
       SharedColumns.SELECT_BY_SESSION_ID;
 
+  static void createV2(SQLiteDatabase db) {
+    create(db);
+    upgradeToV2(db);
+  }
+
+  static void upgradeToV2(SQLiteDatabase db) {
+    db.execSQL("ALTER TABLE " + TABLE_NAME
+        + " ADD " + COLUMN_BODY_SPANS + " BLOB");
+  }
+
   static void create(SQLiteDatabase db) {
     db.execSQL("CREATE TABLE " + TABLE_NAME + " ("
         + _ID + " INTEGER PRIMARY KEY,"
@@ -28,6 +28,7 @@ public class Things implements BaseColumns {
 
   public static final String COLUMN_AUTHOR = "author";
   public static final String COLUMN_BODY = "body";
+  public static final String COLUMN_BODY_SPANS = "bodySpans";
   public static final String COLUMN_CREATED_UTC = "createdUtc";
   public static final String COLUMN_DOMAIN = "domain";
   public static final String COLUMN_DOWNS = "downs";
@@ -84,6 +85,16 @@ public class Things implements BaseColumns {
   public static final String SELECT_NOT_HIDDEN_BY_SESSION_ID =
       SharedColumns.SELECT_BY_SESSION_ID + " AND " + COLUMN_HIDDEN + "=0";
 
+  static void createV2(SQLiteDatabase db) {
+    create(db);
+    upgradeToV2(db);
+  }
+
+  static void upgradeToV2(SQLiteDatabase db) {
+    db.execSQL("ALTER TABLE " + TABLE_NAME
+        + " ADD " + COLUMN_BODY_SPANS + " BLOB");
+  }
+
   static void create(SQLiteDatabase db) {
     db.execSQL("CREATE TABLE " + TABLE_NAME + " ("
         + _ID + " INTEGER PRIMARY KEY,"
@@ -16,9 +16,9 @@
 
 package com.btmura.android.reddit.net;
 
-import android.util.JsonReader;
 
 import com.btmura.android.reddit.util.JsonParser;
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
 import java.io.IOException;
 
@@ -33,13 +33,13 @@ public class AccountInfoResult extends JsonParser {
   /** True if the account has mail. False otherwise. */
   public boolean hasMail;
 
-  static AccountInfoResult getMyInfo(JsonReader r) throws IOException {
+  static AccountInfoResult getMyInfo(Utf8JsonReader r) throws IOException {
     AccountInfoResult result = new AccountInfoResult();
     result.parseEntityData(r);
     return result;
   }
 
-  static AccountInfoResult getUserInfo(JsonReader r) throws IOException {
+  static AccountInfoResult getUserInfo(Utf8JsonReader r) throws IOException {
     AccountInfoResult result = new AccountInfoResult();
     result.parseEntity(r);
     return result;
@@ -49,17 +49,17 @@ public class AccountInfoResult extends JsonParser {
   }
 
   @Override
-  public void onLinkKarma(JsonReader r, int i) throws IOException {
+  public void onLinkKarma(Utf8JsonReader r, int i) throws IOException {
     linkKarma = readInt(r, 0);
   }
 
   @Override
-  public void onCommentKarma(JsonReader r, int i) throws IOException {
+  public void onCommentKarma(Utf8JsonReader r, int i) throws IOException {
     commentKarma = readInt(r, 0);
   }
 
   @Override
-  public void onHasMail(JsonReader r, int i) throws IOException {
+  public void onHasMail(Utf8JsonReader r, int i) throws IOException {
     hasMail = readBoolean(r, false);
   }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.btmura.android.reddit.BuildConfig;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CircuitBreaker} fails requests to a host fast after several
+ * consecutive transient failures, so that requests aren't stacked up against
+ * reddit during an outage. After a cool down, one request is let through to
+ * probe whether the host has recovered.
+ */
+public class CircuitBreaker {
+
+  private static final String TAG = "CircuitBreaker";
+
+  /** Consecutive failures after which the circuit opens. */
+  private static final int FAILURE_THRESHOLD = 5;
+
+  /** Duration the circuit stays open before letting a probe through. */
+  private static final long OPEN_MS = TimeUnit.SECONDS.toMillis(30);
+
+  /** Map from host to its circuit state. */
+  private static final HashMap<String, State> STATES =
+      new HashMap<String, State>();
+
+  private static final Stats STATS = new Stats();
+
+  /** Snapshot of the breaker's counters for debugging. */
+  public static class Stats {
+
+    /** Times a circuit opened after too many failures. */
+    public int opens;
+
+    /** Requests failed without touching the network. */
+    public int fastFailures;
+
+    @Override
+    public String toString() {
+      return "opens: " + opens + " fastFailures: " + fastFailures;
+    }
+  }
+
+  private static class State {
+    int failures;
+    long openUntil;
+    boolean probing;
+  }
+
+  /**
+   * Throws an IOException if requests to the host should fail fast. Once the
+   * cool down is over, only one caller is let through until its result is
+   * recorded. Returns true if the caller is that probe, in which case it must
+   * call {@link #onResult} or {@link #onAbort} when done.
+   */
+  static boolean check(String host) throws IOException {
+    synchronized (STATES) {
+      State state = STATES.get(host);
+      if (state == null || state.failures < FAILURE_THRESHOLD) {
+        return false;
+      }
+      if (SystemClock.elapsedRealtime() < state.openUntil || state.probing) {
+        STATS.fastFailures++;
+        throw new IOException("circuit open: " + host);
+      }
+      state.probing = true;
+      return true;
+    }
+  }
+
+  /**
+   * Records whether a request to the host succeeded or failed transiently.
+   * The probe flag is what {@link #check} returned for the request.
+   */
+  static void onResult(String host, boolean probe, boolean success) {
+    synchronized (STATES) {
+      State state = STATES.get(host);
+      if (success) {
+        if (state != null) {
+          state.failures = 0;
+          state.openUntil = 0;
+          state.probing = false;
+        }
+        return;
+      }
+      if (state == null) {
+        state = new State();
+        STATES.put(host, state);
+      }
+      if (probe) {
+        state.probing = false;
+      }
+      // Open the circuit when the threshold is reached or reopen it when the
+      // probe fails. Failures of requests that started before the circuit
+      // opened leave the cool down as it is.
+      state.failures++;
+      if (state.failures == FAILURE_THRESHOLD
+          || probe && state.failures > FAILURE_THRESHOLD) {
+        state.openUntil = SystemClock.elapsedRealtime() + OPEN_MS;
+        STATS.opens++;
+        if (BuildConfig.DEBUG) {
+          Log.d(TAG, "open host: " + host + " " + STATS);
+        }
+      }
+    }
+  }
+
+  /**
+   * Lets another probe through after the probe's request ended without saying
+   * anything about the host like when it was cancelled.
+   */
+  static void onAbort(String host) {
+    synchronized (STATES) {
+      State state = STATES.get(host);
+      if (state != null) {
+        state.probing = false;
+      }
+    }
+  }
+
+  /** Returns a copy of the current breaker statistics. */
+  public static Stats getStats() {
+    Stats copy = new Stats();
+    synchronized (STATES) {
+      copy.opens = STATS.opens;
+      copy.fastFailures = STATS.fastFailures;
+    }
+    return copy;
+  }
+
+  private CircuitBreaker() {
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * {@link ConnectionPool} opens and releases the connections used by
+ * {@link RedditApi}. Released connections are handed back to the platform's
+ * keep-alive pool instead of being disconnected, so subsequent requests to
+ * oauth.reddit.com skip the TCP and TLS handshakes. The platform pool doesn't
+ * say whether it reused a connection, so only what this class does is counted.
+ */
+public class ConnectionPool {
+
+  private static final String TAG = "ConnectionPool";
+
+  /** Maximum number of idle connections kept per host. */
+  private static final int MAX_IDLE_CONNECTIONS = 5;
+
+  /** Duration an idle connection is kept before being evicted. */
+  private static final long KEEP_ALIVE_MS = TimeUnit.MINUTES.toMillis(5);
+
+  /** Number of TLS sessions kept around for resumption. */
+  private static final int TLS_SESSION_CACHE_SIZE = 16;
+
+  /** Maximum number of unread body bytes drained to reuse a connection. */
+  private static final int MAX_DRAIN_BYTES = 8 * 1024;
+
+  /** Duration in seconds that a TLS session may be resumed. */
+  private static final int TLS_SESSION_TIMEOUT_SECONDS =
+      (int) TimeUnit.HOURS.toSeconds(1);
+
+  private static final Stats STATS = new Stats();
+
+  /** Snapshot of the pool's counters for debugging. */
+  public static class Stats {
+
+    /** Connections opened, which may be served from idle keep-alive ones. */
+    public int opens;
+
+    /** Connections handed back to the platform's keep-alive pool. */
+    public int releases;
+
+    /** Connections disconnected because they could not be reused. */
+    public int discards;
+
+    @Override
+    public String toString() {
+      return "opens: " + opens
+          + " releases: " + releases
+          + " discards: " + discards;
+    }
+  }
+
+  /**
+   * Configures the platform's keep-alive pool and TLS session cache. Called
+   * when the app starts before any connections are opened, since the pool
+   * reads its settings once.
+   */
+  public static void init() {
+    System.setProperty("http.keepAlive", "true");
+    System.setProperty("http.maxConnections",
+        Integer.toString(MAX_IDLE_CONNECTIONS));
+    System.setProperty("http.keepAliveDuration",
+        Long.toString(KEEP_ALIVE_MS));
+    try {
+      SSLSessionContext sc = SSLContext.getDefault().getClientSessionContext();
+      sc.setSessionCacheSize(TLS_SESSION_CACHE_SIZE);
+      sc.setSessionTimeout(TLS_SESSION_TIMEOUT_SECONDS);
+    } catch (NoSuchAlgorithmException e) {
+      Log.e(TAG, e.getMessage(), e);
+    }
+  }
+
+  /** Opens a connection that may be served from an idle keep-alive one. */
+  static HttpURLConnection open(URL url) throws IOException {
+    synchronized (STATS) {
+      STATS.opens++;
+    }
+    return (HttpURLConnection) url.openConnection();
+  }
+
+  /**
+   * Releases a connection back to the pool. The response body must have been
+   * closed by the caller. Any unread error body is drained here, so that the
+   * connection can still be reused after an error response.
+   */
+  static void release(@Nullable HttpURLConnection conn) {
+    if (conn == null) {
+      return;
+    }
+    InputStream es = conn.getErrorStream();
+    if (es != null && !drain(es)) {
+      discard(conn);
+      return;
+    }
+    synchronized (STATS) {
+      STATS.releases++;
+    }
+  }
+
+  /**
+   * Releases a connection that got a response whose body the caller never
+   * opened, like when only the status code was checked. The platform doesn't
+   * return the socket to the keep-alive pool until the body is read, so the
+   * body is drained here or the connection is disconnected if it's too long.
+   */
+  static void releaseUnread(@Nullable HttpURLConnection conn) {
+    if (conn == null) {
+      return;
+    }
+    InputStream in = conn.getErrorStream();
+    try {
+      if (in == null) {
+        in = conn.getInputStream();
+      }
+    } catch (IOException e) {
+      discard(conn);
+      return;
+    }
+    if (!drain(in)) {
+      discard(conn);
+      return;
+    }
+    synchronized (STATS) {
+      STATS.releases++;
+    }
+  }
+
+  /** Disconnects a connection that is in an unknown state. */
+  static void discard(@Nullable HttpURLConnection conn) {
+    if (conn != null) {
+      conn.disconnect();
+      synchronized (STATS) {
+        STATS.discards++;
+      }
+    }
+  }
+
+  /** Returns a copy of the current pool statistics. */
+  public static Stats getStats() {
+    Stats copy = new Stats();
+    synchronized (STATS) {
+      copy.opens = STATS.opens;
+      copy.releases = STATS.releases;
+      copy.discards = STATS.discards;
+    }
+    return copy;
+  }
+
+  /**
+   * Reads the rest of the stream and closes it. Returns false if the stream
+   * failed or had more than {@link #MAX_DRAIN_BYTES} left.
+   */
+  private static boolean drain(InputStream in) {
+    try {
+      byte[] buffer = new byte[1024];
+      int total = 0;
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        total += read;
+        if (total > MAX_DRAIN_BYTES) {
+          return false;
+        }
+      }
+      return true;
+    } catch (IOException e) {
+      return false;
+    } finally {
+      try {
+        in.close();
+      } catch (IOException e) {
+        Log.e(TAG, e.getMessage(), e);
+      }
+    }
+  }
+
+  private ConnectionPool() {
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * {@link ContentEncoding} asks for compressed responses and decodes them while
+ * they are streamed into the JSON parsers. Setting the Accept-Encoding header
+ * ourselves turns off the platform's transparent decompression, which lets us
+ * count the bytes on the wire versus the bytes after decoding.
+ */
+public class ContentEncoding {
+
+  static final String ACCEPT_ENCODING = "gzip, deflate";
+
+  private static final String GZIP = "gzip";
+  private static final String DEFLATE = "deflate";
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private static final AtomicLong RESPONSES = new AtomicLong();
+  private static final AtomicLong COMPRESSED_RESPONSES = new AtomicLong();
+  private static final AtomicLong WIRE_BYTES = new AtomicLong();
+  private static final AtomicLong DECODED_BYTES = new AtomicLong();
+
+  /** Snapshot of the byte counters for debugging. */
+  public static class Stats {
+
+    /** Number of responses read. */
+    public long responses;
+
+    /** Number of responses that were gzip or deflate encoded. */
+    public long compressedResponses;
+
+    /** Bytes read off the network before decoding. */
+    public long wireBytes;
+
+    /** Bytes handed to the parsers after decoding. */
+    public long decodedBytes;
+
+    @Override
+    public String toString() {
+      return "responses: " + responses
+          + " compressed: " + compressedResponses
+          + " wireBytes: " + wireBytes
+          + " decodedBytes: " + decodedBytes;
+    }
+  }
+
+  /** Returns the decoded response body of the connection. */
+  static InputStream getInputStream(HttpURLConnection conn)
+      throws IOException {
+    RESPONSES.incrementAndGet();
+    NetworkMetrics.onResponse(conn);
+    InputStream in = conn.getInputStream();
+    in = new CountingInputStream(NetworkMetrics.countBytes(conn, in),
+        WIRE_BYTES);
+    String encoding = conn.getContentEncoding();
+    if (GZIP.equalsIgnoreCase(encoding)) {
+      COMPRESSED_RESPONSES.incrementAndGet();
+      in = new GZIPInputStream(in, BUFFER_SIZE);
+    } else if (DEFLATE.equalsIgnoreCase(encoding)) {
+      COMPRESSED_RESPONSES.incrementAndGet();
+      in = new InflaterInputStream(in);
+    }
+    return new CountingInputStream(in, DECODED_BYTES);
+  }
+
+  /** Returns a copy of the current counters. */
+  public static Stats getStats() {
+    Stats stats = new Stats();
+    stats.responses = RESPONSES.get();
+    stats.compressedResponses = COMPRESSED_RESPONSES.get();
+    stats.wireBytes = WIRE_BYTES.get();
+    stats.decodedBytes = DECODED_BYTES.get();
+    return stats;
+  }
+
+  static class CountingInputStream extends FilterInputStream {
+
+    private final AtomicLong counter;
+
+    CountingInputStream(InputStream in, AtomicLong counter) {
+      super(in);
+      this.counter = counter;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        counter.incrementAndGet();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+      int read = super.read(buffer, offset, count);
+      if (read > 0) {
+        counter.addAndGet(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long byteCount) throws IOException {
+      long skipped = super.skip(byteCount);
+      if (skipped > 0) {
+        counter.addAndGet(skipped);
+      }
+      return skipped;
+    }
+  }
+
+  private ContentEncoding() {
+  }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.SparseIntArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link NetworkMetrics} records per endpoint histograms of how long
+ * {@link RedditApi} requests take until the response headers arrive and until
+ * the body has been read and parsed, along with response sizes, status codes
+ * and retries. HttpURLConnection doesn't break out DNS, connect and TLS
+ * times, so those are all part of the time until the headers arrive.
+ */
+public class NetworkMetrics {
+
+  /** Upper bounds in milliseconds of the latency histogram buckets. */
+  private static final long[] BUCKET_BOUNDS = {
+      50, 100, 250, 500, 1000, 2500, 5000, 10000, Long.MAX_VALUE,
+  };
+
+  /** Hosts whose paths are broken out into endpoints. */
+  private static final String[] API_HOSTS = {
+      "oauth.reddit.com", "www.reddit.com",
+  };
+
+  /** Path segments after which the next segment varies per request. */
+  private static final String[] VARIABLE_SEGMENT_PREFIXES = {
+      "captcha", "duplicates", "messages", "r", "user",
+  };
+
+  /** Path segments after which the rest of the path varies per request. */
+  private static final String[] VARIABLE_PATH_PREFIXES = {
+      "by_id", "comments",
+  };
+
+  /** Endpoint of requests to other hosts like images and thumbnails. */
+  static final String OTHER_ENDPOINT = "other";
+
+  /** Maximum number of endpoints after which new ones count as other. */
+  private static final int MAX_ENDPOINTS = 64;
+
+  /** Map from connection to the request it is carrying out. */
+  private static final WeakHashMap<HttpURLConnection, Call> CALLS =
+      new WeakHashMap<HttpURLConnection, Call>();
+
+  /** Map from endpoint to its metrics sorted for dumping. */
+  private static final TreeMap<String, Endpoint> ENDPOINTS =
+      new TreeMap<String, Endpoint>();
+
+  private static class Call {
+    final String endpoint;
+    final long startTime;
+    final AtomicLong bytes = new AtomicLong();
+    long responseTime;
+    volatile long bodyEndTime;
+    int status;
+    int retries;
+
+    Call(String endpoint, long startTime) {
+      this.endpoint = endpoint;
+      this.startTime = startTime;
+    }
+  }
+
+  private static class Endpoint {
+    int requests;
+    int retries;
+    long bytes;
+    final int[] responseHistogram = new int[BUCKET_BOUNDS.length];
+    final int[] totalHistogram = new int[BUCKET_BOUNDS.length];
+    final SparseIntArray statusCounts = new SparseIntArray();
+  }
+
+  /** Starts timing a request on a newly opened connection. */
+  static void start(HttpURLConnection conn) {
+    Call call = new Call(getEndpoint(conn.getURL()),
+        SystemClock.elapsedRealtime());
+    synchronized (CALLS) {
+      CALLS.put(conn, call);
+    }
+  }
+
+  /** Continues timing a request that is being retried on a new connection. */
+  static void retry(HttpURLConnection oldConn, HttpURLConnection newConn) {
+    synchronized (CALLS) {
+      Call call = CALLS.remove(oldConn);
+      if (call != null) {
+        call.retries++;
+        call.responseTime = 0;
+        call.bodyEndTime = 0;
+        CALLS.put(newConn, call);
+      }
+    }
+  }
+
+  /** Adds retries that happened before the request got this connection. */
+  static void addRetries(HttpURLConnection conn, int retries) {
+    if (retries > 0) {
+      synchronized (CALLS) {
+        Call call = CALLS.get(conn);
+        if (call != null) {
+          call.retries += retries;
+        }
+      }
+    }
+  }
+
+  /**
+   * Waits for the response headers of the connection and notes when they
+   * arrived along with the status code.
+   */
+  static void onResponse(HttpURLConnection conn) throws IOException {
+    int status = conn.getResponseCode();
+    synchronized (CALLS) {
+      Call call = CALLS.get(conn);
+      if (call != null && call.responseTime == 0) {
+        call.responseTime = SystemClock.elapsedRealtime();
+        call.status = status;
+      }
+    }
+  }
+
+  /**
+   * Returns a stream that counts the bytes of the response body and notes when
+   * its last bytes came off the network.
+   */
+  static InputStream countBytes(HttpURLConnection conn, InputStream in) {
+    Call call;
+    synchronized (CALLS) {
+      call = CALLS.get(conn);
+    }
+    return call != null ? new BodyInputStream(in, call) : in;
+  }
+
+  /**
+   * Finishes timing the request after its body was read and closed or after
+   * it failed. The connection isn't touched, since asking a failed connection
+   * for its response would connect again. Returns the response code or -1 if
+   * there was no response or the connection wasn't tracked.
+   */
+  static int finish(@Nullable HttpURLConnection conn) {
+    if (conn == null) {
+      return -1;
+    }
+    Call call;
+    synchronized (CALLS) {
+      call = CALLS.remove(conn);
+    }
+    if (call == null) {
+      return -1;
+    }
+
+    long now = SystemClock.elapsedRealtime();
+    int status = call.responseTime != 0 ? call.status : -1;
+
+    // Measure the body until its last bytes were read rather than until now,
+    // since the body has been parsed and maybe processed further by now.
+    if (call.responseTime != 0) {
+      long bodyEndTime = call.bodyEndTime != 0 ? call.bodyEndTime : now;
+      PageSizePolicy.onRequestFinished(call.responseTime - call.startTime,
+          bodyEndTime - call.responseTime, call.bytes.get());
+    }
+
+    synchronized (ENDPOINTS) {
+      String key = call.endpoint;
+      if (ENDPOINTS.size() >= MAX_ENDPOINTS && !ENDPOINTS.containsKey(key)) {
+        key = OTHER_ENDPOINT;
+      }
+      Endpoint endpoint = ENDPOINTS.get(key);
+      if (endpoint == null) {
+        endpoint = new Endpoint();
+        ENDPOINTS.put(key, endpoint);
+      }
+      endpoint.requests++;
+      endpoint.retries += call.retries;
+      endpoint.bytes += call.bytes.get();
+      if (call.responseTime != 0) {
+        endpoint.responseHistogram[getBucket(call.responseTime
+            - call.startTime)]++;
+      }
+      endpoint.totalHistogram[getBucket(now - call.startTime)]++;
+      endpoint.statusCounts.put(status, endpoint.statusCounts.get(status) + 1);
+    }
+    return status;
+  }
+
+  /** Prints the metrics of every endpoint for dumpsys. */
+  public static void dump(PrintWriter pw) {
+    synchronized (ENDPOINTS) {
+      pw.print("Latency buckets (ms):");
+      for (int i = 0; i < BUCKET_BOUNDS.length - 1; i++) {
+        pw.print(" <");
+        pw.print(BUCKET_BOUNDS[i]);
+      }
+      pw.println(" more");
+      for (Map.Entry<String, Endpoint> e : ENDPOINTS.entrySet()) {
+        Endpoint endpoint = e.getValue();
+        pw.println(e.getKey());
+        pw.print("  requests: ");
+        pw.print(endpoint.requests);
+        pw.print(" retries: ");
+        pw.print(endpoint.retries);
+        pw.print(" bytes: ");
+        pw.print(endpoint.bytes);
+        pw.print(" avgBytes: ");
+        pw.println(endpoint.bytes / Math.max(1, endpoint.requests));
+        pw.print("  status:");
+        for (int i = 0; i < endpoint.statusCounts.size(); i++) {
+          pw.print(" ");
+          pw.print(endpoint.statusCounts.keyAt(i));
+          pw.print("=");
+          pw.print(endpoint.statusCounts.valueAt(i));
+        }
+        pw.println();
+        dumpHistogram(pw, "  headers:", endpoint.responseHistogram);
+        dumpHistogram(pw, "  total:", endpoint.totalHistogram);
+      }
+    }
+  }
+
+  private static void dumpHistogram(PrintWriter pw, String label, int[] counts) {
+    pw.print(label);
+    for (int i = 0; i < counts.length; i++) {
+      pw.print(" ");
+      pw.print(counts[i]);
+    }
+    pw.println();
+  }
+
+  private static int getBucket(long latencyMs) {
+    for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+      if (latencyMs < BUCKET_BOUNDS[i]) {
+        return i;
+      }
+    }
+    return BUCKET_BOUNDS.length - 1;
+  }
+
+  /**
+   * Returns the URL's host and path with ids and names replaced by asterisks,
+   * or {@link #OTHER_ENDPOINT} if the host isn't reddit's API.
+   */
+  static String getEndpoint(URL url) {
+    if (!contains(API_HOSTS, url.getHost())) {
+      return OTHER_ENDPOINT;
+    }
+    String[] segments = url.getPath().split("/");
+    StringBuilder sb = new StringBuilder(url.getHost());
+    boolean variable = false;
+    for (int i = 0; i < segments.length; i++) {
+      String segment = segments[i];
+      if (segment.isEmpty()) {
+        continue;
+      }
+      if (variable) {
+        sb.append("/*");
+        variable = false;
+        continue;
+      }
+
+      // Drop extensions like .json and .png.
+      int dot = segment.lastIndexOf('.');
+      if (dot != -1) {
+        segment = segment.substring(0, dot);
+      }
+      sb.append('/').append(segment);
+      if (contains(VARIABLE_PATH_PREFIXES, segment)) {
+        if (i + 1 < segments.length) {
+          sb.append("/*");
+        }
+        break;
+      }
+      variable = contains(VARIABLE_SEGMENT_PREFIXES, segment);
+    }
+    return sb.toString();
+  }
+
+  private static boolean contains(String[] values, String value) {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i].equals(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * {@link BodyInputStream} counts the bytes of a response body and stamps the
+   * call with the time of each read until the end of the stream. The decoders
+   * and parsers may stop once they have the whole document without reading
+   * the end of the stream, so the last read that returned bytes stands in for
+   * it then.
+   */
+  private static class BodyInputStream
+      extends ContentEncoding.CountingInputStream {
+
+    private final Call call;
+    private boolean eof;
+
+    BodyInputStream(InputStream in, Call call) {
+      super(in, call.bytes);
+      this.call = call;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      onRead(b != -1);
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+      int read = super.read(buffer, offset, count);
+      onRead(read != -1);
+      return read;
+    }
+
+    private void onRead(boolean gotBytes) {
+      if (!eof) {
+        call.bodyEndTime = SystemClock.elapsedRealtime();
+        eof = !gotBytes;
+      }
+    }
+  }
+
+  private NetworkMetrics() {
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import android.util.Log;
+
+import com.btmura.android.reddit.BuildConfig;
+
+/**
+ * {@link PageSizePolicy} picks how many links and comments to ask for per
+ * request based on the round trip times and throughput that
+ * {@link NetworkMetrics} observes. Fast connections get bigger pages and
+ * fewer round trips, while slow ones get a small first page so that
+ * something renders quickly.
+ */
+public class PageSizePolicy {
+
+  private static final String TAG = "PageSizePolicy";
+
+  private static final int SPEED_UNKNOWN = 0;
+  private static final int SPEED_SLOW = 1;
+  private static final int SPEED_MEDIUM = 2;
+  private static final int SPEED_FAST = 3;
+
+  /** Responses smaller than this are dominated by RTT not throughput. */
+  private static final long MIN_THROUGHPUT_BYTES = 16 * 1024;
+
+  private static final long FAST_RTT_MS = 300;
+  private static final long SLOW_RTT_MS = 1000;
+  private static final long FAST_BYTES_PER_SECOND = 500 * 1024;
+  private static final long SLOW_BYTES_PER_SECOND = 50 * 1024;
+
+  // Limits indexed by speed.
+  private static final int[] FIRST_PAGE_LIMITS = {25, 10, 25, 100};
+  private static final int[] NEXT_PAGE_LIMITS = {25, 25, 50, 100};
+  private static final int[] COMMENT_LIMITS =
+      {Urls.NO_LIMIT, 100, Urls.NO_LIMIT, 500};
+
+  private static long rttMs = -1;
+  private static long bytesPerSecond = -1;
+
+  /** Returns the number of links or messages to ask for in a page. */
+  public static int getListingLimit(boolean firstPage) {
+    int speed = getSpeed();
+    return firstPage ? FIRST_PAGE_LIMITS[speed] : NEXT_PAGE_LIMITS[speed];
+  }
+
+  /** Returns the number of comments to ask for or {@link Urls#NO_LIMIT}. */
+  public static int getCommentLimit() {
+    return COMMENT_LIMITS[getSpeed()];
+  }
+
+  /** Updates the estimates with a request that has been read fully. */
+  static synchronized void onRequestFinished(
+      long responseMs,
+      long bodyMs,
+      long bytes) {
+    if (responseMs > 0) {
+      rttMs = rttMs < 0 ? responseMs : (rttMs * 3 + responseMs) / 4;
+    }
+    if (bytes >= MIN_THROUGHPUT_BYTES && bodyMs > 0) {
+      long sample = bytes * 1000 / bodyMs;
+      bytesPerSecond = bytesPerSecond < 0
+          ? sample
+          : (bytesPerSecond * 3 + sample) / 4;
+    }
+    if (BuildConfig.DEBUG) {
+      Log.d(TAG, "rttMs: " + rttMs + " bytesPerSecond: " + bytesPerSecond);
+    }
+  }
+
+  private static synchronized int getSpeed() {
+    if (rttMs < 0) {
+      return SPEED_UNKNOWN;
+    }
+    if (rttMs >= SLOW_RTT_MS
+        || bytesPerSecond >= 0 && bytesPerSecond < SLOW_BYTES_PER_SECOND) {
+      return SPEED_SLOW;
+    }
+    if (rttMs <= FAST_RTT_MS && bytesPerSecond >= FAST_BYTES_PER_SECOND) {
+      return SPEED_FAST;
+    }
+    return SPEED_MEDIUM;
+  }
+
+  private PageSizePolicy() {
+  }
+}
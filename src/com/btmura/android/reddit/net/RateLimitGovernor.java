@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.btmura.android.reddit.BuildConfig;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RateLimitGovernor} tracks the request budget that reddit reports in
+ * the X-Ratelimit-* headers of every response. Foreground requests are never
+ * held back, but background work like syncing and prefetching asks for a
+ * permit first. Background permits are paced so that the remaining budget is
+ * spread over the rest of the window, and they stop entirely once only the
+ * share reserved for the foreground is left.
+ */
+public class RateLimitGovernor {
+
+  private static final String TAG = "RateLimitGovernor";
+
+  private static final String HEADER_REMAINING = "X-Ratelimit-Remaining";
+  private static final String HEADER_USED = "X-Ratelimit-Used";
+  private static final String HEADER_RESET = "X-Ratelimit-Reset";
+
+  /** Requests in each window that only foreground requests may use. */
+  private static final int FOREGROUND_RESERVE = 100;
+
+  /** Longest that a background caller will be made to sleep for a permit. */
+  private static final long MAX_BACKGROUND_WAIT_MS =
+      TimeUnit.SECONDS.toMillis(10);
+
+  private static final Budget BUDGET = new Budget();
+
+  /** Time in elapsed realtime when the last background permit was given. */
+  private static long lastBackgroundPermitTime;
+
+  /** Snapshot of the current budget for debugging. */
+  public static class Budget {
+
+    /** Whether any response has reported the rate limit yet. */
+    public boolean known;
+
+    /** Requests left in the current window. */
+    public double remaining;
+
+    /** Requests used in the current window. */
+    public int used;
+
+    /** Time in elapsed realtime when the window resets. */
+    public long resetTime;
+
+    /** Background permits that were delayed to pace requests. */
+    public int backgroundWaits;
+
+    /** Background permits that were denied to protect the foreground. */
+    public int backgroundDenials;
+
+    @Override
+    public String toString() {
+      return "known: " + known
+          + " remaining: " + remaining
+          + " used: " + used
+          + " resetMs: " + (resetTime - SystemClock.elapsedRealtime())
+          + " backgroundWaits: " + backgroundWaits
+          + " backgroundDenials: " + backgroundDenials;
+    }
+  }
+
+  /** Updates the budget from the response headers of the connection. */
+  static void update(HttpURLConnection conn) {
+    String remaining = conn.getHeaderField(HEADER_REMAINING);
+    String used = conn.getHeaderField(HEADER_USED);
+    String reset = conn.getHeaderField(HEADER_RESET);
+    if (TextUtils.isEmpty(remaining) || TextUtils.isEmpty(reset)) {
+      return;
+    }
+    try {
+      double remainingValue = Double.parseDouble(remaining);
+      int usedValue = !TextUtils.isEmpty(used) ? Integer.parseInt(used) : 0;
+      long resetMs = TimeUnit.SECONDS.toMillis(Long.parseLong(reset));
+      synchronized (BUDGET) {
+        BUDGET.known = true;
+        BUDGET.remaining = remainingValue;
+        BUDGET.used = usedValue;
+        BUDGET.resetTime = SystemClock.elapsedRealtime() + resetMs;
+      }
+    } catch (NumberFormatException e) {
+      Log.e(TAG, e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Blocks until a background request may be made. Returns false without
+   * blocking if that would take too long, in which case the caller should
+   * defer its work by {@link #getBackgroundDelaySeconds()}. Also returns false
+   * with the interrupt flag set if the thread is interrupted while waiting,
+   * so cancelled work doesn't sit out the pacing.
+   */
+  public static boolean acquireBackgroundPermit() {
+    long waitMs;
+    synchronized (BUDGET) {
+      waitMs = getBackgroundWaitMsLocked();
+      if (waitMs > MAX_BACKGROUND_WAIT_MS) {
+        BUDGET.backgroundDenials++;
+        if (BuildConfig.DEBUG) {
+          Log.d(TAG, "denied " + BUDGET);
+        }
+        return false;
+      }
+      if (waitMs > 0) {
+        BUDGET.backgroundWaits++;
+      }
+      lastBackgroundPermitTime = SystemClock.elapsedRealtime() + waitMs;
+    }
+    if (waitMs > 0) {
+      try {
+        Thread.sleep(waitMs);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the seconds background work should wait before trying again. */
+  public static long getBackgroundDelaySeconds() {
+    synchronized (BUDGET) {
+      return TimeUnit.MILLISECONDS.toSeconds(getBackgroundWaitMsLocked());
+    }
+  }
+
+  /** Returns a copy of the current budget. */
+  public static Budget getBudget() {
+    Budget copy = new Budget();
+    synchronized (BUDGET) {
+      copy.known = BUDGET.known;
+      copy.remaining = BUDGET.remaining;
+      copy.used = BUDGET.used;
+      copy.resetTime = BUDGET.resetTime;
+      copy.backgroundWaits = BUDGET.backgroundWaits;
+      copy.backgroundDenials = BUDGET.backgroundDenials;
+    }
+    return copy;
+  }
+
+  private static long getBackgroundWaitMsLocked() {
+    long now = SystemClock.elapsedRealtime();
+    if (!BUDGET.known || now >= BUDGET.resetTime) {
+      return 0;
+    }
+
+    long untilReset = BUDGET.resetTime - now;
+    double backgroundBudget = BUDGET.remaining - FOREGROUND_RESERVE;
+    if (backgroundBudget < 1) {
+      return untilReset;
+    }
+
+    // Spread what is left for the background evenly over the window.
+    long interval = (long) (untilReset / backgroundBudget);
+    long nextPermitTime = lastBackgroundPermitTime + interval;
+    return Math.max(0, nextPermitTime - now);
+  }
+
+  private RateLimitGovernor() {
+  }
+}
@@ -24,7 +24,6 @@ import android.graphics.BitmapFactory;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 import android.util.Base64;
-import android.util.JsonReader;
 import android.util.Log;
 
 import com.btmura.android.reddit.BuildConfig;
@@ -32,6 +31,7 @@ import com.btmura.android.reddit.R;
 import com.btmura.android.reddit.accounts.AccountUtils;
 import com.btmura.android.reddit.app.ThingBundle;
 import com.btmura.android.reddit.text.MarkdownFormatter;
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
@@ -40,11 +40,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class RedditApi {
 
@@ -59,6 +67,14 @@ public class RedditApi {
 
   private static final int HTTP_UNAUTHORIZED = 401;
 
+  /** Times an idempotent request is retried after a transient failure. */
+  private static final int MAX_RETRIES = 2;
+
+  /** Backoff before the first retry that doubles with each retry. */
+  private static final long BASE_BACKOFF_MS = 500;
+
+  private static final Random RANDOM = new Random();
+
   // GET requests
 
   public static AccessTokenResult getAccessToken(Context ctx, CharSequence code)
@@ -71,7 +87,7 @@ public class RedditApi {
     InputStream is = null;
     try {
       conn = noAuthConnect(url);
-      is = conn.getInputStream();
+      is = getInputStream(conn);
       return BitmapFactory.decodeStream(is);
     } finally {
       close(is, conn);
@@ -85,10 +101,10 @@ public class RedditApi {
   public static AccountInfoResult getMyInfo(Context ctx, String accountName)
       throws AuthenticatorException, OperationCanceledException, IOException {
     HttpURLConnection conn = null;
-    JsonReader r = null;
+    Utf8JsonReader r = null;
     try {
       conn = connect(ctx, accountName, Urls.myInfo());
-      r = newJsonReader(conn.getInputStream());
+      r = newJsonReader(getInputStream(conn));
       return AccountInfoResult.getMyInfo(r);
     } finally {
       close(r, conn);
@@ -102,37 +118,64 @@ public class RedditApi {
       MarkdownFormatter formatter)
       throws AuthenticatorException, OperationCanceledException, IOException {
     HttpURLConnection conn = null;
-    JsonReader r = null;
+    Utf8JsonReader r = null;
     try {
       conn = connect(ctx, accountName, Urls.thingInfo(accountName, thingId));
-      r = newJsonReader(conn.getInputStream());
+      r = newJsonReader(getInputStream(conn));
       return ThingBundle.fromJsonReader(r, formatter);
     } finally {
       close(r, conn);
     }
   }
 
+  /**
+   * Returns all the subreddits that the account subscribes to. Each page is
+   * read into memory and parsed on another thread, so that the next page is
+   * fetched while the previous one is being parsed.
+   */
   public static SubredditResult getMySubreddits(
       Context ctx,
       String accountName)
       throws AuthenticatorException, OperationCanceledException, IOException {
-    HttpURLConnection conn = null;
-    JsonReader r = null;
-    SubredditResult sr = null;
-    String after = null;
-    int count = 0;
-    do {
-      try {
-        conn = connect(ctx, accountName, Urls.mySubreddits(after, count));
-        r = newJsonReader(conn.getInputStream());
-        sr = SubredditResult.getSubreddits(sr, r);
-        after = sr.after;
-        count = sr.subreddits.size();
-      } finally {
-        close(r, conn);
+    final SubredditResult sr = new SubredditResult();
+    ArrayList<Future<String>> parses = new ArrayList<Future<String>>();
+    ExecutorService parser = Executors.newSingleThreadExecutor();
+    try {
+      String after = null;
+      int count = 0;
+      do {
+        final byte[] page = getBytes(ctx, accountName,
+            Urls.mySubreddits(after, count));
+        Future<String> parse = parser.submit(new Callable<String>() {
+          @Override
+          public String call() throws IOException {
+            Utf8JsonReader r = newJsonReader(new ByteArrayInputStream(page));
+            try {
+              SubredditResult.getSubreddits(sr, r);
+              return sr.after;
+            } finally {
+              close(r);
+            }
+          }
+        });
+        parses.add(parse);
+        count += Urls.MY_SUBREDDITS_LIMIT;
+
+        // Wait for the parser if the cursor can't be found by scanning.
+        after = SubredditResult.scanAfter(page);
+        if (TextUtils.isEmpty(after)) {
+          after = getParseResult(parse);
+        }
+      } while (!TextUtils.isEmpty(after));
+
+      // Surface any errors from parsing the earlier pages.
+      for (int i = 0; i < parses.size(); i++) {
+        getParseResult(parses.get(i));
       }
-    } while (!TextUtils.isEmpty(after));
-    return sr;
+      return sr;
+    } finally {
+      parser.shutdownNow();
+    }
   }
 
   public static SidebarResult getSidebar(
@@ -140,12 +183,20 @@ public class RedditApi {
       String accountName,
       String subreddit)
       throws AuthenticatorException, OperationCanceledException, IOException {
+    CharSequence url = Urls.sidebar(accountName, subreddit);
+    ValidatorCache.Entry cached = ValidatorCache.get(accountName, url);
     HttpURLConnection conn = null;
-    JsonReader r = null;
+    Utf8JsonReader r = null;
     try {
-      conn = connect(ctx, accountName, Urls.sidebar(accountName, subreddit));
-      r = newJsonReader(conn.getInputStream());
-      return SidebarResult.getSidebar(ctx, r);
+      conn = connect(ctx, accountName, url, cached);
+      if (ValidatorCache.isNotModified(conn, cached)) {
+        return SidebarResult.getSidebar((SidebarResult) cached.value);
+      }
+      r = newJsonReader(getInputStream(conn));
+      SidebarResult result = SidebarResult.getSidebar(ctx, r);
+      ValidatorCache.put(accountName, url,
+          ValidatorCache.newEntry(conn, result.copyWithoutBitmap()));
+      return result;
     } finally {
       close(r, conn);
     }
@@ -157,10 +208,10 @@ public class RedditApi {
       String user)
       throws AuthenticatorException, OperationCanceledException, IOException {
     HttpURLConnection conn = null;
-    JsonReader r = null;
+    Utf8JsonReader r = null;
     try {
       conn = connect(ctx, accountName, Urls.userInfo(accountName, user));
-      r = newJsonReader(conn.getInputStream());
+      r = newJsonReader(getInputStream(conn));
       return AccountInfoResult.getUserInfo(r);
     } finally {
       close(r, conn);
@@ -223,6 +274,18 @@ public class RedditApi {
         Urls.hideQuery(thingId));
   }
 
+  /** Hides or unhides all the things in one request. */
+  public static Result hide(
+      Context ctx,
+      String accountName,
+      String[] thingIds,
+      boolean hide)
+      throws AuthenticatorException, OperationCanceledException, IOException {
+    return post(ctx, accountName,
+        Urls.hide(hide),
+        Urls.hideQuery(thingIds));
+  }
+
   public static Result readMessage(
       Context ctx,
       String accountName,
@@ -234,6 +297,18 @@ public class RedditApi {
         Urls.readMessageQuery(thingId));
   }
 
+  /** Marks all the messages read or unread in one request. */
+  public static Result readMessage(
+      Context ctx,
+      String accountName,
+      String[] thingIds,
+      boolean read)
+      throws AuthenticatorException, OperationCanceledException, IOException {
+    return post(ctx, accountName,
+        Urls.readMessage(read),
+        Urls.readMessageQuery(thingIds));
+  }
+
   public static Result save(
       Context ctx,
       String accountName,
@@ -290,10 +365,10 @@ public class RedditApi {
       CharSequence data)
       throws AuthenticatorException, OperationCanceledException, IOException {
     HttpURLConnection conn = null;
-    JsonReader r = null;
+    Utf8JsonReader r = null;
     try {
-      conn = newConnection(ctx, accountName, url, data);
-      r = newJsonReader(conn.getInputStream());
+      conn = newConnection(ctx, accountName, url, data, null);
+      r = newJsonReader(getInputStream(conn));
       return Result.getResult(r);
     } finally {
       close(r, conn);
@@ -305,67 +380,197 @@ public class RedditApi {
       String accountName,
       CharSequence url)
       throws AuthenticatorException, OperationCanceledException, IOException {
-    return newConnection(ctx, accountName, url, null);
+    return newConnection(ctx, accountName, url, null, null);
+  }
+
+  /**
+   * Connects with a conditional request using the given validators. Use
+   * {@link ValidatorCache#isNotModified} to check whether the cached value
+   * made from the prior response can be reused.
+   */
+  public static HttpURLConnection connect(
+      Context ctx,
+      String accountName,
+      CharSequence url,
+      @Nullable ValidatorCache.Entry validators)
+      throws AuthenticatorException, OperationCanceledException, IOException {
+    return newConnection(ctx, accountName, url, null, validators);
   }
 
   private static HttpURLConnection newConnection(
       Context ctx,
       String accountName,
       CharSequence url,
-      @Nullable CharSequence data)
+      @Nullable CharSequence data,
+      @Nullable ValidatorCache.Entry validators)
       throws AuthenticatorException, OperationCanceledException, IOException {
-    // Check that the account has required and not-expired credentials.
-    checkCredentials(ctx, accountName);
+    // Only retry GETs, since a POST may have taken effect despite the error.
+    boolean idempotent = TextUtils.isEmpty(data);
+    String host = Urls.newUrl(url).getHost();
+    for (int retries = 0; ; retries++) {
+      boolean probe = CircuitBreaker.check(host);
+      boolean recorded = false;
+      boolean returned = false;
+      HttpURLConnection conn = null;
+      try {
+        conn = newConnectionOnce(ctx, accountName, url, data, validators);
+        NetworkMetrics.onResponse(conn);
+        boolean transientError = isTransientError(conn.getResponseCode());
+        CircuitBreaker.onResult(host, probe, !transientError);
+        recorded = true;
+        if (!transientError || !idempotent || retries >= MAX_RETRIES) {
+          RateLimitGovernor.update(conn);
+          NetworkMetrics.addRetries(conn, retries);
+          returned = true;
+          return conn;
+        }
+        ConnectionPool.releaseUnread(conn);
+      } catch (IOException e) {
+        ConnectionPool.discard(conn);
+
+        // Token refreshes go to another host, so they don't count against
+        // this one. Cancellations say nothing about the host and mustn't be
+        // retried.
+        boolean tokenError = e instanceof TokenRefreshException;
+        IOException cause = tokenError ? (IOException) e.getCause() : e;
+        if (isCancellation(cause)) {
+          throw cause;
+        }
+        if (!tokenError) {
+          CircuitBreaker.onResult(host, probe, false);
+          recorded = true;
+        }
+        if (!idempotent || retries >= MAX_RETRIES) {
+          throw cause;
+        }
+        Log.w(TAG, "retrying: " + cause.getMessage());
+      } finally {
+        // Finish timing connections that won't reach the caller's close.
+        if (!returned) {
+          NetworkMetrics.finish(conn);
+        }
+        if (probe && !recorded) {
+          CircuitBreaker.onAbort(host);
+        }
+      }
+      backOff(retries);
+    }
+  }
 
-    // Setup connection and write data making it a POST if necessary.
-    HttpURLConnection conn = authConnect(ctx, accountName, url);
-    if (!TextUtils.isEmpty(data)) {
-      writePostData(conn, data);
+  private static boolean isCancellation(IOException e) {
+    return e instanceof InterruptedIOException
+        && !(e instanceof SocketTimeoutException)
+        || Thread.currentThread().isInterrupted();
+  }
+
+  private static boolean isTransientError(int responseCode) {
+    return responseCode == 500
+        || responseCode == 502
+        || responseCode == 503
+        || responseCode == 504;
+  }
+
+  /**
+   * Sleeps for a random time up to an exponentially growing bound. Throws an
+   * InterruptedIOException if the thread is interrupted while sleeping.
+   */
+  private static void backOff(int retries) throws InterruptedIOException {
+    long maxBackoffMs = BASE_BACKOFF_MS << retries;
+    long backoffMs;
+    synchronized (RANDOM) {
+      backoffMs = (long) (RANDOM.nextDouble() * maxBackoffMs);
+    }
+    if (BuildConfig.DEBUG) {
+      Log.d(TAG, "backOff retries: " + retries + " ms: " + backoffMs);
     }
+    try {
+      Thread.sleep(backoffMs);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    }
+  }
 
-    // Connect. If unauthorized, try again to refresh credentials.
-    if (isUnauthorized(accountName, conn)) {
-      conn.disconnect();
-      updateToken(ctx, accountName);
+  private static HttpURLConnection newConnectionOnce(
+      Context ctx,
+      String accountName,
+      CharSequence url,
+      @Nullable CharSequence data,
+      @Nullable ValidatorCache.Entry validators)
+      throws AuthenticatorException, OperationCanceledException, IOException {
+    // Get an access token that has not expired.
+    String accessToken;
+    try {
+      accessToken = TokenManager.getAccessToken(ctx, accountName);
+    } catch (IOException e) {
+      throw new TokenRefreshException(e);
+    }
 
-      // Setup connection once more and rite data makig it a POST if necessary.
-      conn = authConnect(ctx, accountName, url);
+    // Setup connection and write data making it a POST if necessary.
+    HttpURLConnection conn = authConnect(url, accessToken);
+    try {
+      ValidatorCache.setRequestHeaders(conn, validators);
       if (!TextUtils.isEmpty(data)) {
         writePostData(conn, data);
       }
-    }
 
-    return conn;
-  }
+      // Connect. If unauthorized, try again to refresh credentials.
+      if (!isUnauthorized(accountName, conn)) {
+        return conn;
+      }
+    } catch (IOException e) {
+      NetworkMetrics.finish(conn);
+      ConnectionPool.discard(conn);
+      throw e;
+    }
 
-  private static void checkCredentials(Context ctx, String accountName)
-      throws AuthenticatorException, IOException, OperationCanceledException {
-    if (!AccountUtils.hasCredentials(ctx, accountName)) {
-      throw new AuthenticatorException("missing credentials");
+    ConnectionPool.releaseUnread(conn);
+    boolean refreshed = false;
+    try {
+      accessToken = TokenManager.refreshRejected(ctx, accountName,
+          accessToken);
+      refreshed = true;
+    } catch (IOException e) {
+      throw new TokenRefreshException(e);
+    } finally {
+      if (!refreshed) {
+        NetworkMetrics.finish(conn);
+      }
     }
 
-    if (AccountUtils.hasExpiredCredentials(ctx, accountName)) {
-      updateToken(ctx, accountName);
+    // Setup connection once more and write data making it a POST if necessary.
+    HttpURLConnection rejectedConn = conn;
+    conn = authConnect(url, accessToken);
+    NetworkMetrics.retry(rejectedConn, conn);
+    try {
+      ValidatorCache.setRequestHeaders(conn, validators);
+      if (!TextUtils.isEmpty(data)) {
+        writePostData(conn, data);
+      }
+    } catch (IOException e) {
+      NetworkMetrics.finish(conn);
+      ConnectionPool.discard(conn);
+      throw e;
     }
+    return conn;
   }
 
   private static HttpURLConnection authConnect(
-      Context ctx,
-      String accountName,
-      CharSequence url)
-      throws AuthenticatorException, IOException, OperationCanceledException {
-    HttpURLConnection conn =
-        (HttpURLConnection) Urls.newUrl(url).openConnection();
+      CharSequence url,
+      @Nullable String accessToken)
+      throws IOException {
+    HttpURLConnection conn = ConnectionPool.open(Urls.newUrl(url));
+    NetworkMetrics.start(conn);
     conn.setInstanceFollowRedirects(false);
     setCommonHeaders(conn);
-    setOAuthHeader(ctx, accountName, conn);
+    setOAuthHeader(conn, accessToken);
     return conn;
   }
 
   private static HttpURLConnection noAuthConnect(CharSequence url)
       throws IOException {
-    HttpURLConnection conn =
-        (HttpURLConnection) Urls.newUrl(url).openConnection();
+    HttpURLConnection conn = ConnectionPool.open(Urls.newUrl(url));
+    NetworkMetrics.start(conn);
     conn.setInstanceFollowRedirects(false);
     setCommonHeaders(conn);
     return conn;
@@ -379,18 +584,7 @@ public class RedditApi {
         && conn.getResponseCode() == HTTP_UNAUTHORIZED;
   }
 
-  private static void updateToken(Context ctx, String accountName)
-      throws AuthenticatorException, OperationCanceledException, IOException {
-    // TODO(btmura): put refresh token code in separate method
-    // TODO(btmura): handle empty refresh token
-    // TODO(btmura): validate access token result
-    String rt = AccountUtils.getRefreshToken(ctx, accountName);
-    AccessTokenResult atr = refreshToken(ctx, rt);
-    AccountUtils.updateAccount(ctx, accountName, atr.accessToken,
-        atr.expirationMs, atr.scope);
-  }
-
-  private static AccessTokenResult refreshToken(
+  static AccessTokenResult refreshToken(
       Context ctx,
       CharSequence refreshToken) throws IOException {
     return getToken(ctx, null, refreshToken);
@@ -403,7 +597,7 @@ public class RedditApi {
       throws IOException {
     long retrievalTimeMs = System.currentTimeMillis();
     HttpURLConnection conn = null;
-    JsonReader r = null;
+    Utf8JsonReader r = null;
     try {
       conn = noAuthConnect(Urls.accessToken());
       setBasicAuthHeader(ctx, conn);
@@ -420,7 +614,7 @@ public class RedditApi {
       }
       writePostData(conn, sb);
 
-      r = newJsonReader(conn.getInputStream());
+      r = newJsonReader(getInputStream(conn));
       return AccessTokenResult.getAccessToken(r, retrievalTimeMs);
     } finally {
       close(r, conn);
@@ -429,6 +623,7 @@ public class RedditApi {
 
   private static void setCommonHeaders(HttpURLConnection conn) {
     conn.setRequestProperty("Accept-Charset", CHARSET);
+    conn.setRequestProperty("Accept-Encoding", ContentEncoding.ACCEPT_ENCODING);
     conn.setRequestProperty("Content-Type", CONTENT_TYPE);
     conn.setRequestProperty("User-Agent", USER_AGENT);
   }
@@ -446,14 +641,10 @@ public class RedditApi {
   }
 
   private static void setOAuthHeader(
-      Context ctx,
-      String accountName,
-      HttpURLConnection conn)
-      throws AuthenticatorException, OperationCanceledException, IOException {
-    if (AccountUtils.isAccount(accountName)) {
-      String at = AccountUtils.getAccessToken(ctx, accountName);
-      // TODO(btmura): handle empty access token
-      conn.setRequestProperty("Authorization", "bearer " + at);
+      HttpURLConnection conn,
+      @Nullable String accessToken) {
+    if (accessToken != null) {
+      conn.setRequestProperty("Authorization", "bearer " + accessToken);
     }
   }
 
@@ -473,8 +664,50 @@ public class RedditApi {
     }
   }
 
-  protected static JsonReader newJsonReader(InputStream in) {
-    return new JsonReader(new InputStreamReader(new BufferedInputStream(in)));
+  /** Returns the response body decoded according to its content encoding. */
+  public static InputStream getInputStream(HttpURLConnection conn)
+      throws IOException {
+    return ContentEncoding.getInputStream(conn);
+  }
+
+  private static byte[] getBytes(
+      Context ctx,
+      String accountName,
+      CharSequence url)
+      throws AuthenticatorException, OperationCanceledException, IOException {
+    HttpURLConnection conn = null;
+    InputStream in = null;
+    try {
+      conn = connect(ctx, accountName, url);
+      in = getInputStream(conn);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      for (int read; (read = in.read(buffer)) != -1; ) {
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    } finally {
+      close(in, conn);
+    }
+  }
+
+  private static String getParseResult(Future<String> parse)
+      throws IOException {
+    try {
+      return parse.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  protected static Utf8JsonReader newJsonReader(InputStream in) {
+    return new Utf8JsonReader(in);
   }
 
   private static InputStream logResponse(InputStream is) throws IOException {
@@ -502,12 +735,24 @@ public class RedditApi {
     return new BufferedInputStream(new ByteArrayInputStream(os.toByteArray()));
   }
 
-  private static void close(
+  /**
+   * Closes the response stream and releases the connection back to the
+   * {@link ConnectionPool} rather than disconnecting it. Without a stream,
+   * the unread body of a response that only had its status checked, like a
+   * redirect or 304, is drained, while a connection that never got a response
+   * is disconnected.
+   */
+  public static void close(
       @Nullable Closeable cs,
       @Nullable HttpURLConnection conn) {
     close(cs);
-    if (conn != null) {
-      conn.disconnect();
+    int status = NetworkMetrics.finish(conn);
+    if (cs != null) {
+      ConnectionPool.release(conn);
+    } else if (status != -1) {
+      ConnectionPool.releaseUnread(conn);
+    } else {
+      ConnectionPool.discard(conn);
     }
   }
 
@@ -521,6 +766,13 @@ public class RedditApi {
     }
   }
 
+  /** Wraps an IOException thrown while getting a fresh access token. */
+  private static class TokenRefreshException extends IOException {
+    TokenRefreshException(IOException cause) {
+      super(cause);
+    }
+  }
+
   private RedditApi() {
   }
 }
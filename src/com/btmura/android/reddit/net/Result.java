@@ -17,13 +17,13 @@
 package com.btmura.android.reddit.net;
 
 import android.content.Context;
-import android.util.JsonReader;
 import android.util.JsonToken;
 import android.util.Log;
 
 import com.btmura.android.reddit.R;
 import com.btmura.android.reddit.util.Array;
 import com.btmura.android.reddit.util.JsonParser;
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
 import java.io.IOException;
 
@@ -137,7 +137,7 @@ public class Result extends JsonParser {
     }
   }
 
-  static Result getResult(JsonReader reader) throws IOException {
+  static Result getResult(Utf8JsonReader reader) throws IOException {
     Result result = new Result();
     try {
       reader.beginObject();
@@ -156,7 +156,7 @@ public class Result extends JsonParser {
     return result;
   }
 
-  private static void parseJson(JsonReader reader, Result result)
+  private static void parseJson(Utf8JsonReader reader, Result result)
       throws IOException {
     reader.beginObject();
     while (reader.hasNext()) {
@@ -176,7 +176,7 @@ public class Result extends JsonParser {
     reader.endObject();
   }
 
-  private static String[][] parseErrorsArray(JsonReader reader)
+  private static String[][] parseErrorsArray(Utf8JsonReader reader)
       throws IOException {
     String[][] errors = null;
     reader.beginArray();
@@ -193,7 +193,7 @@ public class Result extends JsonParser {
     return errors;
   }
 
-  private static String[] parseSingleErrorArray(JsonReader reader)
+  private static String[] parseSingleErrorArray(Utf8JsonReader reader)
       throws IOException {
     // There should only be 3 elements per error but permit expansion.
     // Some parts of the array can be null.
@@ -211,7 +211,7 @@ public class Result extends JsonParser {
     return error;
   }
 
-  private static void parseData(JsonReader reader, Result result)
+  private static void parseData(Utf8JsonReader reader, Result result)
       throws IOException {
     reader.beginObject();
     while (reader.hasNext()) {
@@ -19,15 +19,18 @@ package com.btmura.android.reddit.net;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.text.TextUtils;
-import android.util.JsonReader;
 
 import com.btmura.android.reddit.text.MarkdownFormatter;
 import com.btmura.android.reddit.util.JsonParser;
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
 import java.io.IOException;
 
 public class SidebarResult extends JsonParser {
 
+  private static final boolean[] PARSED_FIELDS = newParsedFields(
+      "description", "display_name", "header_img", "subscribers", "title");
+
   public String subreddit;
   public String headerImage;
   public CharSequence title;
@@ -38,13 +41,18 @@ public class SidebarResult extends JsonParser {
   private final MarkdownFormatter formatter = new MarkdownFormatter();
   private final Context ctx;
 
-  static SidebarResult getSidebar(Context ctx, JsonReader r)
+  static SidebarResult getSidebar(Context ctx, Utf8JsonReader r)
       throws IOException {
     SidebarResult result = new SidebarResult(ctx);
     result.parseEntity(r);
-    if (!TextUtils.isEmpty(result.headerImage)) {
-      result.headerImageBitmap = RedditApi.getBitmap(result.headerImage);
-    }
+    result.loadHeaderImageBitmap();
+    return result;
+  }
+
+  /** Returns a new result from a cached one when the sidebar is unchanged. */
+  static SidebarResult getSidebar(SidebarResult cached) throws IOException {
+    SidebarResult result = cached.copyWithoutBitmap();
+    result.loadHeaderImageBitmap();
     return result;
   }
 
@@ -52,6 +60,23 @@ public class SidebarResult extends JsonParser {
     this.ctx = ctx.getApplicationContext();
   }
 
+  /** Returns a copy of the parsed fields that doesn't share the bitmap. */
+  SidebarResult copyWithoutBitmap() {
+    SidebarResult copy = new SidebarResult(ctx);
+    copy.subreddit = subreddit;
+    copy.headerImage = headerImage;
+    copy.title = title;
+    copy.description = description;
+    copy.subscribers = subscribers;
+    return copy;
+  }
+
+  private void loadHeaderImageBitmap() throws IOException {
+    if (!TextUtils.isEmpty(headerImage)) {
+      headerImageBitmap = RedditApi.getBitmap(headerImage);
+    }
+  }
+
   public void recycle() {
     if (headerImageBitmap != null) {
       headerImageBitmap.recycle();
@@ -60,27 +85,32 @@ public class SidebarResult extends JsonParser {
   }
 
   @Override
-  public void onDisplayName(JsonReader r, int i) throws IOException {
+  protected boolean[] getParsedFields() {
+    return PARSED_FIELDS;
+  }
+
+  @Override
+  public void onDisplayName(Utf8JsonReader r, int i) throws IOException {
     subreddit = readString(r, "");
   }
 
   @Override
-  public void onHeaderImage(JsonReader r, int i) throws IOException {
+  public void onHeaderImage(Utf8JsonReader r, int i) throws IOException {
     headerImage = readString(r, "");
   }
 
   @Override
-  public void onTitle(JsonReader r, int i) throws IOException {
+  public void onTitle(Utf8JsonReader r, int i) throws IOException {
     title = formatter.formatNoSpans(readString(r, ""));
   }
 
   @Override
-  public void onDescription(JsonReader r, int i) throws IOException {
+  public void onDescription(Utf8JsonReader r, int i) throws IOException {
     description = formatter.formatAll(ctx, readString(r, ""));
   }
 
   @Override
-  public void onSubscribers(JsonReader r, int i) throws IOException {
+  public void onSubscribers(Utf8JsonReader r, int i) throws IOException {
     subscribers = readInt(r, 0);
   }
 }
\ No newline at end of file
@@ -18,22 +18,24 @@ package com.btmura.android.reddit.net;
 
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
-import android.util.JsonReader;
 
 import com.btmura.android.reddit.util.JsonParser;
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
 import java.io.IOException;
-import java.text.Collator;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.TreeSet;
 
 public class SubredditResult extends JsonParser {
 
-  public final Set<String> subreddits =
-      new TreeSet<String>(Collator.getInstance());
+  private static final byte[] AFTER_KEY = {
+      '"', 'a', 'f', 't', 'e', 'r', '"',
+  };
+
+  public final Set<String> subreddits = new HashSet<String>();
   @Nullable String after;
 
-  static SubredditResult getSubreddits(SubredditResult sr, JsonReader r)
+  static SubredditResult getSubreddits(SubredditResult sr, Utf8JsonReader r)
       throws IOException {
     if (sr == null) {
       sr = new SubredditResult();
@@ -49,7 +51,7 @@ public class SubredditResult extends JsonParser {
   }
 
   @Override
-  public void onDisplayName(JsonReader r, int i) throws IOException {
+  public void onDisplayName(Utf8JsonReader r, int i) throws IOException {
     String subreddit = readString(r, "");
     if (!TextUtils.isEmpty(subreddit)) {
       this.subreddits.add(subreddit);
@@ -57,10 +59,58 @@ public class SubredditResult extends JsonParser {
   }
 
   @Override
-  public void onAfter(JsonReader r) throws IOException {
+  public void onAfter(Utf8JsonReader r) throws IOException {
     String after = readString(r, "");
     if (!TextUtils.isEmpty(after)) {
       this.after = after;
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * Returns the after cursor of a raw listing page without parsing it, so that
+   * the next page can be requested while this one is parsed. Returns null if
+   * there is no cursor or if it can't be found cheaply, in which case the
+   * caller must wait for {@link #after} from the parser.
+   */
+  @Nullable
+  static String scanAfter(byte[] page) {
+    outer:
+    for (int i = 0; i <= page.length - AFTER_KEY.length; i++) {
+      for (int j = 0; j < AFTER_KEY.length; j++) {
+        if (page[i + j] != AFTER_KEY[j]) {
+          continue outer;
+        }
+      }
+
+      // Make sure it is a key and not the same text within a value.
+      int k = skipWhitespace(page, i + AFTER_KEY.length);
+      if (k >= page.length || page[k] != ':') {
+        continue;
+      }
+      k = skipWhitespace(page, k + 1);
+      if (k >= page.length || page[k] != '"') {
+        return null;
+      }
+
+      // Cursors are plain ASCII fullnames, so give up on anything else.
+      StringBuilder sb = new StringBuilder();
+      for (k++; k < page.length && page[k] != '"'; k++) {
+        if (page[k] < 0 || page[k] == '\\') {
+          return null;
+        }
+        sb.append((char) page[k]);
+      }
+      return k < page.length && sb.length() > 0 ? sb.toString() : null;
+    }
+    return null;
+  }
+
+  private static int skipWhitespace(byte[] page, int i) {
+    while (i < page.length
+        && (page[i] == ' ' || page[i] == '\n' || page[i] == '\r'
+        || page[i] == '\t')) {
+      i++;
+    }
+    return i;
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import android.accounts.AuthenticatorException;
+import android.accounts.OperationCanceledException;
+import android.content.Context;
+import android.os.AsyncTask;
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.btmura.android.reddit.BuildConfig;
+import com.btmura.android.reddit.accounts.AccountUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TokenManager} hands out access tokens for {@link RedditApi} and
+ * refreshes them at most once per account at a time. Threads that find the
+ * token expired or rejected while another thread is refreshing it wait for
+ * and use that refresh instead of making their own round trip.
+ *
+ * Tokens that are about to expire are renewed in the background, so that
+ * the first request after expiration doesn't have to block on a refresh.
+ */
+class TokenManager {
+
+  private static final String TAG = "TokenManager";
+
+  /** Duration before expiration in which tokens are renewed proactively. */
+  private static final long RENEWAL_WINDOW_MS = TimeUnit.MINUTES.toMillis(5);
+
+  /** Map from account name to the lock held while refreshing its token. */
+  private static final HashMap<String, Object> LOCKS =
+      new HashMap<String, Object>();
+
+  /** Accounts whose tokens are being renewed in the background. */
+  private static final HashSet<String> RENEWING = new HashSet<String>();
+
+  /**
+   * Returns the account's access token after making sure it has not expired.
+   * Returns null if there is no account.
+   */
+  @Nullable
+  static String getAccessToken(final Context ctx, final String accountName)
+      throws AuthenticatorException, OperationCanceledException, IOException {
+    if (!AccountUtils.isAccount(accountName)) {
+      return null;
+    }
+    if (!AccountUtils.hasCredentials(ctx, accountName)) {
+      throw new AuthenticatorException("missing credentials");
+    }
+
+    long expirationMs = AccountUtils.getExpirationMs(ctx, accountName);
+    long now = System.currentTimeMillis();
+    if (now >= expirationMs) {
+      refreshExpired(ctx, accountName, expirationMs);
+    } else if (now >= expirationMs - RENEWAL_WINDOW_MS) {
+      renewInBackground(ctx, accountName, expirationMs);
+    }
+    return AccountUtils.getAccessToken(ctx, accountName);
+  }
+
+  /**
+   * Refreshes the account's access token after the server rejected it and
+   * returns the new one. If another thread already replaced the rejected
+   * token, then that token is returned without another refresh.
+   */
+  static String refreshRejected(
+      Context ctx,
+      String accountName,
+      @Nullable String rejectedToken)
+      throws AuthenticatorException, OperationCanceledException, IOException {
+    synchronized (getLock(accountName)) {
+      String accessToken = AccountUtils.getAccessToken(ctx, accountName);
+      if (accessToken != null && !accessToken.equals(rejectedToken)) {
+        if (BuildConfig.DEBUG) {
+          Log.d(TAG, "already refreshed: " + accountName);
+        }
+        return accessToken;
+      }
+      return refresh(ctx, accountName);
+    }
+  }
+
+  private static void refreshExpired(
+      Context ctx,
+      String accountName,
+      long expirationMs)
+      throws AuthenticatorException, OperationCanceledException, IOException {
+    synchronized (getLock(accountName)) {
+      // Another thread may have refreshed the token while we waited.
+      if (AccountUtils.getExpirationMs(ctx, accountName) != expirationMs) {
+        if (BuildConfig.DEBUG) {
+          Log.d(TAG, "already refreshed: " + accountName);
+        }
+        return;
+      }
+      refresh(ctx, accountName);
+    }
+  }
+
+  private static void renewInBackground(
+      final Context ctx,
+      final String accountName,
+      final long expirationMs) {
+    synchronized (RENEWING) {
+      if (!RENEWING.add(accountName)) {
+        return;
+      }
+    }
+    if (BuildConfig.DEBUG) {
+      Log.d(TAG, "renewing: " + accountName);
+    }
+    AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          refreshExpired(ctx, accountName, expirationMs);
+        } catch (AuthenticatorException e) {
+          Log.e(TAG, e.getMessage(), e);
+        } catch (OperationCanceledException e) {
+          Log.e(TAG, e.getMessage(), e);
+        } catch (IOException e) {
+          Log.e(TAG, e.getMessage(), e);
+        } finally {
+          synchronized (RENEWING) {
+            RENEWING.remove(accountName);
+          }
+        }
+      }
+    });
+  }
+
+  private static String refresh(Context ctx, String accountName)
+      throws AuthenticatorException, OperationCanceledException, IOException {
+    if (BuildConfig.DEBUG) {
+      Log.d(TAG, "refreshing: " + accountName);
+    }
+    String rt = AccountUtils.getRefreshToken(ctx, accountName);
+    if (TextUtils.isEmpty(rt)) {
+      throw new AuthenticatorException("missing refresh token");
+    }
+    AccessTokenResult atr = RedditApi.refreshToken(ctx, rt);
+    if (TextUtils.isEmpty(atr.accessToken)) {
+      throw new AuthenticatorException("missing access token");
+    }
+    AccountUtils.updateAccount(ctx, accountName, atr.accessToken,
+        atr.expirationMs, atr.scope);
+    return atr.accessToken;
+  }
+
+  private static Object getLock(String accountName) {
+    synchronized (LOCKS) {
+      Object lock = LOCKS.get(accountName);
+      if (lock == null) {
+        lock = new Object();
+        LOCKS.put(accountName, lock);
+      }
+      return lock;
+    }
+  }
+
+  private TokenManager() {
+  }
+}
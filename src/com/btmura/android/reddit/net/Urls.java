@@ -36,6 +36,9 @@ public class Urls {
 
   public static final String OAUTH_REDIRECT_URL = "rbb://oauth/";
 
+  /** Number of subreddits asked for in each page of the user's subreddits. */
+  static final int MY_SUBREDDITS_LIMIT = 100;
+
   public static final String WWW_REDDIT_COM = "https://www.reddit.com";
   private static final String OAUTH_REDDIT_COM = "https://oauth.reddit.com";
 
@@ -49,7 +52,8 @@ public class Urls {
   private static final String HIDE_URL = OAUTH_REDDIT_COM + "/api/hide";
   private static final String ME_URL = OAUTH_REDDIT_COM + "/api/v1/me";
   private static final String MY_SUBREDDITS_URL =
-      OAUTH_REDDIT_COM + "/subreddits/mine/subscriber?limit=100";
+      OAUTH_REDDIT_COM + "/subreddits/mine/subscriber?limit="
+          + MY_SUBREDDITS_LIMIT;
   private static final String READ_MESSAGE =
       OAUTH_REDDIT_COM + "/api/read_message";
   private static final String SAVE_URL = OAUTH_REDDIT_COM + "/api/save";
@@ -82,6 +86,9 @@ public class Urls {
   private static final int FORMAT_HTML = 0;
   private static final int FORMAT_JSON = 1;
 
+  /** Parameter to get text without reddit escaping &, < and > for HTML. */
+  private static final String RAW_JSON = "raw_json=1";
+
   public static CharSequence accessToken() {
     return ACCESS_TOKEN_URL;
   }
@@ -111,7 +118,8 @@ public class Urls {
     }
 
     return sb.append("?id=")
-        .append(ThingIds.addTag(thingId, Kinds.getTag(Kinds.KIND_LINK)));
+        .append(ThingIds.addTag(thingId, Kinds.getTag(Kinds.KIND_LINK)))
+        .append('&').append(RAW_JSON);
   }
 
   public static CharSequence mySubreddits(@Nullable String after, int count) {
@@ -131,13 +139,23 @@ public class Urls {
       int filter,
       @Nullable String more,
       int count) {
-    return innerSubreddit(accountName, subreddit, filter, more, count,
+    return subreddit(accountName, subreddit, filter, more, count, NO_LIMIT);
+  }
+
+  public static CharSequence subreddit(
+      String accountName,
+      String subreddit,
+      int filter,
+      @Nullable String more,
+      int count,
+      int limit) {
+    return innerSubreddit(accountName, subreddit, filter, more, count, limit,
         FORMAT_JSON);
   }
 
   public static CharSequence subredditLink(String subreddit) {
     return innerSubreddit(NO_ACCOUNT, subreddit, NO_FILTER, NO_MORE, NO_COUNT,
-        FORMAT_HTML);
+        NO_LIMIT, FORMAT_HTML);
   }
 
   private static CharSequence innerSubreddit(
@@ -146,6 +164,7 @@ public class Urls {
       int filter,
       @Nullable String more,
       int count,
+      int limit,
       int format) {
     StringBuilder sb = new StringBuilder(getBaseUrl(accountName));
 
@@ -181,18 +200,26 @@ public class Urls {
       sb.append(".json");
     }
 
+    boolean appendRawJson = format == FORMAT_JSON;
     boolean appendMore = more != null;
     boolean appendCount = count > 0;
+    boolean appendLimit = limit != NO_LIMIT;
 
-    if (appendMore || appendCount) {
+    if (appendRawJson || appendMore || appendCount || appendLimit) {
       sb.append('?');
     }
+    if (appendRawJson) {
+      sb.append(RAW_JSON);
+    }
     if (appendMore) {
       sb.append("&after=").append(encode(more));
     }
     if (appendCount) {
       sb.append("&count=").append(count);
     }
+    if (appendLimit) {
+      sb.append("&limit=").append(limit);
+    }
     return sb;
   }
 
@@ -229,13 +256,18 @@ public class Urls {
       sb.append(".json");
     }
 
+    boolean hasRawJson = format == FORMAT_JSON;
     boolean hasFilter = filter != NO_FILTER;
     boolean hasLimit = limit != NO_LIMIT;
 
-    if (hasLinkId || hasFilter || hasLimit) {
+    if (hasRawJson || hasLinkId || hasFilter || hasLimit) {
       sb.append('?');
     }
 
+    if (hasRawJson) {
+      sb.append(RAW_JSON);
+    }
+
     if (hasLinkId) {
       sb.append("&comment=").append(encode(thingId)).append("&context=3");
     } else if (hasFilter) {
@@ -329,6 +361,16 @@ public class Urls {
       int filter,
       @Nullable String more,
       int count) {
+    return profile(accountName, user, filter, more, count, NO_LIMIT);
+  }
+
+  public static CharSequence profile(
+      String accountName,
+      String user,
+      int filter,
+      @Nullable String more,
+      int count,
+      int limit) {
     StringBuilder sb = new StringBuilder(getBaseUrl(accountName))
         .append(USER_PATH)
         .append(encode(user));
@@ -365,18 +407,16 @@ public class Urls {
       sb.append(".json");
     }
 
-    boolean appendMore = more != null;
-    boolean appendCount = count > 0;
-
-    if (appendMore || appendCount) {
-      sb.append('?');
-    }
-    if (appendMore) {
+    sb.append('?').append(RAW_JSON);
+    if (more != null) {
       sb.append("&after=").append(encode(more));
     }
-    if (appendCount) {
+    if (count > 0) {
       sb.append("&count=").append(count);
     }
+    if (limit != NO_LIMIT) {
+      sb.append("&limit=").append(limit);
+    }
     return sb;
   }
 
@@ -405,15 +445,27 @@ public class Urls {
       int filter,
       @Nullable String more,
       int count) {
+    return search(accountName, subreddit, query, filter, more, count,
+        NO_LIMIT);
+  }
+
+  public static CharSequence search(
+      String accountName,
+      @Nullable String subreddit,
+      String query,
+      int filter,
+      @Nullable String more,
+      int count,
+      int limit) {
     return innerSearch(accountName, subreddit, false, query, filter, more,
-        count);
+        count, limit);
   }
 
   public static CharSequence subredditSearch(
       String accountName,
       String query) {
     return innerSearch(accountName, NO_SUBREDDIT, true, query, NO_FILTER,
-        NO_MORE, NO_COUNT);
+        NO_MORE, NO_COUNT, NO_LIMIT);
   }
 
   private static CharSequence innerSearch(
@@ -423,7 +475,8 @@ public class Urls {
       String query,
       int filter,
       @Nullable String more,
-      int count) {
+      int count,
+      int limit) {
     StringBuilder sb = new StringBuilder(getBaseUrl(accountName));
 
     if (subredditSearch) {
@@ -465,10 +518,13 @@ public class Urls {
     if (more != null) {
       sb.append("&after=").append(encode(more));
     }
+    if (limit != NO_LIMIT) {
+      sb.append("&limit=").append(limit);
+    }
     if (!TextUtils.isEmpty(subreddit)) {
       sb.append("&restrict_sr=on");
     }
-    return sb;
+    return sb.append('&').append(RAW_JSON);
   }
 
   public static CharSequence sidebar(
@@ -552,6 +608,10 @@ public class Urls {
     return thingQuery(thingId);
   }
 
+  public static CharSequence hideQuery(String[] thingIds) {
+    return thingsQuery(thingIds);
+  }
+
   public static CharSequence readMessage(boolean read) {
     return read ? READ_MESSAGE : UNREAD_MESSAGE;
   }
@@ -560,6 +620,10 @@ public class Urls {
     return thingQuery(thingId);
   }
 
+  public static CharSequence readMessageQuery(String[] thingIds) {
+    return thingsQuery(thingIds);
+  }
+
   public static CharSequence save(boolean save) {
     return save ? SAVE_URL : UNSAVE_URL;
   }
@@ -644,6 +708,17 @@ public class Urls {
     return new StringBuilder("id=").append(encode(thingId));
   }
 
+  private static CharSequence thingsQuery(String[] thingIds) {
+    StringBuilder sb = new StringBuilder("id=");
+    for (int i = 0; i < thingIds.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(encode(thingIds[i]));
+    }
+    return sb;
+  }
+
   private static CharSequence thingTextQuery(String thingId, String text) {
     return new StringBuilder()
         .append("thing_id=").append(encode(thingId))
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * {@link ValidatorCache} remembers the ETag and Last-Modified validators of
+ * responses along with whatever was made from them, so that the next request
+ * for the same URL can be conditional. When reddit answers 304 Not Modified,
+ * callers reuse the remembered value instead of downloading and parsing the
+ * body again.
+ */
+public class ValidatorCache {
+
+  private static final int MAX_ENTRIES = 32;
+
+  private static final int HTTP_NOT_MODIFIED = 304;
+
+  private static final LruCache<String, Entry> CACHE =
+      new LruCache<String, Entry>(MAX_ENTRIES);
+
+  /** Validators of a response and the value that was made from it. */
+  public static class Entry {
+
+    final String etag;
+    final String lastModified;
+
+    /** Value like a session id or parsed result made from the response. */
+    public final Object value;
+
+    Entry(String etag, String lastModified, Object value) {
+      this.etag = etag;
+      this.lastModified = lastModified;
+      this.value = value;
+    }
+
+    /** Returns a new entry with the same validators but a different value. */
+    public Entry withValue(Object value) {
+      return new Entry(etag, lastModified, value);
+    }
+  }
+
+  /** Returns the entry for the account's URL or null if there is none. */
+  @Nullable
+  public static Entry get(String accountName, CharSequence url) {
+    return CACHE.get(getKey(accountName, url));
+  }
+
+  /** Puts the entry for the account's URL if the entry is not null. */
+  public static void put(
+      String accountName,
+      CharSequence url,
+      @Nullable Entry entry) {
+    if (entry != null) {
+      CACHE.put(getKey(accountName, url), entry);
+    }
+  }
+
+  /** Removes the entry for the account's URL. */
+  public static void remove(String accountName, CharSequence url) {
+    CACHE.remove(getKey(accountName, url));
+  }
+
+  /**
+   * Returns a new entry with the connection's validators and the given value
+   * or null if the response had no validators.
+   */
+  @Nullable
+  public static Entry newEntry(HttpURLConnection conn, Object value) {
+    String etag = conn.getHeaderField("ETag");
+    String lastModified = conn.getHeaderField("Last-Modified");
+    if (TextUtils.isEmpty(etag) && TextUtils.isEmpty(lastModified)) {
+      return null;
+    }
+    return new Entry(etag, lastModified, value);
+  }
+
+  /** Returns true if the conditional request's response was not modified. */
+  public static boolean isNotModified(
+      HttpURLConnection conn,
+      @Nullable Entry entry) throws IOException {
+    return entry != null && conn.getResponseCode() == HTTP_NOT_MODIFIED;
+  }
+
+  static void setRequestHeaders(
+      HttpURLConnection conn,
+      @Nullable Entry entry) {
+    if (entry != null) {
+      if (!TextUtils.isEmpty(entry.etag)) {
+        conn.setRequestProperty("If-None-Match", entry.etag);
+      }
+      if (!TextUtils.isEmpty(entry.lastModified)) {
+        conn.setRequestProperty("If-Modified-Since", entry.lastModified);
+      }
+    }
+  }
+
+  private static String getKey(String accountName, CharSequence url) {
+    return accountName + " " + url;
+  }
+
+  private ValidatorCache() {
+  }
+}
@@ -240,6 +240,7 @@ public class AccountProvider extends BaseProvider {
       if (!am.removeAccount(account, null, null).getResult()) {
         return null;
       }
+      AccountUtils.invalidateCredentials(accountName);
     } catch (OperationCanceledException e) {
       Log.e(TAG, e.getMessage(), e);
       return null;
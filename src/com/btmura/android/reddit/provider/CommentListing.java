@@ -18,13 +18,11 @@ package com.btmura.android.reddit.provider;
 
 import android.accounts.AuthenticatorException;
 import android.accounts.OperationCanceledException;
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.text.TextUtils;
-import android.util.JsonReader;
 
 import com.btmura.android.reddit.app.CommentLogic;
 import com.btmura.android.reddit.app.CommentLogic.CommentList;
@@ -32,18 +30,17 @@ import com.btmura.android.reddit.database.CommentActions;
 import com.btmura.android.reddit.database.Comments;
 import com.btmura.android.reddit.database.Kinds;
 import com.btmura.android.reddit.database.Sessions;
+import com.btmura.android.reddit.net.PageSizePolicy;
 import com.btmura.android.reddit.net.RedditApi;
 import com.btmura.android.reddit.net.Urls;
-import com.btmura.android.reddit.text.MarkdownFormatter;
+import com.btmura.android.reddit.net.ValidatorCache;
 import com.btmura.android.reddit.util.Array;
 import com.btmura.android.reddit.util.JsonParser;
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -51,6 +48,46 @@ class CommentListing extends JsonParser implements Listing, CommentList {
 
   public static final String TAG = "CommentListing";
 
+  private static final boolean[] PARSED_FIELDS = newParsedFields(
+      "author", "body", "created_utc", "domain", "downs", "hidden", "is_self",
+      "likes", "name", "num_comments", "over_18", "permalink", "replies",
+      "saved", "score", "selftext", "subreddit", "thumbnail", "title", "ups",
+      "url");
+
+  private static final RowBuffer.Schema SCHEMA = new RowBuffer.Schema(
+      new String[] {
+          Comments.COLUMN_COMMENT_ACTION_ID,
+          Comments.COLUMN_CREATED_UTC,
+          Comments.COLUMN_DOWNS,
+          Comments.COLUMN_HIDDEN,
+          Comments.COLUMN_KIND,
+          Comments.COLUMN_LIKES,
+          Comments.COLUMN_NESTING,
+          Comments.COLUMN_NUM_COMMENTS,
+          Comments.COLUMN_OVER_18,
+          Comments.COLUMN_SAVED,
+          Comments.COLUMN_SCORE,
+          Comments.COLUMN_SELF,
+          Comments.COLUMN_SEQUENCE,
+          Comments.COLUMN_SESSION_ID,
+          Comments.COLUMN_UPS,
+      },
+      new String[] {
+          Comments.COLUMN_ACCOUNT,
+          Comments.COLUMN_AUTHOR,
+          Comments.COLUMN_BODY,
+          Comments.COLUMN_DOMAIN,
+          Comments.COLUMN_PERMA_LINK,
+          Comments.COLUMN_SUBREDDIT,
+          Comments.COLUMN_THING_ID,
+          Comments.COLUMN_THUMBNAIL_URL,
+          Comments.COLUMN_TITLE,
+          Comments.COLUMN_URL,
+      },
+      new String[] {
+          Comments.COLUMN_BODY_SPANS,
+      });
+
   private static final String[] PROJECTION = {
       CommentActions._ID,
       CommentActions.COLUMN_ACCOUNT,
@@ -72,13 +109,16 @@ class CommentListing extends JsonParser implements Listing, CommentList {
   private final String linkId;
   private final int filter;
   private final int limit;
-  private final MarkdownFormatter formatter = new MarkdownFormatter();
+  private final FormatPipeline formats;
 
   // TODO: Pass estimate of size to CommentListing rather than doing this.
-  private final ArrayList<ContentValues> values = new ArrayList<ContentValues>(360);
-  private final HashMap<String, ContentValues> valueMap = new HashMap<String, ContentValues>();
+  private final RowBuffer values = new RowBuffer(SCHEMA, 360);
+  private final HashMap<String, Integer> rowMap =
+      new HashMap<String, Integer>();
   private Map<String, Integer> saveActionMap;
   private Map<String, Integer> voteActionMap;
+  private ValidatorCache.Entry validators;
+  private long currentSessionId;
 
   static CommentListing newInstance(
       Context ctx,
@@ -112,7 +152,10 @@ class CommentListing extends JsonParser implements Listing, CommentList {
     this.thingId = thingId;
     this.linkId = linkId;
     this.filter = filter;
-    this.limit = limit;
+    this.limit = limit != Urls.NO_LIMIT
+        ? limit
+        : PageSizePolicy.getCommentLimit();
+    this.formats = new FormatPipeline(ctx);
   }
 
   @Override
@@ -126,32 +169,36 @@ class CommentListing extends JsonParser implements Listing, CommentList {
   }
 
   @Override
-  public ArrayList<ContentValues> getValues()
+  public RowBuffer getValues()
       throws AuthenticatorException, OperationCanceledException, IOException {
-    CharSequence url = Urls.comments(
-        accountName,
-        thingId,
-        linkId,
-        filter,
-        limit);
-    HttpURLConnection conn = RedditApi.connect(ctx, accountName, url);
+    CharSequence url = getUrl();
+    ValidatorCache.Entry cached =
+        SessionValidators.get(dbHelper, accountName, url);
+    HttpURLConnection conn = RedditApi.connect(ctx, accountName, url, cached);
     InputStream input = null;
     try {
-      input = new BufferedInputStream(conn.getInputStream());
+      if (ValidatorCache.isNotModified(conn, cached)) {
+        currentSessionId = SessionValidators.getSessionId(cached);
+        return values;
+      }
+      validators = ValidatorCache.newEntry(conn, null);
+
+      input = RedditApi.getInputStream(conn);
       saveActionMap = SaveMerger.getActionMap(dbHelper, accountName);
       voteActionMap = VoteMerger.getActionMap(dbHelper, accountName);
 
-      JsonReader reader = new JsonReader(new InputStreamReader(input));
+      Utf8JsonReader reader = new Utf8JsonReader(input);
       parseListingArray(reader);
       return values;
     } finally {
-      if (input != null) {
-        input.close();
-      }
-      conn.disconnect();
+      RedditApi.close(input, conn);
     }
   }
 
+  private CharSequence getUrl() {
+    return Urls.comments(accountName, thingId, linkId, filter, limit);
+  }
+
   @Override
   public String getTargetTable() {
     return Comments.TABLE_NAME;
@@ -162,6 +209,21 @@ class CommentListing extends JsonParser implements Listing, CommentList {
     return false;
   }
 
+  @Override
+  public long getCurrentSessionId() {
+    return currentSessionId;
+  }
+
+  @Override
+  public void onValuesInserted(long sessionId) {
+    SessionValidators.put(accountName, getUrl(), validators, sessionId);
+  }
+
+  @Override
+  protected boolean[] getParsedFields() {
+    return PARSED_FIELDS;
+  }
+
   @Override
   public boolean shouldParseReplies() {
     return true;
@@ -169,136 +231,135 @@ class CommentListing extends JsonParser implements Listing, CommentList {
 
   @Override
   public void onEntityStart(int i) {
-    ContentValues v = new ContentValues(20);
-    v.put(Comments.COLUMN_ACCOUNT, accountName);
-    values.add(v);
+    values.put(values.addRow(), Comments.COLUMN_ACCOUNT, accountName);
   }
 
   @Override
-  public void onAuthor(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_AUTHOR, readString(r, ""));
+  public void onAuthor(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_AUTHOR, readInternedString(r, ""));
   }
 
   @Override
-  public void onBody(JsonReader r, int i) throws IOException {
-    CharSequence body = formatter.formatNoSpans(readString(r, ""));
-    values.get(i).put(Comments.COLUMN_BODY, body.toString());
+  public void onBody(Utf8JsonReader r, int i) throws IOException {
+    formats.format(i, Comments.COLUMN_BODY, Comments.COLUMN_BODY_SPANS,
+        readString(r, ""));
   }
 
   @Override
-  public void onCreatedUtc(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_CREATED_UTC, readLong(r, 0));
+  public void onCreatedUtc(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_CREATED_UTC, readLong(r, 0));
   }
 
   @Override
-  public void onDomain(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_DOMAIN, readString(r, ""));
+  public void onDomain(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_DOMAIN, readInternedString(r, ""));
   }
 
   @Override
-  public void onDowns(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_DOWNS, readInt(r, 0));
+  public void onDowns(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_DOWNS, readInt(r, 0));
   }
 
   @Override
-  public void onHidden(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_HIDDEN, readBoolean(r, false));
+  public void onHidden(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_HIDDEN, readBoolean(r, false));
   }
 
   @Override
-  public void onIsSelf(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_SELF, readBoolean(r, false));
+  public void onIsSelf(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_SELF, readBoolean(r, false));
   }
 
   @Override
-  public void onKind(JsonReader r, int i) throws IOException {
-    ContentValues v = values.get(i);
-    v.put(Comments.COLUMN_NESTING, replyNesting);
-    v.put(Comments.COLUMN_KIND, Kinds.parseKind(readString(r, "")));
+  public void onKind(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_NESTING, replyNesting);
+    values.put(i, Comments.COLUMN_KIND,
+        Kinds.parseKind(readInternedString(r, "")));
   }
 
   @Override
-  public void onLikes(JsonReader r, int i) throws IOException {
+  public void onLikes(Utf8JsonReader r, int i) throws IOException {
     int likes = 0;
     if (isNextBoolean(r)) {
       likes = readBoolean(r, false) ? 1 : -1;
     } else {
       r.skipValue();
     }
-    values.get(i).put(Comments.COLUMN_LIKES, likes);
+    values.put(i, Comments.COLUMN_LIKES, likes);
   }
 
   @Override
-  public void onName(JsonReader r, int i) throws IOException {
+  public void onName(Utf8JsonReader r, int i) throws IOException {
     String id = readString(r, "");
-    ContentValues v = values.get(i);
-    v.put(Comments.COLUMN_THING_ID, id);
-    valueMap.put(id, v);
+    values.put(i, Comments.COLUMN_THING_ID, id);
+    rowMap.put(id, i);
   }
 
   @Override
-  public void onNumComments(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_NUM_COMMENTS, readInt(r, 0));
+  public void onNumComments(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_NUM_COMMENTS, readInt(r, 0));
   }
 
   @Override
-  public void onOver18(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_OVER_18, readBoolean(r, false));
+  public void onOver18(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_OVER_18, readBoolean(r, false));
   }
 
   @Override
-  public void onPermaLink(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_PERMA_LINK, readString(r, ""));
+  public void onPermaLink(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_PERMA_LINK, readString(r, ""));
   }
 
   @Override
-  public void onSaved(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_SAVED, readBoolean(r, false));
+  public void onSaved(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_SAVED, readBoolean(r, false));
   }
 
   @Override
-  public void onScore(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_SCORE, readInt(r, 0));
+  public void onScore(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_SCORE, readInt(r, 0));
   }
 
   @Override
-  public void onSelfText(JsonReader r, int i) throws IOException {
-    CharSequence body = formatter.formatNoSpans(readString(r, ""));
-    values.get(i).put(Comments.COLUMN_BODY, body.toString());
+  public void onSelfText(Utf8JsonReader r, int i) throws IOException {
+    formats.format(i, Comments.COLUMN_BODY, Comments.COLUMN_BODY_SPANS,
+        readString(r, ""));
   }
 
   @Override
-  public void onSubreddit(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_SUBREDDIT, readString(r, ""));
+  public void onSubreddit(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_SUBREDDIT, readInternedString(r, ""));
   }
 
   @Override
-  public void onTitle(JsonReader r, int i) throws IOException {
-    CharSequence title = formatter.formatNoSpans(readString(r, ""));
-    values.get(i).put(Comments.COLUMN_TITLE, title.toString());
+  public void onTitle(Utf8JsonReader r, int i) throws IOException {
+    formats.format(i, Comments.COLUMN_TITLE, readString(r, ""));
   }
 
   @Override
-  public void onUps(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_UPS, readInt(r, 0));
+  public void onUps(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_UPS, readInt(r, 0));
   }
 
   @Override
-  public void onUrl(JsonReader r, int i) throws IOException {
-    values.get(i).put(Comments.COLUMN_URL, readString(r, ""));
+  public void onUrl(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Comments.COLUMN_URL, readString(r, ""));
   }
 
   @Override
-  public void onThumbnail(JsonReader r, int i) throws IOException {
+  public void onThumbnail(Utf8JsonReader r, int i) throws IOException {
     // TODO: Remove code duplication with ThingListing.
-    String thumbnail = readString(r, null);
+    String thumbnail = readInternedString(r, null);
     if (!TextUtils.isEmpty(thumbnail) && thumbnail.startsWith("http")) {
-      values.get(i).put(Comments.COLUMN_THUMBNAIL_URL, thumbnail);
+      values.put(i, Comments.COLUMN_THUMBNAIL_URL, thumbnail);
     }
   }
 
   @Override
   public void onParseEnd() {
+    // Wait for the formatted strings before merging shifts any rows.
+    formats.finish(values);
+
     // Merge local inserts and deletes that haven't been synced yet.
     mergeActions();
 
@@ -352,8 +413,7 @@ class CommentListing extends JsonParser implements Listing, CommentList {
       String body) {
     int size = values.size();
     for (int i = 0; i < size; i++) {
-      ContentValues v = values.get(i);
-      String id = v.getAsString(Comments.COLUMN_THING_ID);
+      String id = values.getString(i, Comments.COLUMN_THING_ID);
 
       // This thing could be a placeholder we previously inserted.
       if (TextUtils.isEmpty(id)) {
@@ -361,16 +421,16 @@ class CommentListing extends JsonParser implements Listing, CommentList {
       }
 
       if (id.equals(actionThingId)) {
-        ContentValues p = new ContentValues(7 + 1); // +1 for session id.
-        p.put(Comments.COLUMN_ACCOUNT, actionAccountName);
-        p.put(Comments.COLUMN_AUTHOR, actionAccountName);
-        p.put(Comments.COLUMN_BODY, body);
-        p.put(Comments.COLUMN_COMMENT_ACTION_ID, actionId);
-        p.put(Comments.COLUMN_KIND, Kinds.KIND_COMMENT);
-        p.put(Comments.COLUMN_NESTING, CommentLogic.getInsertNesting(this, i));
-
-        values.add(CommentLogic.getInsertPosition(this, i), p);
-        size++;
+        int nesting = CommentLogic.getInsertNesting(this, i);
+        int p = CommentLogic.getInsertPosition(this, i);
+        values.addRow(p);
+        values.put(p, Comments.COLUMN_ACCOUNT, actionAccountName);
+        values.put(p, Comments.COLUMN_AUTHOR, actionAccountName);
+        putBody(p, body);
+        values.put(p, Comments.COLUMN_COMMENT_ACTION_ID, actionId);
+        values.put(p, Comments.COLUMN_KIND, Kinds.KIND_COMMENT);
+        values.put(p, Comments.COLUMN_NESTING, nesting);
+        shiftRowMap(p, 1);
 
         return true;
       }
@@ -381,21 +441,21 @@ class CommentListing extends JsonParser implements Listing, CommentList {
   private boolean deleteThing(String actionThingId) {
     int size = values.size();
     for (int i = 0; i < size; i++) {
-      ContentValues v = values.get(i);
-      String id = v.getAsString(Comments.COLUMN_THING_ID);
+      String id = values.getString(i, Comments.COLUMN_THING_ID);
       if (actionThingId.equals(id)) {
         // Mark the header comment or comment with children as
         // [deleted] instead of completely removing it.
         if (i == 0) {
-          v.put(Comments.COLUMN_AUTHOR, Comments.DELETED_AUTHOR);
+          values.put(i, Comments.COLUMN_AUTHOR, Comments.DELETED_AUTHOR);
           return false;
         } else if (CommentLogic.hasChildren(this, i)) {
-          v.put(Comments.COLUMN_AUTHOR, Comments.DELETED_AUTHOR);
-          v.put(Comments.COLUMN_BODY, Comments.DELETED_BODY);
+          values.put(i, Comments.COLUMN_AUTHOR, Comments.DELETED_AUTHOR);
+          putBody(i, Comments.DELETED_BODY);
           return false;
         } else {
-          values.remove(i);
-          size--;
+          values.removeRow(i);
+          rowMap.remove(id);
+          shiftRowMap(i, -1);
           return true;
         }
       }
@@ -404,37 +464,51 @@ class CommentListing extends JsonParser implements Listing, CommentList {
   }
 
   private void editThing(long actionId, String actionThingId, String text) {
-    ContentValues v = valueMap.get(actionThingId);
-    if (v != null) {
-      v.put(Comments.COLUMN_BODY, text);
-      v.put(Comments.COLUMN_COMMENT_ACTION_ID, actionId);
+    Integer row = rowMap.get(actionThingId);
+    if (row != null) {
+      putBody(row, text);
+      values.put(row, Comments.COLUMN_COMMENT_ACTION_ID, actionId);
+    }
+  }
+
+  /** Puts a body from a pending action with its spans formatted here. */
+  private void putBody(int row, String body) {
+    values.put(row, Comments.COLUMN_BODY, body);
+    values.put(row, Comments.COLUMN_BODY_SPANS, formats.getSpans(body));
+  }
+
+  /** Moves the rows mapped at or after the position by the offset. */
+  private void shiftRowMap(int position, int offset) {
+    for (Map.Entry<String, Integer> entry : rowMap.entrySet()) {
+      int row = entry.getValue();
+      if (row >= position) {
+        entry.setValue(row + offset);
+      }
     }
   }
 
   private void doFinalMerge() {
     int count = values.size();
     for (int i = 0; i < count; i++) {
-      ContentValues v = values.get(i);
-
       // Remove any load more rows. We don't support them yet.
-      if (isLoadingMore(v)) {
-        values.remove(i--);
+      if (isLoadingMore(i)) {
+        values.removeRow(i--);
         count--;
         continue;
       }
 
-      SaveMerger.updateContentValues(v, saveActionMap);
-      VoteMerger.updateContentValues(v, voteActionMap);
-      applySequenceNumber(v, i);
+      SaveMerger.updateRow(values, i, saveActionMap);
+      VoteMerger.updateRow(values, i, voteActionMap);
+      applySequenceNumber(i);
     }
   }
 
-  private boolean isLoadingMore(ContentValues v) {
-    return ((Integer) v.get(Comments.COLUMN_KIND)) == Kinds.KIND_MORE;
+  private boolean isLoadingMore(int row) {
+    return values.getInt(row, Comments.COLUMN_KIND) == Kinds.KIND_MORE;
   }
 
-  private void applySequenceNumber(ContentValues v, int sequence) {
-    v.put(Comments.COLUMN_SEQUENCE, sequence);
+  private void applySequenceNumber(int sequence) {
+    values.put(sequence, Comments.COLUMN_SEQUENCE, sequence);
   }
 
   @Override
@@ -444,19 +518,16 @@ class CommentListing extends JsonParser implements Listing, CommentList {
 
   @Override
   public long getCommentId(int pos) {
-    // Cast to avoid auto-boxing in the getAsLong method.
-    return ((Long) values.get(pos).get(Comments._ID));
+    return values.getLong(pos, Comments._ID);
   }
 
   @Override
   public int getCommentNesting(int pos) {
-    // Cast to avoid auto-boxing in the getAsInteger method.
-    return ((Integer) values.get(pos).get(Comments.COLUMN_NESTING));
+    return values.getInt(pos, Comments.COLUMN_NESTING);
   }
 
   @Override
   public int getCommentSequence(int pos) {
-    // Cast to avoid auto-boxing in the getAsInteger method.
-    return ((Integer) values.get(pos).get(Comments.COLUMN_SEQUENCE));
+    return values.getInt(pos, Comments.COLUMN_SEQUENCE);
   }
 }
\ No newline at end of file
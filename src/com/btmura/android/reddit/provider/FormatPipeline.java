@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.provider;
+
+import android.content.Context;
+import android.os.Process;
+import android.text.TextUtils;
+
+import com.btmura.android.reddit.text.MarkdownFormatter;
+import com.btmura.android.reddit.text.MarkdownSpans;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link FormatPipeline} formats the markdown of a listing's strings on a pool
+ * of worker threads while the parser keeps reading the network. The strings
+ * must come from a url that asked for raw JSON. Strings are handed off in
+ * batches and their results are put back into the rows they came from, so
+ * the order of the rows doesn't depend on which batch finishes first. Bodies
+ * can also get their {@link MarkdownSpans} runs, so the views don't have to
+ * format them while scrolling.
+ */
+class FormatPipeline {
+
+  /** Number of strings to format in each task to amortize the hand off. */
+  private static final int BATCH_SIZE = 16;
+
+  private static final int POOL_SIZE =
+      Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+  private static final ThreadPoolExecutor EXECUTOR = newExecutor();
+
+  /** Formatters aren't thread safe, so each worker gets its own. */
+  private static final ThreadLocal<MarkdownFormatter> FORMATTERS =
+      new ThreadLocal<MarkdownFormatter>() {
+        @Override
+        protected MarkdownFormatter initialValue() {
+          return new MarkdownFormatter();
+        }
+      };
+
+  private final Context ctx;
+  private final ArrayList<Batch> batches = new ArrayList<Batch>();
+  private Batch batch;
+
+  private static class Batch implements Callable<String[]> {
+    final Context ctx;
+    final int[] rows = new int[BATCH_SIZE];
+    final String[] columns = new String[BATCH_SIZE];
+    final String[] spansColumns = new String[BATCH_SIZE];
+    final String[] strings = new String[BATCH_SIZE];
+    final byte[][] spans = new byte[BATCH_SIZE][];
+    final FutureTask<String[]> task = new FutureTask<String[]>(this);
+    int size;
+
+    Batch(Context ctx) {
+      this.ctx = ctx;
+    }
+
+    @Override
+    public String[] call() {
+      MarkdownFormatter formatter = FORMATTERS.get();
+      String[] results = new String[size];
+      for (int i = 0; i < size; i++) {
+        results[i] = columns[i] != null
+            ? formatter.formatRawNoSpans(strings[i]).toString()
+            : strings[i];
+        if (spansColumns[i] != null) {
+          spans[i] = getSpans(ctx, formatter, results[i]);
+        }
+      }
+      return results;
+    }
+  }
+
+  FormatPipeline(Context ctx) {
+    this.ctx = ctx;
+  }
+
+  /** Queues the string to be formatted and put into the row's column. */
+  void format(int row, String column, String string) {
+    add(row, column, null, string);
+  }
+
+  /**
+   * Queues the string to be formatted into the row's column and the span runs
+   * of the formatted string into the spans column.
+   */
+  void format(int row, String column, String spansColumn, String string) {
+    add(row, column, spansColumn, string);
+  }
+
+  /** Queues the span runs of a string that doesn't need formatting. */
+  void formatSpans(int row, String spansColumn, String string) {
+    add(row, null, spansColumn, string);
+  }
+
+  /** Returns the span runs of the string formatted on the calling thread. */
+  byte[] getSpans(String string) {
+    return getSpans(ctx, FORMATTERS.get(), string);
+  }
+
+  private void add(int row, String column, String spansColumn, String string) {
+    if (batch == null) {
+      batch = new Batch(ctx);
+    }
+    batch.rows[batch.size] = row;
+    batch.columns[batch.size] = column;
+    batch.spansColumns[batch.size] = spansColumn;
+    batch.strings[batch.size] = string;
+    if (++batch.size == BATCH_SIZE) {
+      submit();
+    }
+  }
+
+  /**
+   * Waits for every queued string to be formatted and puts them into the
+   * rows. Must be called before rows are added or removed.
+   */
+  void finish(RowBuffer values) {
+    if (batch != null) {
+      submit();
+    }
+    int count = batches.size();
+    for (int i = 0; i < count; i++) {
+      Batch b = batches.get(i);
+
+      // Format the batch here if no worker has picked it up yet.
+      b.task.run();
+      String[] results = getResults(b);
+      for (int j = 0; j < b.size; j++) {
+        if (b.columns[j] != null) {
+          values.put(b.rows[j], b.columns[j], results[j]);
+        }
+        if (b.spansColumns[j] != null) {
+          values.put(b.rows[j], b.spansColumns[j], b.spans[j]);
+        }
+      }
+    }
+    batches.clear();
+  }
+
+  private void submit() {
+    batches.add(batch);
+    EXECUTOR.execute(batch.task);
+    batch = null;
+  }
+
+  /**
+   * Waits for the worker formatting the batch even if interrupted, since
+   * formatting the batch again here would race the worker on its spans. The
+   * interrupt is restored once the results are in.
+   */
+  private static String[] getResults(Batch b) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return b.task.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          throw new RuntimeException(e.getCause());
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static byte[] getSpans(
+      Context ctx,
+      MarkdownFormatter formatter,
+      String string) {
+    if (TextUtils.isEmpty(string)) {
+      return null;
+    }
+    return MarkdownSpans.encode(string, formatter.formatSpans(ctx, string));
+  }
+
+  private static ThreadPoolExecutor newExecutor() {
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
+        1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger(1);
+
+          @Override
+          public Thread newThread(final Runnable r) {
+            return new Thread(new Runnable() {
+              @Override
+              public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+              }
+            }, "FormatPipeline #" + count.getAndIncrement());
+          }
+        });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+}
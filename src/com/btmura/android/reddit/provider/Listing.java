@@ -16,11 +16,8 @@
 
 package com.btmura.android.reddit.provider;
 
-import android.content.ContentValues;
 import android.content.Context;
 
-import java.util.List;
-
 /**
  * {@link Listing} is an internal interface to enforce some uniformity on
  * grabbing values to present to the user.
@@ -34,7 +31,7 @@ interface Listing {
   String getSessionThingId();
 
   /** Get the values for this listing possibly using the network. */
-  List<ContentValues> getValues() throws Exception;
+  RowBuffer getValues() throws Exception;
 
   /** Return the name of the table where the values should be inserted. */
   String getTargetTable();
@@ -42,4 +39,13 @@ interface Listing {
   /** Return whether this query is appending to an existing data set. */
   boolean isAppend();
 
+  /**
+   * Return the id of an existing session whose values are still current
+   * according to the server or 0 if the values must be inserted.
+   */
+  long getCurrentSessionId();
+
+  /** Called after the values were inserted into the given session. */
+  void onValuesInserted(long sessionId);
+
 }
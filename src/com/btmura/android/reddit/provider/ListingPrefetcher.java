@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.provider;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.btmura.android.reddit.BuildConfig;
+import com.btmura.android.reddit.net.RateLimitGovernor;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link ListingPrefetcher} fetches and parses the next page of a listing in
+ * the background before the user reaches the "Loading..." row. The parsed
+ * values are kept until the append for that page asks for them. An append
+ * only waits for a prefetch that is already fetching, since one still waiting
+ * for a background permit would hold the user back by its pacing. Prefetches
+ * run on their own thread, since that pacing can sleep for seconds and must
+ * not hold up the shared pool that also loads thumbnails.
+ */
+class ListingPrefetcher {
+
+  private static final String TAG = "ListingPrefetcher";
+
+  /** Duration after which prefetched values are considered too stale. */
+  private static final long MAX_AGE_MS = TimeUnit.MINUTES.toMillis(1);
+
+  /** Latency assumed before any prefetch has been measured. */
+  private static final long DEFAULT_LATENCY_MS = 1000;
+
+  /** Rough time the user takes to scroll past a row. */
+  private static final long MS_PER_ROW = 100;
+
+  private static final int MIN_DISTANCE = 5;
+  private static final int MAX_DISTANCE = 25;
+
+  private static final ExecutorService EXECUTOR =
+      Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          return new Thread(new Runnable() {
+            @Override
+            public void run() {
+              Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+              r.run();
+            }
+          }, TAG);
+        }
+      });
+
+  private final HashMap<String, Prefetch> prefetches =
+      new HashMap<String, Prefetch>();
+
+  private long averageLatencyMs = DEFAULT_LATENCY_MS;
+
+  /** State of a prefetch that is waiting for its background permit. */
+  private static final int STATE_PENDING = 0;
+
+  /** State of a prefetch that got its permit and started fetching. */
+  private static final int STATE_FETCHING = 1;
+
+  /** State of a prefetch that an append took over before it fetched. */
+  private static final int STATE_CANCELLED = 2;
+
+  private static class Prefetch {
+    final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+    final long startTime;
+    FutureTask<RowBuffer> task;
+
+    Prefetch(long startTime) {
+      this.startTime = startTime;
+    }
+  }
+
+  /** Starts getting the listing's values unless already doing so. */
+  void prefetch(String key, final Listing listing) {
+    synchronized (prefetches) {
+      if (prefetches.containsKey(key)) {
+        return;
+      }
+      final Prefetch prefetch = new Prefetch(SystemClock.elapsedRealtime());
+      prefetch.task = new FutureTask<RowBuffer>(
+          new Callable<RowBuffer>() {
+            @Override
+            public RowBuffer call() throws Exception {
+              // Let the append fetch the page itself if the budget is needed
+              // for requests the user is waiting on or it already took over.
+              if (!RateLimitGovernor.acquireBackgroundPermit()
+                  || !prefetch.state.compareAndSet(STATE_PENDING,
+                  STATE_FETCHING)) {
+                return null;
+              }
+              long start = SystemClock.elapsedRealtime();
+              RowBuffer values = listing.getValues();
+              recordLatency(SystemClock.elapsedRealtime() - start);
+              return values;
+            }
+          });
+      prefetches.put(key, prefetch);
+      EXECUTOR.execute(prefetch.task);
+    }
+    if (BuildConfig.DEBUG) {
+      Log.d(TAG, "prefetch: " + key);
+    }
+  }
+
+  /**
+   * Returns the prefetched values for the key, waiting for them if they are
+   * still being fetched, or null if the caller should fetch them itself. A
+   * prefetch that hasn't started fetching is cancelled instead of waited on.
+   */
+  @Nullable
+  RowBuffer take(String key) throws InterruptedException {
+    Prefetch prefetch;
+    synchronized (prefetches) {
+      prefetch = prefetches.remove(key);
+      pruneLocked();
+    }
+    if (prefetch != null && isStale(prefetch)) {
+      prefetch = null;
+    }
+    if (prefetch == null) {
+      return null;
+    }
+    if (prefetch.state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+      // Interrupt any pacing wait, so the worker isn't held up either.
+      prefetch.task.cancel(true);
+      if (BuildConfig.DEBUG) {
+        Log.d(TAG, "take: " + key + " cancelled");
+      }
+      return null;
+    }
+    try {
+      RowBuffer values = prefetch.task.get();
+      if (BuildConfig.DEBUG) {
+        Log.d(TAG, "take: " + key + " values: "
+            + (values != null ? values.size() : -1));
+      }
+      return values;
+    } catch (ExecutionException e) {
+      Log.e(TAG, e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /** Returns how many rows from the end the next prefetch should start. */
+  synchronized int getPrefetchDistance() {
+    long distance = MIN_DISTANCE + averageLatencyMs / MS_PER_ROW;
+    return (int) Math.min(distance, MAX_DISTANCE);
+  }
+
+  private synchronized void recordLatency(long latencyMs) {
+    averageLatencyMs = (averageLatencyMs * 3 + latencyMs) / 4;
+  }
+
+  private void pruneLocked() {
+    for (Iterator<Prefetch> i = prefetches.values().iterator(); i.hasNext(); ) {
+      if (isStale(i.next())) {
+        i.remove();
+      }
+    }
+  }
+
+  private static boolean isStale(Prefetch prefetch) {
+    return prefetch.task.isDone()
+        && SystemClock.elapsedRealtime() - prefetch.startTime > MAX_AGE_MS;
+  }
+}
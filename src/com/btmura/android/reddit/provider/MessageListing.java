@@ -18,14 +18,12 @@ package com.btmura.android.reddit.provider;
 
 import android.accounts.AuthenticatorException;
 import android.accounts.OperationCanceledException;
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
-import android.util.JsonReader;
 
 import com.btmura.android.reddit.database.Kinds;
 import com.btmura.android.reddit.database.MessageActions;
@@ -36,19 +34,45 @@ import com.btmura.android.reddit.net.RedditApi;
 import com.btmura.android.reddit.net.Urls;
 import com.btmura.android.reddit.util.Array;
 import com.btmura.android.reddit.util.JsonParser;
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.util.ArrayList;
 import java.util.Map;
 
 class MessageListing extends JsonParser implements Listing {
 
   public static final String TAG = "MessageListing";
 
+  private static final boolean[] PARSED_FIELDS = newParsedFields(
+      "author", "body", "context", "created_utc", "dest", "link_title", "name",
+      "new", "replies", "subject", "subreddit", "was_comment");
+
+  private static final RowBuffer.Schema SCHEMA = new RowBuffer.Schema(
+      new String[] {
+          Messages.COLUMN_CREATED_UTC,
+          Messages.COLUMN_KIND,
+          Messages.COLUMN_MESSAGE_ACTION_ID,
+          Messages.COLUMN_NEW,
+          Messages.COLUMN_SESSION_ID,
+          Messages.COLUMN_WAS_COMMENT,
+      },
+      new String[] {
+          Messages.COLUMN_ACCOUNT,
+          Messages.COLUMN_AUTHOR,
+          Messages.COLUMN_BODY,
+          Messages.COLUMN_CONTEXT,
+          Messages.COLUMN_DESTINATION,
+          Messages.COLUMN_LINK_TITLE,
+          Messages.COLUMN_SUBJECT,
+          Messages.COLUMN_SUBREDDIT,
+          Messages.COLUMN_THING_ID,
+      },
+      new String[] {
+          Messages.COLUMN_BODY_SPANS,
+      });
+
   private static final String[] MERGE_PROJECTION = {
       MessageActions._ID,
       MessageActions.COLUMN_ACTION,
@@ -71,9 +95,9 @@ class MessageListing extends JsonParser implements Listing {
   private final int filter;
   private final String more;
   private final int count;
+  private final FormatPipeline formats;
 
-  private final ArrayList<ContentValues> values =
-      new ArrayList<ContentValues>(30);
+  private final RowBuffer values = new RowBuffer(SCHEMA, 30);
   private Map<String, Integer> readActionMap;
   private String moreThingId;
 
@@ -130,6 +154,7 @@ class MessageListing extends JsonParser implements Listing {
     this.filter = filter;
     this.more = more;
     this.count = count;
+    this.formats = new FormatPipeline(ctx);
   }
 
   @Override
@@ -143,22 +168,19 @@ class MessageListing extends JsonParser implements Listing {
   }
 
   @Override
-  public ArrayList<ContentValues> getValues()
+  public RowBuffer getValues()
       throws AuthenticatorException, OperationCanceledException, IOException {
     HttpURLConnection conn = RedditApi.connect(ctx, accountName, getUrl());
     InputStream input = null;
     try {
-      input = new BufferedInputStream(conn.getInputStream());
+      input = RedditApi.getInputStream(conn);
       readActionMap = ReadMerger.getActionMap(dbHelper, accountName);
 
-      JsonReader reader = new JsonReader(new InputStreamReader(input));
+      Utf8JsonReader reader = new Utf8JsonReader(input);
       parseListingObject(reader);
       return values;
     } finally {
-      if (input != null) {
-        input.close();
-      }
-      conn.disconnect();
+      RedditApi.close(input, conn);
     }
   }
 
@@ -186,74 +208,87 @@ class MessageListing extends JsonParser implements Listing {
   }
 
   @Override
-  public void onEntityStart(int i) {
-    values.add(newContentValues(14));
+  public long getCurrentSessionId() {
+    return 0;
   }
 
-  private ContentValues newContentValues(int capacity) {
-    ContentValues values = new ContentValues(capacity);
-    values.put(Messages.COLUMN_ACCOUNT, accountName);
-    return values;
+  @Override
+  public void onValuesInserted(long sessionId) {
   }
 
   @Override
-  public void onAuthor(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_AUTHOR, r.nextString());
+  protected boolean[] getParsedFields() {
+    return PARSED_FIELDS;
   }
 
   @Override
-  public void onBody(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_BODY, r.nextString());
+  public void onEntityStart(int i) {
+    values.put(values.addRow(), Messages.COLUMN_ACCOUNT, accountName);
   }
 
   @Override
-  public void onContext(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_CONTEXT, r.nextString());
+  public void onAuthor(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_AUTHOR, r.nextInternedString());
   }
 
   @Override
-  public void onCreatedUtc(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_CREATED_UTC, r.nextLong());
+  public void onBody(Utf8JsonReader r, int i) throws IOException {
+    // Message urls don't ask for raw JSON, so bodies are stored escaped as
+    // they come and their spans are computed over the escaped text.
+    String body = r.nextString();
+    values.put(i, Messages.COLUMN_BODY, body);
+    formats.formatSpans(i, Messages.COLUMN_BODY_SPANS, body);
   }
 
   @Override
-  public void onDestination(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_DESTINATION, r.nextString());
+  public void onContext(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_CONTEXT, r.nextString());
   }
 
   @Override
-  public void onKind(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_KIND, Kinds.parseKind(r.nextString()));
+  public void onCreatedUtc(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_CREATED_UTC, r.nextLong());
   }
 
   @Override
-  public void onLinkTitle(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_LINK_TITLE, r.nextString());
+  public void onDestination(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_DESTINATION, r.nextString());
   }
 
   @Override
-  public void onName(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_THING_ID, r.nextString());
+  public void onKind(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_KIND,
+        Kinds.parseKind(r.nextInternedString()));
   }
 
   @Override
-  public void onNew(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_NEW, r.nextBoolean());
+  public void onLinkTitle(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_LINK_TITLE, r.nextString());
   }
 
   @Override
-  public void onSubject(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_SUBJECT, r.nextString());
+  public void onName(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_THING_ID, r.nextString());
   }
 
   @Override
-  public void onSubreddit(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_SUBREDDIT, readString(r, null));
+  public void onNew(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_NEW, r.nextBoolean());
   }
 
   @Override
-  public void onWasComment(JsonReader r, int i) throws IOException {
-    values.get(i).put(Messages.COLUMN_WAS_COMMENT, r.nextBoolean());
+  public void onSubject(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_SUBJECT, r.nextString());
+  }
+
+  @Override
+  public void onSubreddit(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_SUBREDDIT, readInternedString(r, null));
+  }
+
+  @Override
+  public void onWasComment(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Messages.COLUMN_WAS_COMMENT, r.nextBoolean());
   }
 
   @Override
@@ -262,12 +297,15 @@ class MessageListing extends JsonParser implements Listing {
   }
 
   @Override
-  public void onAfter(JsonReader r) throws IOException {
+  public void onAfter(Utf8JsonReader r) throws IOException {
     moreThingId = readString(r, null);
   }
 
   @Override
   public void onParseEnd() {
+    // Wait for the span runs before merging adds any rows.
+    formats.finish(values);
+
     if (sessionType == Sessions.TYPE_MESSAGE_THREAD) {
       mergeThreadActions();
     }
@@ -283,7 +321,7 @@ class MessageListing extends JsonParser implements Listing {
     // Message threads are odd in that the thing ID doesn't refer to the
     // topmost message, so the actions may not match up with that ID.
     // So get the parent id from the first element.
-    String parentId = values.get(0).getAsString(Messages.COLUMN_THING_ID);
+    String parentId = values.getString(0, Messages.COLUMN_THING_ID);
 
     SQLiteDatabase db = dbHelper.getReadableDatabase();
     Cursor c = db.query(MessageActions.TABLE_NAME,
@@ -307,23 +345,22 @@ class MessageListing extends JsonParser implements Listing {
   }
 
   private void insertMessage(Cursor c) {
-    ContentValues v = new ContentValues(5 + 1); // +1 for session id.
-    v.put(Messages.COLUMN_ACCOUNT, accountName);
-    v.put(Messages.COLUMN_AUTHOR, accountName);
-    v.put(Messages.COLUMN_BODY, c.getString(MERGE_TEXT));
-    v.put(Messages.COLUMN_KIND, Kinds.KIND_MESSAGE);
-    v.put(Messages.COLUMN_MESSAGE_ACTION_ID, c.getLong(MERGE_ID));
-
     // Just append to the bottom for messages.
-    values.add(v);
+    int i = values.addRow();
+    values.put(i, Messages.COLUMN_ACCOUNT, accountName);
+    values.put(i, Messages.COLUMN_AUTHOR, accountName);
+    String body = c.getString(MERGE_TEXT);
+    values.put(i, Messages.COLUMN_BODY, body);
+    values.put(i, Messages.COLUMN_BODY_SPANS, formats.getSpans(body));
+    values.put(i, Messages.COLUMN_KIND, Kinds.KIND_MESSAGE);
+    values.put(i, Messages.COLUMN_MESSAGE_ACTION_ID, c.getLong(MERGE_ID));
   }
 
   private void doFinalMerge() {
     if (sessionType == Sessions.TYPE_MESSAGES) {
       int count = values.size();
       for (int i = 0; i < count; i++) {
-        ContentValues v = values.get(i);
-        ReadMerger.updateContentValues(v, readActionMap);
+        ReadMerger.updateRow(values, i, readActionMap);
       }
     }
     appendLoadingMore();
@@ -331,11 +368,10 @@ class MessageListing extends JsonParser implements Listing {
 
   private void appendLoadingMore() {
     if (!TextUtils.isEmpty(moreThingId)) {
-      ContentValues v = new ContentValues(3 + 1); // 1 for session id.
-      v.put(Messages.COLUMN_ACCOUNT, accountName);
-      v.put(Messages.COLUMN_KIND, Kinds.KIND_MORE);
-      v.put(Messages.COLUMN_THING_ID, moreThingId);
-      values.add(v);
+      int i = values.addRow();
+      values.put(i, Messages.COLUMN_ACCOUNT, accountName);
+      values.put(i, Messages.COLUMN_KIND, Kinds.KIND_MORE);
+      values.put(i, Messages.COLUMN_THING_ID, moreThingId);
     }
   }
 }
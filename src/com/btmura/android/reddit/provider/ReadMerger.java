@@ -76,26 +76,27 @@ class ReadMerger {
     }
   }
 
-  static void updateContentValues(
-      ContentValues v,
+  static void updateRow(
+      RowBuffer rows,
+      int row,
       Map<String, Integer> actionMap) {
     if (!actionMap.isEmpty()) {
-      String thingId = (String) v.get(SharedColumns.COLUMN_THING_ID);
+      String thingId = rows.getString(row, SharedColumns.COLUMN_THING_ID);
       Integer action = actionMap.remove(thingId);
       if (action != null) {
-        updateContentValues(v, action);
+        updateRow(rows, row, action);
       }
     }
   }
 
-  private static void updateContentValues(ContentValues v, int action) {
+  private static void updateRow(RowBuffer rows, int row, int action) {
     switch (action) {
       case ACTION_READ:
-        v.put(COLUMN_NEW, 0);
+        rows.put(row, COLUMN_NEW, 0);
         break;
 
       case ACTION_UNREAD:
-        v.put(COLUMN_NEW, 1);
+        rows.put(row, COLUMN_NEW, 1);
         break;
     }
   }
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.provider;
+
+import android.database.DatabaseUtils.InsertHelper;
+
+import java.util.HashMap;
+
+/**
+ * {@link RowBuffer} holds the rows of a {@link Listing} in an array per
+ * column. Numbers and booleans are kept in long arrays, text in string arrays
+ * and blobs in arrays of byte arrays, so parsing a page doesn't allocate a map
+ * and boxed values for every row, and the rows are bound straight into the
+ * insert statement.
+ */
+class RowBuffer {
+
+  /** Flag in a column index to mark it as a string column. */
+  private static final int STRING_COLUMN = 1 << 16;
+
+  /** Flag in a column index to mark it as a blob column. */
+  private static final int BLOB_COLUMN = 1 << 17;
+
+  private static final int COLUMN_MASK = STRING_COLUMN - 1;
+
+  /** Columns of a table that the rows of its listings can set. */
+  static class Schema {
+
+    final String[] longColumns;
+    final String[] stringColumns;
+    final String[] blobColumns;
+    private final HashMap<String, Integer> indexes =
+        new HashMap<String, Integer>();
+
+    Schema(String[] longColumns, String[] stringColumns) {
+      this(longColumns, stringColumns, new String[0]);
+    }
+
+    Schema(
+        String[] longColumns,
+        String[] stringColumns,
+        String[] blobColumns) {
+      // Each row tracks the columns that were set in a single long.
+      if (longColumns.length + stringColumns.length + blobColumns.length
+          > Long.SIZE) {
+        throw new IllegalArgumentException();
+      }
+      this.longColumns = longColumns;
+      this.stringColumns = stringColumns;
+      this.blobColumns = blobColumns;
+      for (int i = 0; i < longColumns.length; i++) {
+        indexes.put(longColumns[i], i);
+      }
+      for (int i = 0; i < stringColumns.length; i++) {
+        indexes.put(stringColumns[i], STRING_COLUMN | i);
+      }
+      for (int i = 0; i < blobColumns.length; i++) {
+        indexes.put(blobColumns[i], BLOB_COLUMN | i);
+      }
+    }
+
+    private int getIndex(String column) {
+      Integer index = indexes.get(column);
+      if (index == null) {
+        throw new IllegalArgumentException(column);
+      }
+      return index;
+    }
+  }
+
+  private final Schema schema;
+  private long[][] longs;
+  private String[][] strings;
+  private byte[][][] blobs;
+
+  /** Bits of the columns set in each row in long, string and blob order. */
+  private long[] setColumns;
+
+  private int size;
+
+  RowBuffer(Schema schema, int capacity) {
+    this.schema = schema;
+    this.longs = new long[schema.longColumns.length][capacity];
+    this.strings = new String[schema.stringColumns.length][capacity];
+    this.blobs = new byte[schema.blobColumns.length][capacity][];
+    this.setColumns = new long[capacity];
+  }
+
+  /** Returns the number of rows. */
+  int size() {
+    return size;
+  }
+
+  /** Returns whether there are no rows. */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Appends an empty row and returns its position. */
+  int addRow() {
+    addRow(size);
+    return size - 1;
+  }
+
+  /** Inserts an empty row at the position shifting later rows down. */
+  void addRow(int position) {
+    if (position < 0 || position > size) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (size == setColumns.length) {
+      grow();
+    }
+    int moved = size - position;
+    for (int i = 0; i < longs.length; i++) {
+      System.arraycopy(longs[i], position, longs[i], position + 1, moved);
+      longs[i][position] = 0;
+    }
+    for (int i = 0; i < strings.length; i++) {
+      System.arraycopy(strings[i], position, strings[i], position + 1, moved);
+      strings[i][position] = null;
+    }
+    for (int i = 0; i < blobs.length; i++) {
+      System.arraycopy(blobs[i], position, blobs[i], position + 1, moved);
+      blobs[i][position] = null;
+    }
+    System.arraycopy(setColumns, position, setColumns, position + 1, moved);
+    setColumns[position] = 0;
+    size++;
+  }
+
+  /** Removes the row at the position shifting later rows up. */
+  void removeRow(int position) {
+    if (position < 0 || position >= size) {
+      throw new IndexOutOfBoundsException();
+    }
+    int moved = size - position - 1;
+    for (int i = 0; i < longs.length; i++) {
+      System.arraycopy(longs[i], position + 1, longs[i], position, moved);
+    }
+    for (int i = 0; i < strings.length; i++) {
+      System.arraycopy(strings[i], position + 1, strings[i], position, moved);
+      strings[i][size - 1] = null;
+    }
+    for (int i = 0; i < blobs.length; i++) {
+      System.arraycopy(blobs[i], position + 1, blobs[i], position, moved);
+      blobs[i][size - 1] = null;
+    }
+    System.arraycopy(setColumns, position + 1, setColumns, position, moved);
+    size--;
+  }
+
+  private void grow() {
+    int capacity = Math.max(8, setColumns.length * 2);
+    for (int i = 0; i < longs.length; i++) {
+      long[] column = new long[capacity];
+      System.arraycopy(longs[i], 0, column, 0, size);
+      longs[i] = column;
+    }
+    for (int i = 0; i < strings.length; i++) {
+      String[] column = new String[capacity];
+      System.arraycopy(strings[i], 0, column, 0, size);
+      strings[i] = column;
+    }
+    for (int i = 0; i < blobs.length; i++) {
+      byte[][] column = new byte[capacity][];
+      System.arraycopy(blobs[i], 0, column, 0, size);
+      blobs[i] = column;
+    }
+    long[] newSetColumns = new long[capacity];
+    System.arraycopy(setColumns, 0, newSetColumns, 0, size);
+    setColumns = newSetColumns;
+  }
+
+  void put(int row, String column, long value) {
+    int index = getLongIndex(column);
+    longs[index][row] = value;
+    setColumns[row] |= 1L << index;
+  }
+
+  void put(int row, String column, boolean value) {
+    put(row, column, value ? 1 : 0);
+  }
+
+  void put(int row, String column, String value) {
+    int index = getStringIndex(column);
+    strings[index][row] = value;
+    setColumns[row] |= 1L << (longs.length + index);
+  }
+
+  void put(int row, String column, byte[] value) {
+    int index = getBlobIndex(column);
+    blobs[index][row] = value;
+    setColumns[row] |= 1L << (longs.length + strings.length + index);
+  }
+
+  /** Sets the column of every row to the value. */
+  void putAll(String column, long value) {
+    for (int i = 0; i < size; i++) {
+      put(i, column, value);
+    }
+  }
+
+  /** Returns whether the column of the row has been set. */
+  boolean has(int row, String column) {
+    int index = schema.getIndex(column);
+    int bit = index & COLUMN_MASK;
+    if ((index & STRING_COLUMN) != 0) {
+      bit += longs.length;
+    } else if ((index & BLOB_COLUMN) != 0) {
+      bit += longs.length + strings.length;
+    }
+    return (setColumns[row] & (1L << bit)) != 0;
+  }
+
+  long getLong(int row, String column) {
+    return longs[getLongIndex(column)][row];
+  }
+
+  int getInt(int row, String column) {
+    return (int) getLong(row, column);
+  }
+
+  String getString(int row, String column) {
+    return strings[getStringIndex(column)][row];
+  }
+
+  byte[] getBlob(int row, String column) {
+    return blobs[getBlobIndex(column)][row];
+  }
+
+  private int getLongIndex(String column) {
+    int index = schema.getIndex(column);
+    if ((index & ~COLUMN_MASK) != 0) {
+      throw new IllegalArgumentException(column);
+    }
+    return index;
+  }
+
+  private int getStringIndex(String column) {
+    int index = schema.getIndex(column);
+    if ((index & STRING_COLUMN) == 0) {
+      throw new IllegalArgumentException(column);
+    }
+    return index & COLUMN_MASK;
+  }
+
+  private int getBlobIndex(String column) {
+    int index = schema.getIndex(column);
+    if ((index & BLOB_COLUMN) == 0) {
+      throw new IllegalArgumentException(column);
+    }
+    return index & COLUMN_MASK;
+  }
+
+  /** Inserts every row binding only the columns that were set. */
+  void insert(InsertHelper helper) {
+    int[] longIndexes = new int[longs.length];
+    for (int i = 0; i < longIndexes.length; i++) {
+      longIndexes[i] = helper.getColumnIndex(schema.longColumns[i]);
+    }
+    int[] stringIndexes = new int[strings.length];
+    for (int i = 0; i < stringIndexes.length; i++) {
+      stringIndexes[i] = helper.getColumnIndex(schema.stringColumns[i]);
+    }
+    int[] blobIndexes = new int[blobs.length];
+    for (int i = 0; i < blobIndexes.length; i++) {
+      blobIndexes[i] = helper.getColumnIndex(schema.blobColumns[i]);
+    }
+
+    for (int row = 0; row < size; row++) {
+      long set = setColumns[row];
+      helper.prepareForInsert();
+      for (int i = 0; i < longs.length; i++) {
+        if ((set & (1L << i)) != 0) {
+          helper.bind(longIndexes[i], longs[i][row]);
+        }
+      }
+      for (int i = 0; i < strings.length; i++) {
+        if ((set & (1L << (longs.length + i))) != 0) {
+          helper.bind(stringIndexes[i], strings[i][row]);
+        }
+      }
+      for (int i = 0; i < blobs.length; i++) {
+        if ((set & (1L << (longs.length + strings.length + i))) != 0) {
+          helper.bind(blobIndexes[i], blobs[i][row]);
+        }
+      }
+      helper.execute();
+    }
+  }
+}
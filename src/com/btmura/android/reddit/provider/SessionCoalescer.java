@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.provider;
+
+import android.os.Bundle;
+import android.util.Log;
+
+import com.btmura.android.reddit.BuildConfig;
+
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * {@link SessionCoalescer} makes concurrent requests for the same session
+ * share a single network fetch and database insert. The first caller for a
+ * key does the work while the others wait for and copy its result.
+ */
+class SessionCoalescer {
+
+  private static final String TAG = "SessionCoalescer";
+
+  private final HashMap<String, Call> calls = new HashMap<String, Call>();
+
+  private static class Call {
+    final CountDownLatch done = new CountDownLatch(1);
+    Bundle result;
+    Exception error;
+  }
+
+  /**
+   * Returns the session data from the loader or from an identical request
+   * already in flight.
+   */
+  Bundle getSession(String key, Callable<Bundle> loader) throws Exception {
+    Call call;
+    boolean owner;
+    synchronized (calls) {
+      call = calls.get(key);
+      owner = call == null;
+      if (owner) {
+        call = new Call();
+        calls.put(key, call);
+      }
+    }
+
+    if (!owner) {
+      if (BuildConfig.DEBUG) {
+        Log.d(TAG, "waiting on: " + key);
+      }
+      call.done.await();
+      if (call.error != null) {
+        throw call.error;
+      }
+      return call.result != null ? new Bundle(call.result) : null;
+    }
+
+    try {
+      call.result = loader.call();
+      return call.result;
+    } catch (Exception e) {
+      call.error = e;
+      throw e;
+    } finally {
+      synchronized (calls) {
+        calls.remove(key);
+      }
+      call.done.countDown();
+    }
+  }
+}
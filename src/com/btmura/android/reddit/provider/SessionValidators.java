@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.provider;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.support.annotation.Nullable;
+
+import com.btmura.android.reddit.database.Sessions;
+import com.btmura.android.reddit.net.ValidatorCache;
+import com.btmura.android.reddit.util.Array;
+
+/**
+ * {@link SessionValidators} ties the validators of listing responses to the
+ * sessions holding their values, so a listing can skip parsing and inserting
+ * when the server says the response is not modified.
+ */
+class SessionValidators {
+
+  /**
+   * Returns validators whose value is the id of a session that still exists
+   * or null if there are none.
+   */
+  @Nullable
+  static ValidatorCache.Entry get(
+      SQLiteOpenHelper dbHelper,
+      String accountName,
+      CharSequence url) {
+    ValidatorCache.Entry validators = ValidatorCache.get(accountName, url);
+    if (validators != null && !sessionExists(dbHelper, validators)) {
+      ValidatorCache.remove(accountName, url);
+      return null;
+    }
+    return validators;
+  }
+
+  /** Remembers the validators of the response inserted into the session. */
+  static void put(
+      String accountName,
+      CharSequence url,
+      @Nullable ValidatorCache.Entry validators,
+      long sessionId) {
+    if (validators != null) {
+      ValidatorCache.put(accountName, url, validators.withValue(sessionId));
+    }
+  }
+
+  /** Returns the session id of validators returned by {@link #get}. */
+  static long getSessionId(ValidatorCache.Entry validators) {
+    return (Long) validators.value;
+  }
+
+  private static boolean sessionExists(
+      SQLiteOpenHelper dbHelper,
+      ValidatorCache.Entry validators) {
+    SQLiteDatabase db = dbHelper.getReadableDatabase();
+    return DatabaseUtils.queryNumEntries(db,
+        Sessions.TABLE_NAME,
+        Sessions.SELECT_BY_ID,
+        Array.of(getSessionId(validators))) > 0;
+  }
+
+  private SessionValidators() {
+  }
+}
@@ -18,9 +18,7 @@ package com.btmura.android.reddit.provider;
 
 import android.accounts.AuthenticatorException;
 import android.accounts.OperationCanceledException;
-import android.content.ContentValues;
 import android.content.Context;
-import android.util.JsonReader;
 
 import com.btmura.android.reddit.database.Sessions;
 import com.btmura.android.reddit.database.SubredditResults;
@@ -28,24 +26,32 @@ import com.btmura.android.reddit.database.Things;
 import com.btmura.android.reddit.net.RedditApi;
 import com.btmura.android.reddit.net.Urls;
 import com.btmura.android.reddit.util.JsonParser;
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.util.ArrayList;
 
 class SubredditResultListing extends JsonParser implements Listing {
 
   public static final String TAG = "SubredditResultListing";
 
+  private static final RowBuffer.Schema SCHEMA = new RowBuffer.Schema(
+      new String[] {
+          SubredditResults.COLUMN_OVER_18,
+          SubredditResults.COLUMN_SESSION_ID,
+          SubredditResults.COLUMN_SUBSCRIBERS,
+      },
+      new String[] {
+          SubredditResults.COLUMN_ACCOUNT,
+          SubredditResults.COLUMN_NAME,
+      });
+
   private final Context ctx;
   private final String accountName;
   private final String query;
 
-  private final ArrayList<ContentValues> values =
-      new ArrayList<ContentValues>(25);
+  private final RowBuffer values = new RowBuffer(SCHEMA, 25);
 
   static SubredditResultListing newInstance(
       Context ctx,
@@ -71,21 +77,18 @@ class SubredditResultListing extends JsonParser implements Listing {
   }
 
   @Override
-  public ArrayList<ContentValues> getValues()
+  public RowBuffer getValues()
       throws AuthenticatorException, OperationCanceledException, IOException {
     CharSequence url = Urls.subredditSearch(accountName, query);
     HttpURLConnection conn = RedditApi.connect(ctx, accountName, url);
     InputStream input = null;
     try {
-      input = new BufferedInputStream(conn.getInputStream());
-      JsonReader reader = new JsonReader(new InputStreamReader(input));
+      input = RedditApi.getInputStream(conn);
+      Utf8JsonReader reader = new Utf8JsonReader(input);
       parseListingObject(reader);
       return values;
     } finally {
-      if (input != null) {
-        input.close();
-      }
-      conn.disconnect();
+      RedditApi.close(input, conn);
     }
   }
 
@@ -99,25 +102,32 @@ class SubredditResultListing extends JsonParser implements Listing {
     return false;
   }
 
+  @Override
+  public long getCurrentSessionId() {
+    return 0;
+  }
+
+  @Override
+  public void onValuesInserted(long sessionId) {
+  }
+
   @Override
   public void onEntityStart(int i) {
-    ContentValues v = new ContentValues(5);
-    v.put(Things.COLUMN_ACCOUNT, accountName);
-    values.add(v);
+    values.put(values.addRow(), Things.COLUMN_ACCOUNT, accountName);
   }
 
   @Override
-  public void onDisplayName(JsonReader r, int i) throws IOException {
-    values.get(i).put(SubredditResults.COLUMN_NAME, readString(r, ""));
+  public void onDisplayName(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, SubredditResults.COLUMN_NAME, readString(r, ""));
   }
 
   @Override
-  public void onOver18(JsonReader r, int i) throws IOException {
-    values.get(i).put(SubredditResults.COLUMN_OVER_18, readBoolean(r, false));
+  public void onOver18(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, SubredditResults.COLUMN_OVER_18, readBoolean(r, false));
   }
 
   @Override
-  public void onSubscribers(JsonReader r, int i) throws IOException {
-    values.get(i).put(SubredditResults.COLUMN_SUBSCRIBERS, readInt(r, 0));
+  public void onSubscribers(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, SubredditResults.COLUMN_SUBSCRIBERS, readInt(r, 0));
   }
 }
@@ -18,14 +18,12 @@ package com.btmura.android.reddit.provider;
 
 import android.accounts.AuthenticatorException;
 import android.accounts.OperationCanceledException;
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
-import android.util.JsonReader;
 import android.util.JsonToken;
 
 import com.btmura.android.reddit.app.Filter;
@@ -35,25 +33,62 @@ import com.btmura.android.reddit.database.SaveActions;
 import com.btmura.android.reddit.database.Sessions;
 import com.btmura.android.reddit.database.Things;
 import com.btmura.android.reddit.database.VoteActions;
+import com.btmura.android.reddit.net.PageSizePolicy;
 import com.btmura.android.reddit.net.RedditApi;
 import com.btmura.android.reddit.net.Urls;
-import com.btmura.android.reddit.text.MarkdownFormatter;
+import com.btmura.android.reddit.net.ValidatorCache;
 import com.btmura.android.reddit.util.Array;
 import com.btmura.android.reddit.util.JsonParser;
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map;
 
 class ThingListing extends JsonParser implements Listing {
 
   public static final String TAG = "ThingListing";
 
+  private static final boolean[] PARSED_FIELDS = newParsedFields(
+      "author", "body", "created_utc", "domain", "downs", "hidden", "is_self",
+      "likes", "link_id", "link_title", "name", "num_comments", "over_18",
+      "permalink", "saved", "score", "subreddit", "thumbnail", "title", "ups",
+      "url");
+
+  private static final RowBuffer.Schema SCHEMA = new RowBuffer.Schema(
+      new String[] {
+          Things.COLUMN_CREATED_UTC,
+          Things.COLUMN_DOWNS,
+          Things.COLUMN_HIDDEN,
+          Things.COLUMN_KIND,
+          Things.COLUMN_LIKES,
+          Things.COLUMN_NUM_COMMENTS,
+          Things.COLUMN_OVER_18,
+          Things.COLUMN_SAVED,
+          Things.COLUMN_SCORE,
+          Things.COLUMN_SELF,
+          Things.COLUMN_SESSION_ID,
+          Things.COLUMN_UPS,
+      },
+      new String[] {
+          Things.COLUMN_ACCOUNT,
+          Things.COLUMN_AUTHOR,
+          Things.COLUMN_BODY,
+          Things.COLUMN_DOMAIN,
+          Things.COLUMN_LINK_ID,
+          Things.COLUMN_LINK_TITLE,
+          Things.COLUMN_PERMA_LINK,
+          Things.COLUMN_SUBREDDIT,
+          Things.COLUMN_THING_ID,
+          Things.COLUMN_THUMBNAIL_URL,
+          Things.COLUMN_TITLE,
+          Things.COLUMN_URL,
+      },
+      new String[] {
+          Things.COLUMN_BODY_SPANS,
+      });
+
   private static final String[] HIDE_PROJECTION = {
       HideActions._ID,
       HideActions.COLUMN_ACTION,
@@ -181,14 +216,16 @@ class ThingListing extends JsonParser implements Listing {
   private final int filter;
   private final String more;
   private final int count;
-  private final MarkdownFormatter formatter = new MarkdownFormatter();
+  private final int limit;
+  private final FormatPipeline formats;
 
-  private final ArrayList<ContentValues> values = new ArrayList<ContentValues>(
-      30);
+  private final RowBuffer values = new RowBuffer(SCHEMA, 30);
   private Map<String, Integer> hideActionMap;
   private Map<String, Integer> saveActionMap;
   private Map<String, Integer> voteActionMap;
   private String moreThingId;
+  private ValidatorCache.Entry validators;
+  private long currentSessionId;
 
   static ThingListing newSearchInstance(
       Context context,
@@ -272,6 +309,8 @@ class ThingListing extends JsonParser implements Listing {
     this.filter = filter;
     this.more = more;
     this.count = count;
+    this.limit = PageSizePolicy.getListingLimit(TextUtils.isEmpty(more));
+    this.formats = new FormatPipeline(context);
   }
 
   @Override
@@ -285,35 +324,44 @@ class ThingListing extends JsonParser implements Listing {
   }
 
   @Override
-  public List<ContentValues> getValues()
+  public RowBuffer getValues()
       throws AuthenticatorException, OperationCanceledException, IOException {
-    HttpURLConnection conn = RedditApi.connect(ctx, accountName, getUrl());
+    CharSequence url = getUrl();
+    ValidatorCache.Entry cached = !isAppend()
+        ? SessionValidators.get(dbHelper, accountName, url)
+        : null;
+    HttpURLConnection conn = RedditApi.connect(ctx, accountName, url, cached);
     InputStream input = null;
     try {
-      input = new BufferedInputStream(conn.getInputStream());
+      if (ValidatorCache.isNotModified(conn, cached)) {
+        currentSessionId = SessionValidators.getSessionId(cached);
+        return values;
+      }
+      validators = ValidatorCache.newEntry(conn, null);
+
+      input = RedditApi.getInputStream(conn);
       hideActionMap = HideMerger.getActionMap(dbHelper, accountName);
       saveActionMap = SaveMerger.getActionMap(dbHelper, accountName);
       voteActionMap = VoteMerger.getActionMap(dbHelper, accountName);
 
-      JsonReader reader = new JsonReader(new InputStreamReader(input));
+      Utf8JsonReader reader = new Utf8JsonReader(input);
       parseListingObject(reader);
       return values;
     } finally {
-      if (input != null) {
-        input.close();
-      }
-      conn.disconnect();
+      RedditApi.close(input, conn);
     }
   }
 
   private CharSequence getUrl() {
     if (!TextUtils.isEmpty(profileUser)) {
-      return Urls.profile(accountName, profileUser, filter, more, count);
+      return Urls.profile(accountName, profileUser, filter, more, count,
+          limit);
     }
     if (!TextUtils.isEmpty(query)) {
-      return Urls.search(accountName, subreddit, query, filter, more, count);
+      return Urls.search(accountName, subreddit, query, filter, more, count,
+          limit);
     }
-    return Urls.subreddit(accountName, subreddit, filter, more, count);
+    return Urls.subreddit(accountName, subreddit, filter, more, count, limit);
   }
 
   @Override
@@ -326,150 +374,166 @@ class ThingListing extends JsonParser implements Listing {
     return !TextUtils.isEmpty(more);
   }
 
+  @Override
+  public long getCurrentSessionId() {
+    return currentSessionId;
+  }
+
+  @Override
+  public void onValuesInserted(long sessionId) {
+    if (!isAppend()) {
+      SessionValidators.put(accountName, getUrl(), validators, sessionId);
+    }
+  }
+
+  @Override
+  protected boolean[] getParsedFields() {
+    return PARSED_FIELDS;
+  }
+
   @Override
   public void onEntityStart(int i) {
     // Pass -1 and null since we don't know those until later
-    values.add(newContentValues(-1, null, 19));
+    addRow(values.size(), -1, null);
   }
 
   @Override
-  public void onAuthor(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_AUTHOR, readString(r, ""));
+  public void onAuthor(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_AUTHOR, readInternedString(r, ""));
   }
 
   @Override
-  public void onBody(JsonReader r, int i) throws IOException {
-    CharSequence body = readFormattedString(r);
-    values.get(i).put(Things.COLUMN_BODY, body.toString());
+  public void onBody(Utf8JsonReader r, int i) throws IOException {
+    formats.format(i, Things.COLUMN_BODY, Things.COLUMN_BODY_SPANS,
+        readString(r, ""));
   }
 
   @Override
-  public void onCreatedUtc(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_CREATED_UTC, r.nextLong());
+  public void onCreatedUtc(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_CREATED_UTC, r.nextLong());
   }
 
   @Override
-  public void onDomain(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_DOMAIN, readString(r, ""));
+  public void onDomain(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_DOMAIN, readInternedString(r, ""));
   }
 
   @Override
-  public void onDowns(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_DOWNS, r.nextInt());
+  public void onDowns(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_DOWNS, r.nextInt());
   }
 
   @Override
-  public void onHidden(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_HIDDEN, r.nextBoolean());
+  public void onHidden(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_HIDDEN, r.nextBoolean());
   }
 
   @Override
-  public void onKind(JsonReader r, int i) throws IOException {
-    int kindValue = Kinds.parseKind(r.nextString());
-    values.get(i).put(Things.COLUMN_KIND, kindValue);
+  public void onKind(Utf8JsonReader r, int i) throws IOException {
+    int kindValue = Kinds.parseKind(r.nextInternedString());
+    values.put(i, Things.COLUMN_KIND, kindValue);
   }
 
   @Override
-  public void onLikes(JsonReader r, int i) throws IOException {
+  public void onLikes(Utf8JsonReader r, int i) throws IOException {
     int likes = 0;
     if (r.peek() == JsonToken.BOOLEAN) {
       likes = r.nextBoolean() ? 1 : -1;
     } else {
       r.skipValue();
     }
-    values.get(i).put(Things.COLUMN_LIKES, likes);
+    values.put(i, Things.COLUMN_LIKES, likes);
   }
 
   @Override
-  public void onLinkId(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_LINK_ID, r.nextString());
+  public void onLinkId(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_LINK_ID, r.nextString());
   }
 
   @Override
-  public void onLinkTitle(JsonReader r, int i) throws IOException {
-    CharSequence title = readFormattedString(r);
-    values.get(i).put(Things.COLUMN_LINK_TITLE, title.toString());
+  public void onLinkTitle(Utf8JsonReader r, int i) throws IOException {
+    readFormattedString(r, i, Things.COLUMN_LINK_TITLE);
   }
 
   @Override
-  public void onName(JsonReader r, int i) throws IOException {
+  public void onName(Utf8JsonReader r, int i) throws IOException {
     String name = readString(r, "");
-    values.get(i).put(Things.COLUMN_THING_ID, name);
+    values.put(i, Things.COLUMN_THING_ID, name);
   }
 
   @Override
-  public void onNumComments(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_NUM_COMMENTS, r.nextInt());
+  public void onNumComments(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_NUM_COMMENTS, r.nextInt());
   }
 
   @Override
-  public void onOver18(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_OVER_18, r.nextBoolean());
+  public void onOver18(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_OVER_18, r.nextBoolean());
   }
 
   @Override
-  public void onPermaLink(JsonReader r, int i) throws IOException {
-    String url = readFormattedString(r).toString();
-    values.get(i).put(Things.COLUMN_PERMA_LINK, url);
+  public void onPermaLink(Utf8JsonReader r, int i) throws IOException {
+    readFormattedString(r, i, Things.COLUMN_PERMA_LINK);
   }
 
   @Override
-  public void onSaved(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_SAVED, r.nextBoolean());
+  public void onSaved(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_SAVED, r.nextBoolean());
   }
 
   @Override
-  public void onScore(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_SCORE, r.nextInt());
+  public void onScore(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_SCORE, r.nextInt());
   }
 
   @Override
-  public void onIsSelf(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_SELF, r.nextBoolean());
+  public void onIsSelf(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_SELF, r.nextBoolean());
   }
 
   @Override
-  public void onSubreddit(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_SUBREDDIT, readString(r, ""));
+  public void onSubreddit(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_SUBREDDIT, readInternedString(r, ""));
   }
 
   @Override
-  public void onTitle(JsonReader r, int i) throws IOException {
-    CharSequence title = readFormattedString(r);
-    values.get(i).put(Things.COLUMN_TITLE, title.toString());
+  public void onTitle(Utf8JsonReader r, int i) throws IOException {
+    readFormattedString(r, i, Things.COLUMN_TITLE);
   }
 
   @Override
-  public void onThumbnail(JsonReader r, int i) throws IOException {
-    String thumbnail = readString(r, null);
+  public void onThumbnail(Utf8JsonReader r, int i) throws IOException {
+    String thumbnail = readInternedString(r, null);
     if (!TextUtils.isEmpty(thumbnail) && thumbnail.startsWith("http")) {
-      values.get(i).put(Things.COLUMN_THUMBNAIL_URL, thumbnail);
+      values.put(i, Things.COLUMN_THUMBNAIL_URL, thumbnail);
     }
   }
 
   @Override
-  public void onUrl(JsonReader r, int i) throws IOException {
-    String url = readFormattedString(r).toString();
-    values.get(i).put(Things.COLUMN_URL, url);
+  public void onUrl(Utf8JsonReader r, int i) throws IOException {
+    readFormattedString(r, i, Things.COLUMN_URL);
   }
 
   @Override
-  public void onUps(JsonReader r, int i) throws IOException {
-    values.get(i).put(Things.COLUMN_UPS, r.nextInt());
+  public void onUps(Utf8JsonReader r, int i) throws IOException {
+    values.put(i, Things.COLUMN_UPS, r.nextInt());
   }
 
-  private CharSequence readFormattedString(JsonReader reader)
+  private void readFormattedString(Utf8JsonReader r, int i, String column)
       throws IOException {
-    return formatter.formatNoSpans(readString(reader, ""));
+    formats.format(i, column, readString(r, ""));
   }
 
   @Override
-  public void onAfter(JsonReader r) throws IOException {
+  public void onAfter(Utf8JsonReader r) throws IOException {
     moreThingId = readString(r, null);
   }
 
   @Override
   public void onParseEnd() {
+    // Wait for the formatted strings before merging shifts any rows.
+    formats.finish(values);
+
     // TODO: Get the cursor for these operations when connecting to the
     // network to do things in parallel.
     if (!TextUtils.isEmpty(profileUser)) {
@@ -492,15 +556,11 @@ class ThingListing extends JsonParser implements Listing {
     doFinalMerge();
   }
 
-  private ContentValues newContentValues(
-      int kind,
-      String thingId,
-      int extraCapacity) {
-    ContentValues v = new ContentValues(3 + extraCapacity);
-    v.put(Things.COLUMN_ACCOUNT, accountName);
-    v.put(Things.COLUMN_KIND, kind);
-    v.put(Things.COLUMN_THING_ID, thingId);
-    return v;
+  private void addRow(int position, int kind, String thingId) {
+    values.addRow(position);
+    values.put(position, Things.COLUMN_ACCOUNT, accountName);
+    values.put(position, Things.COLUMN_KIND, kind);
+    values.put(position, Things.COLUMN_THING_ID, thingId);
   }
 
   private void mergeHideAction() {
@@ -595,81 +655,69 @@ class ThingListing extends JsonParser implements Listing {
   }
 
   private void addHide(Cursor c) {
-    ContentValues v = new ContentValues(20);
-    v.put(Things.COLUMN_ACCOUNT, accountName);
-    v.put(Things.COLUMN_AUTHOR, c.getString(HIDE_AUTHOR));
-    v.put(Things.COLUMN_CREATED_UTC, c.getLong(HIDE_CREATED_UTC));
-    v.put(Things.COLUMN_DOMAIN, c.getString(HIDE_DOMAIN));
-    v.put(Things.COLUMN_DOWNS, c.getString(HIDE_DOWNS));
-    v.put(Things.COLUMN_HIDDEN, true);
-    v.put(Things.COLUMN_KIND, Kinds.KIND_LINK);
-    v.put(Things.COLUMN_LIKES, c.getInt(HIDE_LIKES));
-    v.put(Things.COLUMN_NUM_COMMENTS, c.getInt(HIDE_NUM_COMMENTS));
-    v.put(Things.COLUMN_OVER_18, c.getInt(HIDE_OVER_18) != 0);
-    v.put(Things.COLUMN_PERMA_LINK, c.getString(HIDE_PERMA_LINK));
-    v.put(Things.COLUMN_SCORE, c.getInt(HIDE_SCORE));
-    v.put(Things.COLUMN_SELF, c.getInt(HIDE_SELF));
-    v.put(Things.COLUMN_SUBREDDIT, c.getString(HIDE_SUBREDDIT));
-    v.put(Things.COLUMN_TITLE, c.getString(HIDE_TITLE));
-    v.put(Things.COLUMN_THING_ID, c.getString(HIDE_THING_ID));
-    v.put(Things.COLUMN_THUMBNAIL_URL, c.getString(HIDE_THUMBNAIL_URL));
-    v.put(Things.COLUMN_UPS, c.getInt(HIDE_UPS));
-    v.put(Things.COLUMN_URL, c.getString(HIDE_URL));
-    values.add(0, v);
+    addRow(0, Kinds.KIND_LINK, c.getString(HIDE_THING_ID));
+    values.put(0, Things.COLUMN_AUTHOR, c.getString(HIDE_AUTHOR));
+    values.put(0, Things.COLUMN_CREATED_UTC, c.getLong(HIDE_CREATED_UTC));
+    values.put(0, Things.COLUMN_DOMAIN, c.getString(HIDE_DOMAIN));
+    values.put(0, Things.COLUMN_DOWNS, c.getInt(HIDE_DOWNS));
+    values.put(0, Things.COLUMN_HIDDEN, true);
+    values.put(0, Things.COLUMN_LIKES, c.getInt(HIDE_LIKES));
+    values.put(0, Things.COLUMN_NUM_COMMENTS, c.getInt(HIDE_NUM_COMMENTS));
+    values.put(0, Things.COLUMN_OVER_18, c.getInt(HIDE_OVER_18) != 0);
+    values.put(0, Things.COLUMN_PERMA_LINK, c.getString(HIDE_PERMA_LINK));
+    values.put(0, Things.COLUMN_SCORE, c.getInt(HIDE_SCORE));
+    values.put(0, Things.COLUMN_SELF, c.getInt(HIDE_SELF));
+    values.put(0, Things.COLUMN_SUBREDDIT, c.getString(HIDE_SUBREDDIT));
+    values.put(0, Things.COLUMN_TITLE, c.getString(HIDE_TITLE));
+    values.put(0, Things.COLUMN_THUMBNAIL_URL, c.getString(HIDE_THUMBNAIL_URL));
+    values.put(0, Things.COLUMN_UPS, c.getInt(HIDE_UPS));
+    values.put(0, Things.COLUMN_URL, c.getString(HIDE_URL));
   }
 
   private void addSave(Cursor c) {
-    ContentValues v = new ContentValues(20);
-    v.put(Things.COLUMN_ACCOUNT, accountName);
-    v.put(Things.COLUMN_AUTHOR, c.getString(SAVE_AUTHOR));
-    v.put(Things.COLUMN_CREATED_UTC, c.getLong(SAVE_CREATED_UTC));
-    v.put(Things.COLUMN_DOMAIN, c.getString(SAVE_DOMAIN));
-    v.put(Things.COLUMN_DOWNS, c.getString(SAVE_DOWNS));
-    v.put(Things.COLUMN_KIND, Kinds.KIND_LINK);
-    v.put(Things.COLUMN_LIKES, c.getInt(SAVE_LIKES));
-    v.put(Things.COLUMN_NUM_COMMENTS, c.getInt(SAVE_NUM_COMMENTS));
-    v.put(Things.COLUMN_OVER_18, c.getInt(SAVE_OVER_18) != 0);
-    v.put(Things.COLUMN_PERMA_LINK, c.getString(SAVE_PERMA_LINK));
-    v.put(Things.COLUMN_SCORE, c.getInt(SAVE_SCORE));
-    v.put(Things.COLUMN_SELF, c.getInt(SAVE_SELF));
-    v.put(Things.COLUMN_SUBREDDIT, c.getString(SAVE_SUBREDDIT));
-    v.put(Things.COLUMN_TITLE, c.getString(SAVE_TITLE));
-    v.put(Things.COLUMN_THING_ID, c.getString(SAVE_THING_ID));
-    v.put(Things.COLUMN_THUMBNAIL_URL, c.getString(SAVE_THUMBNAIL_URL));
-    v.put(Things.COLUMN_UPS, c.getInt(SAVE_UPS));
-    v.put(Things.COLUMN_URL, c.getString(SAVE_URL));
-    values.add(0, v);
+    addRow(0, Kinds.KIND_LINK, c.getString(SAVE_THING_ID));
+    values.put(0, Things.COLUMN_AUTHOR, c.getString(SAVE_AUTHOR));
+    values.put(0, Things.COLUMN_CREATED_UTC, c.getLong(SAVE_CREATED_UTC));
+    values.put(0, Things.COLUMN_DOMAIN, c.getString(SAVE_DOMAIN));
+    values.put(0, Things.COLUMN_DOWNS, c.getInt(SAVE_DOWNS));
+    values.put(0, Things.COLUMN_LIKES, c.getInt(SAVE_LIKES));
+    values.put(0, Things.COLUMN_NUM_COMMENTS, c.getInt(SAVE_NUM_COMMENTS));
+    values.put(0, Things.COLUMN_OVER_18, c.getInt(SAVE_OVER_18) != 0);
+    values.put(0, Things.COLUMN_PERMA_LINK, c.getString(SAVE_PERMA_LINK));
+    values.put(0, Things.COLUMN_SCORE, c.getInt(SAVE_SCORE));
+    values.put(0, Things.COLUMN_SELF, c.getInt(SAVE_SELF));
+    values.put(0, Things.COLUMN_SUBREDDIT, c.getString(SAVE_SUBREDDIT));
+    values.put(0, Things.COLUMN_TITLE, c.getString(SAVE_TITLE));
+    values.put(0, Things.COLUMN_THUMBNAIL_URL, c.getString(SAVE_THUMBNAIL_URL));
+    values.put(0, Things.COLUMN_UPS, c.getInt(SAVE_UPS));
+    values.put(0, Things.COLUMN_URL, c.getString(SAVE_URL));
   }
 
   private void addVote(Cursor c) {
-    ContentValues v = new ContentValues(20);
-    v.put(Things.COLUMN_ACCOUNT, accountName);
-    v.put(Things.COLUMN_AUTHOR, c.getString(VOTE_AUTHOR));
-    v.put(Things.COLUMN_CREATED_UTC, c.getLong(VOTE_CREATED_UTC));
-    v.put(Things.COLUMN_DOMAIN, c.getString(VOTE_DOMAIN));
-    v.put(Things.COLUMN_DOWNS, c.getString(VOTE_DOWNS));
-    v.put(Things.COLUMN_KIND, Kinds.KIND_LINK);
-    v.put(Things.COLUMN_LIKES, c.getInt(VOTE_LIKES));
-    v.put(Things.COLUMN_NUM_COMMENTS, c.getInt(VOTE_NUM_COMMENTS));
-    v.put(Things.COLUMN_OVER_18, c.getInt(VOTE_OVER_18) != 0);
-    v.put(Things.COLUMN_PERMA_LINK, c.getString(VOTE_PERMA_LINK));
-    v.put(Things.COLUMN_SCORE, c.getInt(VOTE_SCORE));
-    v.put(Things.COLUMN_SELF, c.getInt(VOTE_SELF) != 0);
-    v.put(Things.COLUMN_SUBREDDIT, c.getString(VOTE_SUBREDDIT));
-    v.put(Things.COLUMN_TITLE, c.getString(VOTE_TITLE));
-    v.put(Things.COLUMN_THING_ID, c.getString(VOTE_THING_ID));
-    v.put(Things.COLUMN_THUMBNAIL_URL, c.getString(VOTE_THUMBNAIL_URL));
-    v.put(Things.COLUMN_UPS, c.getInt(VOTE_UPS));
-    v.put(Things.COLUMN_URL, c.getString(VOTE_URL));
-    values.add(0, v);
+    addRow(0, Kinds.KIND_LINK, c.getString(VOTE_THING_ID));
+    values.put(0, Things.COLUMN_AUTHOR, c.getString(VOTE_AUTHOR));
+    values.put(0, Things.COLUMN_CREATED_UTC, c.getLong(VOTE_CREATED_UTC));
+    values.put(0, Things.COLUMN_DOMAIN, c.getString(VOTE_DOMAIN));
+    values.put(0, Things.COLUMN_DOWNS, c.getInt(VOTE_DOWNS));
+    values.put(0, Things.COLUMN_LIKES, c.getInt(VOTE_LIKES));
+    values.put(0, Things.COLUMN_NUM_COMMENTS, c.getInt(VOTE_NUM_COMMENTS));
+    values.put(0, Things.COLUMN_OVER_18, c.getInt(VOTE_OVER_18) != 0);
+    values.put(0, Things.COLUMN_PERMA_LINK, c.getString(VOTE_PERMA_LINK));
+    values.put(0, Things.COLUMN_SCORE, c.getInt(VOTE_SCORE));
+    values.put(0, Things.COLUMN_SELF, c.getInt(VOTE_SELF) != 0);
+    values.put(0, Things.COLUMN_SUBREDDIT, c.getString(VOTE_SUBREDDIT));
+    values.put(0, Things.COLUMN_TITLE, c.getString(VOTE_TITLE));
+    values.put(0, Things.COLUMN_THUMBNAIL_URL, c.getString(VOTE_THUMBNAIL_URL));
+    values.put(0, Things.COLUMN_UPS, c.getInt(VOTE_UPS));
+    values.put(0, Things.COLUMN_URL, c.getString(VOTE_URL));
   }
 
   private void removeByThingId(String targetThingId) {
     int size = values.size();
     for (int i = 0; i < size; i++) {
-      String thingId = values.get(i).getAsString(Things.COLUMN_THING_ID);
+      String thingId = values.getString(i, Things.COLUMN_THING_ID);
       if (thingId.equals(targetThingId)) {
-        values.remove(i);
+        values.removeRow(i);
         break;
       }
     }
@@ -678,17 +726,16 @@ class ThingListing extends JsonParser implements Listing {
   private void doFinalMerge() {
     int count = values.size();
     for (int i = 0; i < count; i++) {
-      ContentValues v = values.get(i);
-      HideMerger.updateContentValues(v, hideActionMap);
-      SaveMerger.updateContentValues(v, saveActionMap);
-      VoteMerger.updateContentValues(v, voteActionMap);
+      HideMerger.updateRow(values, i, hideActionMap);
+      SaveMerger.updateRow(values, i, saveActionMap);
+      VoteMerger.updateRow(values, i, voteActionMap);
     }
     appendLoadingMore();
   }
 
   private void appendLoadingMore() {
     if (!TextUtils.isEmpty(moreThingId)) {
-      values.add(newContentValues(Kinds.KIND_MORE, moreThingId, 1));
+      addRow(values.size(), Kinds.KIND_MORE, moreThingId);
     }
   }
 }
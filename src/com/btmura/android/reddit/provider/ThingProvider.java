@@ -34,6 +34,7 @@ import android.text.TextUtils;
 import android.util.Log;
 
 import com.btmura.android.reddit.BuildConfig;
+import com.btmura.android.reddit.accounts.CredentialCache;
 import com.btmura.android.reddit.app.CommentLogic;
 import com.btmura.android.reddit.app.CommentLogic.CursorCommentList;
 import com.btmura.android.reddit.app.Filter;
@@ -51,11 +52,18 @@ import com.btmura.android.reddit.database.SharedColumns;
 import com.btmura.android.reddit.database.SubredditResults;
 import com.btmura.android.reddit.database.Things;
 import com.btmura.android.reddit.database.VoteActions;
+import com.btmura.android.reddit.net.CircuitBreaker;
+import com.btmura.android.reddit.net.ConnectionPool;
+import com.btmura.android.reddit.net.ContentEncoding;
+import com.btmura.android.reddit.net.NetworkMetrics;
+import com.btmura.android.reddit.net.RateLimitGovernor;
 import com.btmura.android.reddit.util.Array;
 import com.btmura.android.reddit.util.Objects;
 
+import java.io.FileDescriptor;
 import java.io.IOException;
-import java.util.List;
+import java.io.PrintWriter;
+import java.util.concurrent.Callable;
 
 /**
  * URI MATCHING PATTERNS:
@@ -143,6 +151,7 @@ public class ThingProvider extends BaseProvider {
   }
 
   private static final String METHOD_GET_SESSION = "getSession";
+  private static final String METHOD_PREFETCH_SESSION = "prefetchSession";
   private static final String METHOD_CLEAN_SESSIONS = "cleanSessions";
   private static final String METHOD_EXPAND_COMMENT = "expandComment";
   private static final String METHOD_COLLAPSE_COMMENT = "collapseComment";
@@ -168,6 +177,7 @@ public class ThingProvider extends BaseProvider {
   private static final String EXTRA_LINK_ID = "linkId";
   private static final String EXTRA_MORE = "more";
   private static final String EXTRA_PARENT_THING_ID = "parentThingId";
+  private static final String EXTRA_PREFETCH_DISTANCE = "prefetchDistance";
   private static final String EXTRA_QUERY = "query";
   private static final String EXTRA_SESSION_DATA = "sessionData";
   private static final String EXTRA_SESSION_ID = "sessionId";
@@ -185,7 +195,9 @@ public class ThingProvider extends BaseProvider {
   private static final int CLEAN_INDEX_ID = 0;
   private static final int CLEAN_INDEX_TYPE = 1;
 
-  private static final String CLEAN_SORT = Sessions._ID + " DESC";
+  // Sort by timestamp, since not modified responses restamp their sessions.
+  private static final String CLEAN_SORT = Sessions.COLUMN_TIMESTAMP + " DESC, "
+      + Sessions._ID + " DESC";
   private static final String CLEAN_OFFSET_LIMIT = "10, 1000"; // offset, limit
 
   private static final String[] EXPAND_PROJECTION = {
@@ -218,6 +230,8 @@ public class ThingProvider extends BaseProvider {
       + Kinds.KIND_MORE + " AND " + SharedColumns.COLUMN_SESSION_ID + "=?";
 
   private final SessionManager sessionManager = new SessionManager();
+  private final SessionCoalescer sessionCoalescer = new SessionCoalescer();
+  private final ListingPrefetcher listingPrefetcher = new ListingPrefetcher();
 
   public ThingProvider() {
     super(TAG);
@@ -283,6 +297,32 @@ public class ThingProvider extends BaseProvider {
         accountName, extras);
   }
 
+  /**
+   * Starts fetching the subreddit page after the more id in the background so
+   * that a later {@link #getSubredditSession} for the same page need not wait
+   * on the network. Returns how many rows from the end of the list the next
+   * prefetch should be started or 0 if the prefetch could not be started.
+   */
+  public static int prefetchSubredditSession(
+      Context ctx,
+      String accountName,
+      String subreddit,
+      int filter,
+      String more,
+      int count,
+      Bundle sessionData) {
+    Bundle extras = new Bundle(6);
+    extras.putInt(EXTRA_SESSION_TYPE, Sessions.TYPE_SUBREDDIT);
+    extras.putString(EXTRA_SUBREDDIT, subreddit);
+    extras.putInt(EXTRA_FILTER, filter);
+    extras.putString(EXTRA_MORE, more);
+    extras.putInt(EXTRA_COUNT, count);
+    extras.putBundle(EXTRA_SESSION_DATA, sessionData);
+    Bundle result = Provider.call(ctx, SUBREDDITS_URI, METHOD_PREFETCH_SESSION,
+        accountName, extras);
+    return result != null ? result.getInt(EXTRA_PREFETCH_DISTANCE) : 0;
+  }
+
   public static Bundle getProfileSession(
       Context ctx,
       String accountName,
@@ -537,6 +577,8 @@ public class ThingProvider extends BaseProvider {
     try {
       if (METHOD_GET_SESSION.equals(method)) {
         return getSession(accountName, extras);
+      } else if (METHOD_PREFETCH_SESSION.equals(method)) {
+        return prefetchSession(accountName, extras);
       } else if (METHOD_CLEAN_SESSIONS.equals(method)) {
         return cleanSessions(extras);
       } else if (METHOD_EXPAND_COMMENT.equals(method)) {
@@ -568,12 +610,26 @@ public class ThingProvider extends BaseProvider {
     }
   }
 
-  private Bundle getSession(String accountName, Bundle extras) {
+  /**
+   * Prints network statistics for
+   * "adb shell dumpsys activity provider ThingProvider".
+   */
+  @Override
+  public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+    writer.println("ConnectionPool: " + ConnectionPool.getStats());
+    writer.println("ContentEncoding: " + ContentEncoding.getStats());
+    writer.println("RateLimitGovernor: " + RateLimitGovernor.getBudget());
+    writer.println("CircuitBreaker: " + CircuitBreaker.getStats());
+    writer.println("CredentialCache: " + CredentialCache.getStats());
+    NetworkMetrics.dump(writer);
+  }
+
+  private Bundle getSession(final String accountName, final Bundle extras) {
     if (BuildConfig.DEBUG) {
       Log.d(TAG,
           "getSession accountName: " + accountName + " extras: " + extras);
     }
-    Bundle sessionData = extras.getBundle(EXTRA_SESSION_DATA);
+    final Bundle sessionData = extras.getBundle(EXTRA_SESSION_DATA);
     String more = extras.getString(EXTRA_MORE);
     if (isExistingSession(sessionData, more)) {
       if (BuildConfig.DEBUG) {
@@ -583,9 +639,21 @@ public class ThingProvider extends BaseProvider {
     }
 
     try {
-      Listing listing = createListing(accountName, extras);
-      Bundle newSessionData =
-          getListingSession(accountName, listing, sessionData);
+      // Share the fetch and insert with any identical request in flight
+      // due to rotations, pager pre-creation, or duplicate loader starts.
+      Bundle newSessionData = sessionCoalescer.getSession(
+          getSessionKey(accountName, extras, sessionData),
+          new Callable<Bundle>() {
+            @Override
+            public Bundle call() throws Exception {
+              Listing listing = createListing(accountName, extras);
+              RowBuffer prefetchedValues =
+                  listingPrefetcher.take(getSessionKey(accountName, extras,
+                      sessionData));
+              return getListingSession(accountName, listing, sessionData,
+                  prefetchedValues);
+            }
+          });
       if (BuildConfig.DEBUG) {
         Log.d(TAG, "getSession --> NEW " + newSessionData);
       }
@@ -596,6 +664,47 @@ public class ThingProvider extends BaseProvider {
     return null;
   }
 
+  private Bundle prefetchSession(String accountName, Bundle extras)
+      throws OperationCanceledException, AuthenticatorException, IOException {
+    Listing listing = createListing(accountName, extras);
+    if (!listing.isAppend()) {
+      throw new IllegalArgumentException();
+    }
+
+    // Only network and parsing happen here. The values are inserted into the
+    // session by getSession when the "Loading..." row is reached.
+    Bundle sessionData = extras.getBundle(EXTRA_SESSION_DATA);
+    listingPrefetcher.prefetch(getSessionKey(accountName, extras, sessionData),
+        listing);
+
+    Bundle result = new Bundle(1);
+    result.putInt(EXTRA_PREFETCH_DISTANCE,
+        listingPrefetcher.getPrefetchDistance());
+    return result;
+  }
+
+  private static String getSessionKey(
+      String accountName,
+      Bundle extras,
+      Bundle sessionData) {
+    long sessionId = sessionData != null ? sessionData.getLong(
+        EXTRA_SESSION_ID) : 0;
+    return new StringBuilder()
+        .append(accountName).append('|')
+        .append(extras.getInt(EXTRA_SESSION_TYPE)).append('|')
+        .append(extras.getString(EXTRA_SUBREDDIT)).append('|')
+        .append(extras.getString(EXTRA_THING_ID)).append('|')
+        .append(extras.getString(EXTRA_LINK_ID)).append('|')
+        .append(extras.getString(EXTRA_USER)).append('|')
+        .append(extras.getString(EXTRA_QUERY)).append('|')
+        .append(extras.getInt(EXTRA_FILTER, -1)).append('|')
+        .append(extras.getString(EXTRA_MORE)).append('|')
+        .append(extras.getInt(EXTRA_COUNT)).append('|')
+        .append(extras.getInt(EXTRA_LIMIT, -1)).append('|')
+        .append(sessionId)
+        .toString();
+  }
+
   private boolean isExistingSession(Bundle sessionData, String more) {
     long sessionId = sessionData != null ? sessionData.getLong(
         EXTRA_SESSION_ID) : 0;
@@ -697,7 +806,8 @@ public class ThingProvider extends BaseProvider {
   private Bundle getListingSession(
       String accountName,
       Listing listing,
-      Bundle sessionData)
+      Bundle sessionData,
+      @Nullable RowBuffer prefetchedValues)
       throws Exception {
     if (BuildConfig.DEBUG) {
       Log.d(TAG, "getListingSession accountName: " + accountName
@@ -706,8 +816,28 @@ public class ThingProvider extends BaseProvider {
     long sessionId = sessionData != null ? sessionData.getLong(
         EXTRA_SESSION_ID) : 0;
 
-    // Get new values over the network.
-    List<ContentValues> values = listing.getValues();
+    // Get new values over the network unless they were already prefetched.
+    RowBuffer values = prefetchedValues != null
+        ? prefetchedValues
+        : listing.getValues();
+
+    // Reuse an existing session if the server said nothing has changed.
+    long currentSessionId = listing.getCurrentSessionId();
+    if (currentSessionId != 0) {
+      if (BuildConfig.DEBUG) {
+        Log.d(TAG, "getListingSession --> NOT MODIFIED " + currentSessionId);
+      }
+
+      // Restamp the session so cleaning treats it as the newest one.
+      ContentValues v = new ContentValues(1);
+      v.put(Sessions.COLUMN_TIMESTAMP, System.currentTimeMillis());
+      helper.getWritableDatabase().update(Sessions.TABLE_NAME, v,
+          Sessions.SELECT_BY_ID, Array.of(currentSessionId));
+
+      Bundle currentSessionData = new Bundle(1);
+      currentSessionData.putLong(EXTRA_SESSION_ID, currentSessionId);
+      return currentSessionData;
+    }
 
     SQLiteDatabase db = helper.getWritableDatabase();
     db.beginTransaction();
@@ -740,21 +870,18 @@ public class ThingProvider extends BaseProvider {
       }
 
       // Add the session id to the data rows.
-      int count = values.size();
-      for (int i = 0; i < count; i++) {
-        values.get(i).put(SharedColumns.COLUMN_SESSION_ID, sessionId);
-      }
+      values.putAll(SharedColumns.COLUMN_SESSION_ID, sessionId);
 
       // Insert the rows into the database.
       InsertHelper helper = new InsertHelper(db, listing.getTargetTable());
-      for (int i = 0; i < count; i++) {
-        helper.insert(values.get(i));
-      }
+      values.insert(helper);
       db.setTransactionSuccessful();
     } finally {
       db.endTransaction();
     }
 
+    listing.onValuesInserted(sessionId);
+
     // Start cleaning service on separate thread after the latest session was made.
     sessionManager.cleanIfNecessary(getContext(), listing.getSessionType());
 
@@ -1040,6 +1167,7 @@ public class ThingProvider extends BaseProvider {
 
       values.clear();
       values.put(Comments.COLUMN_BODY, body);
+      values.putNull(Comments.COLUMN_BODY_SPANS);
       values.put(Comments.COLUMN_COMMENT_ACTION_ID, actionId);
 
       db.update(Comments.TABLE_NAME,
@@ -1094,6 +1222,7 @@ public class ThingProvider extends BaseProvider {
           values.clear();
           values.put(Comments.COLUMN_AUTHOR, Comments.DELETED_AUTHOR);
           values.put(Comments.COLUMN_BODY, Comments.DELETED_BODY);
+          values.putNull(Comments.COLUMN_BODY_SPANS);
           db.update(Comments.TABLE_NAME, values, ID_SELECTION,
               Array.of(ids[i]));
         } else {
@@ -16,7 +16,6 @@
 
 package com.btmura.android.reddit.provider;
 
-import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
@@ -122,49 +121,49 @@ class VoteMerger {
     }
   }
 
-  static void updateContentValues(
-      ContentValues v,
+  static void updateRow(
+      RowBuffer rows,
+      int row,
       Map<String, Integer> actionMap) {
     if (!actionMap.isEmpty()) {
-      String thingId = (String) v.get(SharedColumns.COLUMN_THING_ID);
+      String thingId = rows.getString(row, SharedColumns.COLUMN_THING_ID);
       Integer action = actionMap.remove(thingId);
       if (action != null) {
-        updateContentValues(v, action);
+        updateRow(rows, row, action);
       }
     }
   }
 
-  static void updateContentValues(ContentValues v, int action) {
+  static void updateRow(RowBuffer rows, int row, int action) {
     switch (action) {
       case ACTION_VOTE_UP:
-        change(v, COLUMN_SCORE, 1);
-        change(v, COLUMN_UPS, 1);
+        change(rows, row, COLUMN_SCORE, 1);
+        change(rows, row, COLUMN_UPS, 1);
         break;
 
       case ACTION_VOTE_DOWN:
-        change(v, COLUMN_SCORE, -1);
-        change(v, COLUMN_DOWNS, 1);
+        change(rows, row, COLUMN_SCORE, -1);
+        change(rows, row, COLUMN_DOWNS, 1);
         break;
 
       case ACTION_VOTE_NEUTRAL:
-        if (v.containsKey(COLUMN_LIKES)) {
-          Integer likes = (Integer) v.get(COLUMN_LIKES);
+        if (rows.has(row, COLUMN_LIKES)) {
+          int likes = rows.getInt(row, COLUMN_LIKES);
           if (likes == ACTION_VOTE_UP) {
-            change(v, COLUMN_SCORE, -1);
-            change(v, COLUMN_UPS, -1);
+            change(rows, row, COLUMN_SCORE, -1);
+            change(rows, row, COLUMN_UPS, -1);
           } else if (likes == ACTION_VOTE_DOWN) {
-            change(v, COLUMN_SCORE, 1);
-            change(v, COLUMN_DOWNS, -1);
+            change(rows, row, COLUMN_SCORE, 1);
+            change(rows, row, COLUMN_DOWNS, -1);
           }
         }
         break;
     }
-    v.put(COLUMN_LIKES, action);
+    rows.put(row, COLUMN_LIKES, action);
   }
 
-  private static void change(ContentValues v, String key, int delta) {
-    Integer value = (Integer) v.get(key);
-    v.put(key, (value != null ? value : 0) + delta);
+  private static void change(RowBuffer rows, int row, String key, int delta) {
+    rows.put(row, key, rows.getLong(row, key) + delta);
   }
 
   static int updateDatabase(
@@ -17,13 +17,9 @@
 package com.btmura.android.reddit.text;
 
 import android.content.Context;
-import android.graphics.Typeface;
 import android.text.SpannableStringBuilder;
 import android.text.TextUtils;
-import android.text.style.BulletSpan;
 import android.text.style.ClickableSpan;
-import android.text.style.StrikethroughSpan;
-import android.text.style.StyleSpan;
 import android.text.style.TypefaceSpan;
 import android.util.Patterns;
 
@@ -42,6 +38,7 @@ public class MarkdownFormatter {
 
   private final Matcher matcher = RawLinks.PATTERN.matcher("");
   private final StringBuilder builder = new StringBuilder();
+  private final MarkdownTokenizer tokenizer = new MarkdownTokenizer();
 
   public CharSequence formatNoSpans(CharSequence c) {
     if (!TextUtils.isEmpty(c)) {
@@ -50,14 +47,21 @@ public class MarkdownFormatter {
     return "";
   }
 
+  /**
+   * Formats text requested with raw_json=1, which reddit doesn't escape for
+   * HTML, into the same text that {@link #formatNoSpans(CharSequence)} makes
+   * of the escaped text.
+   */
+  public CharSequence formatRawNoSpans(CharSequence c) {
+    if (!TextUtils.isEmpty(c)) {
+      return Escaped.formatRaw(matcher, c);
+    }
+    return "";
+  }
+
   public CharSequence formatSpans(Context ctx, CharSequence c) {
     if (!TextUtils.isEmpty(c)) {
-      c = CodeBlock.format(matcher, c);
-      c = Styles.format(matcher, c, Styles.STYLE_BOLD);
-      c = Styles.format(matcher, c, Styles.STYLE_ITALIC);
-      c = Styles.format(matcher, c, Styles.STYLE_STRIKETHROUGH);
-      c = Heading.format(matcher, c);
-      c = Bullets.format(matcher, c);
+      c = tokenizer.format(c);
       c = NamedLinks.format(c, builder);
       c = RawLinks.format(matcher, c);
       c = Tables.format(ctx, matcher, c);
@@ -84,6 +88,17 @@ public class MarkdownFormatter {
       return format(FULL_PATTERN, matcher, format(AMP_PATTERN, matcher, text));
     }
 
+    /**
+     * Decodes only the entities the author typed, since there's no escaped
+     * ampersands to undo first, and skips matching when there are none.
+     */
+    static CharSequence formatRaw(Matcher matcher, CharSequence text) {
+      if (TextUtils.indexOf(text, '&') == -1) {
+        return text;
+      }
+      return format(FULL_PATTERN, matcher, text);
+    }
+
     static CharSequence format(
         Pattern pattern,
         Matcher matcher,
@@ -135,49 +150,6 @@ public class MarkdownFormatter {
 
   static class CodeBlock {
 
-    static Pattern PATTERN_CODE_BLOCK =
-        Pattern.compile("(?m)^(    |\t)(?:.*)$");
-
-    static CharSequence format(Matcher matcher, CharSequence text) {
-      CharSequence s = text;
-      Matcher m = matcher.usePattern(PATTERN_CODE_BLOCK).reset(text);
-      int totalStart = -1;
-      int totalEnd = -1;
-      for (int deleted = 0; m.find(); ) {
-        int start = m.start() - deleted;
-        int end = m.end() - deleted;
-
-        // Remove the leading indentation on the line.
-        int headStart = start;
-        int headEnd = start + m.group(1).length();
-        s = delete(s, headStart, headEnd);
-
-        // Update the end of the match and the deleted count.
-        end -= m.group(1).length();
-        deleted += m.group(1).length();
-
-        // Continuing line. Update the end but don't span since there may be more lines.
-        if (totalEnd != -1 && totalEnd + 1 == start) {
-          totalEnd = end;
-          continue;
-        }
-
-        // New block or 1st time. Set the span on the prior block and reset the markers.
-        if (totalStart != -1) {
-          s = setSpan(s, totalStart, totalEnd, new TypefaceSpan("monospace"));
-        }
-        totalStart = start;
-        totalEnd = end;
-      }
-
-      // There may not have been a new match to flush out the pending block so do it here.
-      if (totalStart != -1) {
-        s = setSpan(s, totalStart, totalEnd, new TypefaceSpan("monospace"));
-      }
-
-      return s;
-    }
-
     static boolean isCodeBlock(CharSequence text, int start, int end) {
       // If we're not a SpannableStringBuilder then there are no spans at all yet.
       if (!(text instanceof SpannableStringBuilder)) {
@@ -191,121 +163,6 @@ public class MarkdownFormatter {
     }
   }
 
-  static class Styles {
-
-    static final int STYLE_BOLD = 0;
-    static final int STYLE_ITALIC = 1;
-    static final int STYLE_STRIKETHROUGH = 2;
-
-    private static final Pattern PATTERN_BOLD =
-        Pattern.compile("\\*\\*.+?\\*\\*");
-    private static final Pattern PATTERN_ITALIC = Pattern.compile("\\*.+?\\*");
-    private static final Pattern PATTERN_STRIKETHROUGH =
-        Pattern.compile("~~.+?~~");
-
-    static CharSequence format(Matcher matcher, CharSequence text, int style) {
-      Pattern p = null;
-      int charsDeleted = -1;
-      switch (style) {
-        case STYLE_BOLD:
-          p = PATTERN_BOLD;
-          charsDeleted = 4;
-          break;
-
-        case STYLE_ITALIC:
-          p = PATTERN_ITALIC;
-          charsDeleted = 2;
-          break;
-
-        case STYLE_STRIKETHROUGH:
-          p = PATTERN_STRIKETHROUGH;
-          charsDeleted = 4;
-          break;
-
-        default:
-          throw new IllegalArgumentException("Unsupported style: " + style);
-      }
-
-      Matcher m = matcher.usePattern(p).reset(text);
-      CharSequence s = text;
-
-      for (int deleted = 0; m.find(); ) {
-        int start = m.start() - deleted;
-        int end = m.end() - deleted;
-
-        // Don't apply formatting within code blocks.
-        if (CodeBlock.isCodeBlock(s, start, end)) {
-          continue;
-        }
-
-        int headStart = start;
-        int headEnd = start + charsDeleted / 2;
-        s = delete(s, headStart, headEnd);
-
-        int tailEnd = end - charsDeleted / 2;
-        int tailStart = tailEnd - charsDeleted / 2;
-        s = delete(s, tailStart, tailEnd);
-
-        Object span = null;
-        switch (style) {
-          case STYLE_BOLD:
-            span = new StyleSpan(Typeface.BOLD);
-            break;
-
-          case STYLE_ITALIC:
-            span = new StyleSpan(Typeface.ITALIC);
-            break;
-
-          case STYLE_STRIKETHROUGH:
-            span = new StrikethroughSpan();
-            break;
-
-          default:
-            throw new IllegalArgumentException("Unsupported style: " + style);
-        }
-
-        int totalStart = start;
-        int totalEnd = end - charsDeleted;
-        s = setSpan(s, totalStart, totalEnd, span);
-
-        deleted += charsDeleted;
-      }
-
-      return s;
-    }
-  }
-
-  static class Bullets {
-
-    private static Pattern PATTERN = Pattern.compile("(?m)^( *[*+-] )(?:.+)$");
-
-    static CharSequence format(Matcher matcher, CharSequence text) {
-      CharSequence s = text;
-      Matcher m = matcher.usePattern(PATTERN).reset(text);
-      for (int deleted = 0; m.find(); ) {
-        int start = m.start() - deleted;
-        int end = m.end() - deleted;
-
-        // Don't apply formatting within code blocks.
-        if (CodeBlock.isCodeBlock(s, start, end)) {
-          continue;
-        }
-
-        // Apply the bullet span to the entire line.
-        s = setSpan(s, start, end, new BulletSpan(20));
-
-        // Delete the beginning *s.
-        int headStart = start;
-        int headEnd = start + m.group(1).length();
-        s = delete(s, headStart, headEnd);
-
-        // Increment how much we deleted.
-        deleted += m.group(1).length();
-      }
-      return s;
-    }
-  }
-
   static class RawLinks {
 
     static final Pattern PATTERN = Patterns.WEB_URL;
@@ -434,43 +291,6 @@ public class MarkdownFormatter {
     }
   }
 
-  static class Heading {
-
-    private static Pattern PATTERN =
-        Pattern.compile("(?m)^(#{1,} ?)(?:.+?)(#*)$");
-
-    static CharSequence format(Matcher matcher, CharSequence text) {
-      CharSequence s = text;
-      Matcher m = matcher.usePattern(PATTERN).reset(text);
-      for (int deleted = 0; m.find(); ) {
-        int start = m.start() - deleted;
-        int end = m.end() - deleted;
-
-        // Don't apply formatting within code blocks.
-        if (CodeBlock.isCodeBlock(s, start, end)) {
-          continue;
-        }
-
-        // Apply the span to the entire matching line.
-        s = setSpan(s, start, end, new StyleSpan(Typeface.BOLD_ITALIC));
-
-        // Trim off the beginning #s
-        int headStart = start;
-        int headEnd = start + m.group(1).length();
-        s = delete(s, headStart, headEnd);
-
-        // Trim off the ending #s
-        int tailEnd = end - m.group(1).length();
-        int tailStart = tailEnd - m.group(2).length();
-        s = delete(s, tailStart, tailEnd);
-
-        // Increment how much we deleted.
-        deleted += m.group(1).length() + m.group(2).length();
-      }
-      return s;
-    }
-  }
-
   static class Tables {
 
     static final Pattern PATTERN = Pattern.compile("(?m)(?:"
@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.text;
+
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.text.style.BulletSpan;
+import android.text.style.StrikethroughSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.util.Log;
+
+import com.btmura.android.reddit.BuildConfig;
+import com.btmura.android.reddit.text.style.MarkdownTableSpan;
+import com.btmura.android.reddit.text.style.SubredditSpan;
+import com.btmura.android.reddit.text.style.URLSpan;
+import com.btmura.android.reddit.text.style.UserSpan;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * {@link MarkdownSpans} encodes the output of
+ * {@link MarkdownFormatter#formatSpans} into span runs of type, start, end
+ * and argument, so the listings can format bodies once while parsing and the
+ * views can rebuild the spans without running any patterns.
+ */
+public class MarkdownSpans {
+
+  public static final String TAG = "MarkdownSpans";
+
+  /** Version written first so stale runs are formatted again. */
+  private static final int VERSION = 1;
+
+  private static final int TYPE_STYLE = 0;
+  private static final int TYPE_STRIKETHROUGH = 1;
+  private static final int TYPE_TYPEFACE = 2;
+  private static final int TYPE_BULLET = 3;
+  private static final int TYPE_URL = 4;
+  private static final int TYPE_SUBREDDIT = 5;
+  private static final int TYPE_USER = 6;
+  private static final int TYPE_TABLE = 7;
+
+  /** Gap of the bullets that the formatter makes. */
+  private static final int BULLET_GAP_WIDTH = 20;
+
+  /** Characters per writeUTF call to stay under its 64K byte limit. */
+  private static final int CHUNK_LENGTH = 16 * 1024;
+
+  /**
+   * Returns the span runs of text formatted from the source or null if it has
+   * a span that can't be encoded, in which case the source should be
+   * formatted when shown like before.
+   */
+  public static byte[] encode(CharSequence source, CharSequence formatted) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeByte(VERSION);
+
+      // Only keep the text if the formatter removed markers or links.
+      boolean changed = !TextUtils.equals(source, formatted);
+      out.writeBoolean(changed);
+      if (changed) {
+        writeText(out, formatted);
+      }
+
+      if (formatted instanceof Spanned) {
+        Spanned s = (Spanned) formatted;
+        Object[] spans = s.getSpans(0, s.length(), Object.class);
+        writeVarInt(out, spans.length);
+        for (int i = 0; i < spans.length; i++) {
+          int start = s.getSpanStart(spans[i]);
+          int end = s.getSpanEnd(spans[i]);
+          if (!writeSpan(out, spans[i], start, end)) {
+            return null;
+          }
+        }
+      } else {
+        writeVarInt(out, 0);
+      }
+
+      out.close();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the formatted text rebuilt from the source and its span runs or
+   * null if the runs can't be read.
+   */
+  public static CharSequence decode(CharSequence source, byte[] runs) {
+    try {
+      DataInputStream in =
+          new DataInputStream(new ByteArrayInputStream(runs));
+      if (in.readByte() != VERSION) {
+        return null;
+      }
+
+      CharSequence text = in.readBoolean() ? readText(in) : source;
+      int count = readVarInt(in);
+      if (count == 0) {
+        return text;
+      }
+
+      SpannableStringBuilder b = new SpannableStringBuilder(text);
+      for (int i = 0; i < count; i++) {
+        int type = in.readByte();
+        int start = readVarInt(in);
+        int end = start + readVarInt(in);
+        b.setSpan(readSpan(in, type), start, end, 0);
+      }
+      return b;
+    } catch (IOException e) {
+      if (BuildConfig.DEBUG) Log.d(TAG, "decode", e);
+      return null;
+    } catch (IndexOutOfBoundsException e) {
+      if (BuildConfig.DEBUG) Log.d(TAG, "decode", e);
+      return null;
+    }
+  }
+
+  private static boolean writeSpan(
+      DataOutputStream out,
+      Object span,
+      int start,
+      int end) throws IOException {
+    Class<?> spanClass = span.getClass();
+    if (spanClass == StyleSpan.class) {
+      writeRun(out, TYPE_STYLE, start, end);
+      out.writeByte(((StyleSpan) span).getStyle());
+    } else if (spanClass == StrikethroughSpan.class) {
+      writeRun(out, TYPE_STRIKETHROUGH, start, end);
+    } else if (spanClass == TypefaceSpan.class) {
+      writeRun(out, TYPE_TYPEFACE, start, end);
+      out.writeUTF(((TypefaceSpan) span).getFamily());
+    } else if (spanClass == BulletSpan.class) {
+      writeRun(out, TYPE_BULLET, start, end);
+    } else if (spanClass == URLSpan.class) {
+      writeRun(out, TYPE_URL, start, end);
+      writeText(out, ((URLSpan) span).getURL());
+    } else if (spanClass == SubredditSpan.class) {
+      writeRun(out, TYPE_SUBREDDIT, start, end);
+      writeText(out, ((SubredditSpan) span).subreddit);
+    } else if (spanClass == UserSpan.class) {
+      writeRun(out, TYPE_USER, start, end);
+      writeText(out, ((UserSpan) span).user);
+    } else if (spanClass == MarkdownTableSpan.class) {
+      writeRun(out, TYPE_TABLE, start, end);
+      writeText(out, ((MarkdownTableSpan) span).getTableData());
+    } else {
+      if (BuildConfig.DEBUG) Log.d(TAG, "unsupported span: " + spanClass);
+      return false;
+    }
+    return true;
+  }
+
+  private static Object readSpan(DataInputStream in, int type)
+      throws IOException {
+    switch (type) {
+      case TYPE_STYLE:
+        return new StyleSpan(in.readByte());
+
+      case TYPE_STRIKETHROUGH:
+        return new StrikethroughSpan();
+
+      case TYPE_TYPEFACE:
+        return new TypefaceSpan(in.readUTF());
+
+      case TYPE_BULLET:
+        return new BulletSpan(BULLET_GAP_WIDTH);
+
+      case TYPE_URL:
+        return new URLSpan(readText(in));
+
+      case TYPE_SUBREDDIT:
+        return new SubredditSpan(readText(in));
+
+      case TYPE_USER:
+        return new UserSpan(readText(in));
+
+      case TYPE_TABLE:
+        return new MarkdownTableSpan(readText(in));
+
+      default:
+        throw new IOException("unknown type: " + type);
+    }
+  }
+
+  private static void writeRun(
+      DataOutputStream out,
+      int type,
+      int start,
+      int end) throws IOException {
+    out.writeByte(type);
+    writeVarInt(out, start);
+    writeVarInt(out, end - start);
+  }
+
+  private static void writeText(DataOutputStream out, CharSequence text)
+      throws IOException {
+    int length = text.length();
+    writeVarInt(out, length);
+    for (int i = 0; i < length; i += CHUNK_LENGTH) {
+      int end = Math.min(i + CHUNK_LENGTH, length);
+      out.writeUTF(text.subSequence(i, end).toString());
+    }
+  }
+
+  private static String readText(DataInputStream in) throws IOException {
+    int length = readVarInt(in);
+    if (length == 0) {
+      return "";
+    } else if (length <= CHUNK_LENGTH) {
+      return in.readUTF();
+    }
+    StringBuilder b = new StringBuilder(length);
+    while (b.length() < length) {
+      b.append(in.readUTF());
+    }
+    return b.toString();
+  }
+
+  /** Writes a non-negative int in 7 bit groups since most runs are short. */
+  private static void writeVarInt(DataOutputStream out, int value)
+      throws IOException {
+    while ((value & ~0x7f) != 0) {
+      out.writeByte((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  private static int readVarInt(DataInputStream in) throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = in.readByte();
+      value |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("malformed int");
+  }
+}
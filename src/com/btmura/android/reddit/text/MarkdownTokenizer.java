@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.text;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.style.BulletSpan;
+import android.text.style.StrikethroughSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+
+/**
+ * {@link MarkdownTokenizer} formats code blocks, bold, italic and
+ * strikethrough text, headings and bullets in one pass over the lines of the
+ * text. Each line is tokenized in a small buffer in the same order as the
+ * {@link MarkdownFormatter} passes it replaces, so markers are dropped while
+ * copying instead of deleted from a {@link SpannableStringBuilder}, and the
+ * spans are only set once the text is complete.
+ */
+class MarkdownTokenizer {
+
+  private static final int TYPE_CODE = 0;
+  private static final int TYPE_BOLD = 1;
+  private static final int TYPE_ITALIC = 2;
+  private static final int TYPE_STRIKETHROUGH = 3;
+  private static final int TYPE_HEADING = 4;
+  private static final int TYPE_BULLET = 5;
+  private static final int NUM_TYPES = 6;
+
+  /** Characters of the current line that shrinks as markers are dropped. */
+  private char[] line = new char[128];
+  private int lineLength;
+
+  /** Whether each character of the line is a marker to drop. */
+  private boolean[] drops = new boolean[128];
+  private boolean hasDrops;
+
+  /** Number of kept characters before each position of the line. */
+  private int[] kept = new int[129];
+
+  /** Spans of the current line as type, start and end triples. */
+  private int[] lineSpans = new int[3 * 8];
+  private int lineSpanCount;
+
+  private final StringBuilder text = new StringBuilder();
+  private int[] spans = new int[3 * 32];
+  private int spanCount;
+
+  CharSequence format(CharSequence input) {
+    text.setLength(0);
+    spanCount = 0;
+
+    boolean changed = false;
+    boolean lastLineCode = false;
+    int codeStart = -1;
+    int codeEnd = -1;
+    int length = input.length();
+    for (int start = 0; ; ) {
+      int end = getLineEnd(input, start);
+
+      int indent = getCodeIndent(input, start, end);
+      if (indent > 0) {
+        int lineStart = text.length();
+        text.append(input, start + indent, end);
+        if (!lastLineCode) {
+          if (codeStart != -1) {
+            addSpan(TYPE_CODE, codeStart, codeEnd);
+          }
+          codeStart = lineStart;
+        }
+        codeEnd = text.length();
+        lastLineCode = true;
+        changed = true;
+      } else {
+        changed |= tokenizeLine(input, start, end);
+        lastLineCode = false;
+      }
+
+      if (end == length) {
+        break;
+      }
+      start = getNextLineStart(input, end);
+      text.append(input, end, start);
+
+      // The passes only join code lines one character apart, so a CRLF
+      // starts a new code block.
+      if (start - end > 1) {
+        lastLineCode = false;
+      }
+    }
+    if (codeStart != -1) {
+      addSpan(TYPE_CODE, codeStart, codeEnd);
+    }
+
+    if (!changed) {
+      return input;
+    }
+    SpannableStringBuilder b = new SpannableStringBuilder(text);
+    for (int type = 0; type < NUM_TYPES; type++) {
+      for (int i = 0; i < spanCount; i += 3) {
+        if (spans[i] == type) {
+          b.setSpan(newSpan(type), spans[i + 1], spans[i + 2], 0);
+        }
+      }
+    }
+    return b;
+  }
+
+  /**
+   * Returns the end of the line starting at the index. Lines end at the same
+   * characters as they do for the patterns of the passes.
+   */
+  private static int getLineEnd(CharSequence s, int start) {
+    int length = s.length();
+    for (int i = start; i < length; i++) {
+      switch (s.charAt(i)) {
+        case '\n':
+        case '\r':
+        case '\u2028':
+        case '\u2029':
+        case '\u0085':
+          return i;
+      }
+    }
+    return length;
+  }
+
+  /** Returns the start of the line after the line ending at the index. */
+  private static int getNextLineStart(CharSequence s, int end) {
+    if (end + 1 < s.length()
+        && s.charAt(end) == '\r'
+        && s.charAt(end + 1) == '\n') {
+      return end + 2;
+    }
+    return end + 1;
+  }
+
+  /** Returns the length of the indentation that makes a code line or 0. */
+  private static int getCodeIndent(CharSequence s, int start, int end) {
+    if (start < end && s.charAt(start) == '\t') {
+      return 1;
+    }
+    if (end - start >= 4) {
+      for (int i = start; i < start + 4; i++) {
+        if (s.charAt(i) != ' ') {
+          return 0;
+        }
+      }
+      return 4;
+    }
+    return 0;
+  }
+
+  /** Tokenizes a line that isn't code and returns whether it changed. */
+  private boolean tokenizeLine(CharSequence s, int start, int end) {
+    lineLength = end - start;
+    if (line.length < lineLength) {
+      int capacity = Math.max(lineLength, line.length * 2);
+      line = new char[capacity];
+      drops = new boolean[capacity];
+      kept = new int[capacity + 1];
+    }
+    for (int i = 0; i < lineLength; i++) {
+      line[i] = s.charAt(start + i);
+    }
+    lineSpanCount = 0;
+
+    tokenizePairs(TYPE_BOLD, '*');
+    tokenizeSingles(TYPE_ITALIC, '*');
+    tokenizePairs(TYPE_STRIKETHROUGH, '~');
+    tokenizeHeading();
+    tokenizeBullet();
+
+    int base = text.length();
+    text.append(line, 0, lineLength);
+    for (int i = 0; i < lineSpanCount; i += 3) {
+      addSpan(lineSpans[i], base + lineSpans[i + 1], base + lineSpans[i + 2]);
+    }
+    return lineSpanCount > 0 || lineLength < end - start;
+  }
+
+  /** Matches markers like the \*\*.+?\*\* pattern of the bold pass. */
+  private void tokenizePairs(int type, char marker) {
+    int n = lineLength;
+    for (int i = 0; i + 4 < n; ) {
+      if (line[i] != marker || line[i + 1] != marker) {
+        i++;
+        continue;
+      }
+      int j = i + 3;
+      while (j + 1 < n && (line[j] != marker || line[j + 1] != marker)) {
+        j++;
+      }
+      if (j + 1 >= n) {
+        break; // No later start can find a closing pair either.
+      }
+      drop(i, i + 2);
+      drop(j, j + 2);
+      addLineSpan(type, i + 2, j);
+      i = j + 2;
+    }
+    compact();
+  }
+
+  /** Matches markers like the \*.+?\* pattern of the italic pass. */
+  private void tokenizeSingles(int type, char marker) {
+    int n = lineLength;
+    for (int i = 0; i + 2 < n; ) {
+      if (line[i] != marker) {
+        i++;
+        continue;
+      }
+      int j = i + 2;
+      while (j < n && line[j] != marker) {
+        j++;
+      }
+      if (j >= n) {
+        break;
+      }
+      drop(i, i + 1);
+      drop(j, j + 1);
+      addLineSpan(type, i + 1, j);
+      i = j + 1;
+    }
+    compact();
+  }
+
+  /** Matches lines like the ^(#{1,} ?)(?:.+?)(#*)$ pattern. */
+  private void tokenizeHeading() {
+    int n = lineLength;
+    int hashes = 0;
+    while (hashes < n && line[hashes] == '#') {
+      hashes++;
+    }
+    if (hashes == 0) {
+      return;
+    }
+
+    int head = hashes < n && line[hashes] == ' ' ? hashes + 1 : hashes;
+    int tail = 0;
+    if (head < n) {
+      while (tail < n - head && line[n - 1 - tail] == '#') {
+        tail++;
+      }
+      // Keep at least one character as the heading.
+      if (tail == n - head) {
+        tail--;
+      }
+    } else if (head > hashes) {
+      head = hashes; // Only a space follows so it is the heading.
+    } else if (hashes > 1) {
+      head = hashes - 1; // Only hashes so the last one is the heading.
+    } else {
+      return;
+    }
+
+    addLineSpan(TYPE_HEADING, 0, n);
+    drop(0, head);
+    drop(n - tail, n);
+    compact();
+  }
+
+  /** Matches lines like the ^( *[*+-] )(?:.+)$ pattern. */
+  private void tokenizeBullet() {
+    int n = lineLength;
+    int i = 0;
+    while (i < n && line[i] == ' ') {
+      i++;
+    }
+    if (i + 2 < n && isBulletMarker(line[i]) && line[i + 1] == ' ') {
+      addLineSpan(TYPE_BULLET, 0, n);
+      drop(0, i + 2);
+      compact();
+    }
+  }
+
+  private static boolean isBulletMarker(char c) {
+    return c == '*' || c == '+' || c == '-';
+  }
+
+  private void drop(int start, int end) {
+    for (int i = start; i < end; i++) {
+      drops[i] = true;
+    }
+    hasDrops = true;
+  }
+
+  /** Removes dropped characters and moves spans like a deletion would. */
+  private void compact() {
+    if (!hasDrops) {
+      return;
+    }
+    int count = 0;
+    for (int i = 0; i < lineLength; i++) {
+      kept[i] = count;
+      if (drops[i]) {
+        drops[i] = false;
+      } else {
+        line[count++] = line[i];
+      }
+    }
+    kept[lineLength] = count;
+    for (int i = 0; i < lineSpanCount; i += 3) {
+      lineSpans[i + 1] = kept[lineSpans[i + 1]];
+      lineSpans[i + 2] = kept[lineSpans[i + 2]];
+    }
+    lineLength = count;
+    hasDrops = false;
+  }
+
+  private void addLineSpan(int type, int start, int end) {
+    if (lineSpanCount + 3 > lineSpans.length) {
+      lineSpans = grow(lineSpans);
+    }
+    lineSpans[lineSpanCount++] = type;
+    lineSpans[lineSpanCount++] = start;
+    lineSpans[lineSpanCount++] = end;
+  }
+
+  private void addSpan(int type, int start, int end) {
+    if (spanCount + 3 > spans.length) {
+      spans = grow(spans);
+    }
+    spans[spanCount++] = type;
+    spans[spanCount++] = start;
+    spans[spanCount++] = end;
+  }
+
+  private static int[] grow(int[] array) {
+    int[] newArray = new int[array.length * 2];
+    System.arraycopy(array, 0, newArray, 0, array.length);
+    return newArray;
+  }
+
+  private static Object newSpan(int type) {
+    switch (type) {
+      case TYPE_CODE:
+        return new TypefaceSpan("monospace");
+
+      case TYPE_BOLD:
+        return new StyleSpan(Typeface.BOLD);
+
+      case TYPE_ITALIC:
+        return new StyleSpan(Typeface.ITALIC);
+
+      case TYPE_STRIKETHROUGH:
+        return new StrikethroughSpan();
+
+      case TYPE_HEADING:
+        return new StyleSpan(Typeface.BOLD_ITALIC);
+
+      case TYPE_BULLET:
+        return new BulletSpan(20);
+
+      default:
+        throw new IllegalArgumentException();
+    }
+  }
+}
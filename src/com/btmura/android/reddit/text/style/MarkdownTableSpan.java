@@ -32,6 +32,10 @@ public class MarkdownTableSpan extends ClickableSpan {
     this.tableData = tableData;
   }
 
+  public String getTableData() {
+    return tableData;
+  }
+
   @Override
   public void onClick(View widget) {
     Context ctx = widget.getContext();
@@ -16,54 +16,170 @@
 
 package com.btmura.android.reddit.util;
 
-import android.util.JsonReader;
 import android.util.JsonToken;
+import android.util.Log;
+
+import com.btmura.android.reddit.BuildConfig;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.HashMap;
 
 public class JsonParser {
 
+  private static final String TAG = "JsonParser";
+
+  /** Returned by {@link #getField(String)} for keys without a callback. */
+  static final int FIELD_UNKNOWN = -1;
+
+  // Keys of entity data that have callbacks.
+  private static final int FIELD_AUTHOR = 0;
+  private static final int FIELD_BODY = 1;
+  private static final int FIELD_CHILDREN = 2;
+  private static final int FIELD_COMMENT_KARMA = 3;
+  private static final int FIELD_CONTEXT = 4;
+  private static final int FIELD_CREATED_UTC = 5;
+  private static final int FIELD_DESCRIPTION = 6;
+  private static final int FIELD_DEST = 7;
+  private static final int FIELD_DISPLAY_NAME = 8;
+  private static final int FIELD_DOMAIN = 9;
+  private static final int FIELD_DOWNS = 10;
+  private static final int FIELD_HAS_MAIL = 11;
+  private static final int FIELD_HEADER_IMG = 12;
+  private static final int FIELD_HIDDEN = 13;
+  private static final int FIELD_ID = 14;
+  private static final int FIELD_IS_SELF = 15;
+  private static final int FIELD_LIKES = 16;
+  private static final int FIELD_LINK_ID = 17;
+  private static final int FIELD_LINK_KARMA = 18;
+  private static final int FIELD_LINK_TITLE = 19;
+  private static final int FIELD_NAME = 20;
+  private static final int FIELD_NEW = 21;
+  private static final int FIELD_NUM_COMMENTS = 22;
+  private static final int FIELD_OVER_18 = 23;
+  private static final int FIELD_PERMALINK = 24;
+  private static final int FIELD_REPLIES = 25;
+  private static final int FIELD_SAVED = 26;
+  private static final int FIELD_SCORE = 27;
+  private static final int FIELD_SELFTEXT = 28;
+  private static final int FIELD_SUBJECT = 29;
+  private static final int FIELD_SUBREDDIT = 30;
+  private static final int FIELD_SUBREDDIT_ID = 31;
+  private static final int FIELD_SUBSCRIBERS = 32;
+  private static final int FIELD_TITLE = 33;
+  private static final int FIELD_THUMBNAIL = 34;
+  private static final int FIELD_UPS = 35;
+  private static final int FIELD_URL = 36;
+  private static final int FIELD_WAS_COMMENT = 37;
+  private static final int NUM_FIELDS = 38;
+
+  /** Map from key of entity data to its field constant. */
+  private static final HashMap<String, Integer> FIELDS =
+      new HashMap<String, Integer>();
+
+  static {
+    FIELDS.put("author", FIELD_AUTHOR);
+    FIELDS.put("body", FIELD_BODY);
+    FIELDS.put("children", FIELD_CHILDREN);
+    FIELDS.put("comment_karma", FIELD_COMMENT_KARMA);
+    FIELDS.put("context", FIELD_CONTEXT);
+    FIELDS.put("created_utc", FIELD_CREATED_UTC);
+    FIELDS.put("description", FIELD_DESCRIPTION);
+    FIELDS.put("dest", FIELD_DEST);
+    FIELDS.put("display_name", FIELD_DISPLAY_NAME);
+    FIELDS.put("domain", FIELD_DOMAIN);
+    FIELDS.put("downs", FIELD_DOWNS);
+    FIELDS.put("has_mail", FIELD_HAS_MAIL);
+    FIELDS.put("header_img", FIELD_HEADER_IMG);
+    FIELDS.put("hidden", FIELD_HIDDEN);
+    FIELDS.put("id", FIELD_ID);
+    FIELDS.put("is_self", FIELD_IS_SELF);
+    FIELDS.put("likes", FIELD_LIKES);
+    FIELDS.put("link_id", FIELD_LINK_ID);
+    FIELDS.put("link_karma", FIELD_LINK_KARMA);
+    FIELDS.put("link_title", FIELD_LINK_TITLE);
+    FIELDS.put("name", FIELD_NAME);
+    FIELDS.put("new", FIELD_NEW);
+    FIELDS.put("num_comments", FIELD_NUM_COMMENTS);
+    FIELDS.put("over_18", FIELD_OVER_18);
+    FIELDS.put("over18", FIELD_OVER_18);
+    FIELDS.put("permalink", FIELD_PERMALINK);
+    FIELDS.put("replies", FIELD_REPLIES);
+    FIELDS.put("saved", FIELD_SAVED);
+    FIELDS.put("score", FIELD_SCORE);
+    FIELDS.put("selftext", FIELD_SELFTEXT);
+    FIELDS.put("subject", FIELD_SUBJECT);
+    FIELDS.put("subreddit", FIELD_SUBREDDIT);
+    FIELDS.put("subreddit_id", FIELD_SUBREDDIT_ID);
+    FIELDS.put("subscribers", FIELD_SUBSCRIBERS);
+    FIELDS.put("title", FIELD_TITLE);
+    FIELDS.put("thumbnail", FIELD_THUMBNAIL);
+    FIELDS.put("ups", FIELD_UPS);
+    FIELDS.put("url", FIELD_URL);
+    FIELDS.put("was_comment", FIELD_WAS_COMMENT);
+  }
+
   public int replyNesting;
 
   private int entityIndex;
 
-  public void parseListingArray(JsonReader r) throws IOException {
-    reset();
+  /** Strings the reader had allocated when the parse started. */
+  private int startAllocatedStrings;
+
+  /** Strings the reader had shared when the parse started. */
+  private int startSharedStrings;
+
+  public void parseListingArray(Utf8JsonReader r) throws IOException {
+    reset(r);
     onParseStart();
     doParseListingArray(r);
     onParseEnd();
+    logStats(r);
   }
 
-  public void parseListingObject(JsonReader r) throws IOException {
-    reset();
+  public void parseListingObject(Utf8JsonReader r) throws IOException {
+    reset(r);
     onParseStart();
     doParseListingObject(r);
     onParseEnd();
+    logStats(r);
   }
 
-  public void parseEntity(JsonReader r) throws IOException {
-    reset();
+  public void parseEntity(Utf8JsonReader r) throws IOException {
+    reset(r);
     onParseStart();
     doParseEntityObject(r);
     onParseEnd();
+    logStats(r);
   }
 
-  public void parseEntityData(JsonReader r) throws IOException {
-    reset();
+  public void parseEntityData(Utf8JsonReader r) throws IOException {
+    reset(r);
     onParseStart();
     doParseEntityData(r, 0);
     onParseEnd();
+    logStats(r);
   }
 
-  private void reset() {
+  private void reset(Utf8JsonReader r) {
     entityIndex = -1;
     replyNesting = 0;
+    startAllocatedStrings = r.getAllocatedStrings();
+    startSharedStrings = r.getSharedStrings();
+  }
+
+  private void logStats(Utf8JsonReader r) {
+    if (BuildConfig.DEBUG) {
+      Log.d(TAG, getClass().getSimpleName()
+          + " allocatedStrings: "
+          + (r.getAllocatedStrings() - startAllocatedStrings)
+          + " sharedStrings: " + (r.getSharedStrings() - startSharedStrings));
+    }
   }
 
-  private void doParseListingArray(JsonReader r) throws IOException {
+  private void doParseListingArray(Utf8JsonReader r) throws IOException {
     if (JsonToken.BEGIN_ARRAY == r.peek()) {
       r.beginArray();
       while (r.hasNext()) {
@@ -75,7 +191,7 @@ public class JsonParser {
     }
   }
 
-  private void doParseListingObject(JsonReader r) throws IOException {
+  private void doParseListingObject(Utf8JsonReader r) throws IOException {
     if (JsonToken.BEGIN_OBJECT == r.peek()) {
       r.beginObject();
       while (r.hasNext()) {
@@ -92,7 +208,7 @@ public class JsonParser {
     }
   }
 
-  private void doParseListingData(JsonReader r) throws IOException {
+  private void doParseListingData(Utf8JsonReader r) throws IOException {
     r.beginObject();
     while (r.hasNext()) {
       String name = r.nextName();
@@ -107,7 +223,7 @@ public class JsonParser {
     r.endObject();
   }
 
-  private void doParseListingChildren(JsonReader r) throws IOException {
+  private void doParseListingChildren(Utf8JsonReader r) throws IOException {
     r.beginArray();
     while (r.hasNext()) {
       doParseEntityObject(r);
@@ -115,7 +231,7 @@ public class JsonParser {
     r.endArray();
   }
 
-  private void doParseEntityObject(JsonReader r) throws IOException {
+  private void doParseEntityObject(Utf8JsonReader r) throws IOException {
     int i = ++entityIndex;
     onEntityStart(i);
     r.beginObject();
@@ -133,208 +249,285 @@ public class JsonParser {
     onEntityEnd(i);
   }
 
-  private void doParseEntityData(JsonReader r, int i) throws IOException {
+  private void doParseEntityData(Utf8JsonReader r, int i) throws IOException {
+    boolean[] parsedFields = getParsedFields();
     r.beginObject();
     while (r.hasNext()) {
       if (isNextNull(r)) {
         r.skipValue();
         continue;
       }
-      String name = r.nextName();
-      if ("author".equals(name)) {
-        onAuthor(r, i);
-      } else if ("body".equals(name)) {
-        onBody(r, i);
-      } else if ("children".equals(name)) {
-        onChildren(r, i);
-      } else if ("comment_karma".equals(name)) {
-        onCommentKarma(r, i);
-      } else if ("context".equals(name)) {
-        onContext(r, i);
-      } else if ("created_utc".equals(name)) {
-        onCreatedUtc(r, i);
-      } else if ("description".equals(name)) {
-        onDescription(r, i);
-      } else if ("dest".equals(name)) {
-        onDestination(r, i);
-      } else if ("display_name".equals(name)) {
-        onDisplayName(r, i);
-      } else if ("domain".equals(name)) {
-        onDomain(r, i);
-      } else if ("downs".equals(name)) {
-        onDowns(r, i);
-      } else if ("has_mail".equals(name)) {
-        onHasMail(r, i);
-      } else if ("header_img".equals(name)) {
-        onHeaderImage(r, i);
-      } else if ("hidden".equals(name)) {
-        onHidden(r, i);
-      } else if ("id".equals(name)) {
-        onId(r, i);
-      } else if ("is_self".equals(name)) {
-        onIsSelf(r, i);
-      } else if ("likes".equals(name)) {
-        onLikes(r, i);
-      } else if ("link_id".equals(name)) {
-        onLinkId(r, i);
-      } else if ("link_karma".equals(name)) {
-        onLinkKarma(r, i);
-      } else if ("link_title".equals(name)) {
-        onLinkTitle(r, i);
-      } else if ("name".equals(name)) {
-        onName(r, i);
-      } else if ("new".equals(name)) {
-        onNew(r, i);
-      } else if ("num_comments".equals(name)) {
-        onNumComments(r, i);
-      } else if ("over_18".equals(name) || "over18".equals(name)) {
-        onOver18(r, i);
-      } else if ("permalink".equals(name)) {
-        onPermaLink(r, i);
-      } else if ("replies".equals(name)) {
-        onReplies(r, i);
-      } else if ("saved".equals(name)) {
-        onSaved(r, i);
-      } else if ("score".equals(name)) {
-        onScore(r, i);
-      } else if ("selftext".equals(name)) {
-        onSelfText(r, i);
-      } else if ("subject".equals(name)) {
-        onSubject(r, i);
-      } else if ("subreddit".equals(name)) {
-        onSubreddit(r, i);
-      } else if ("subreddit_id".equals(name)) {
-        onSubredditId(r, i);
-      } else if ("subscribers".equals(name)) {
-        onSubscribers(r, i);
-      } else if ("title".equals(name)) {
-        onTitle(r, i);
-      } else if ("thumbnail".equals(name)) {
-        onThumbnail(r, i);
-      } else if ("ups".equals(name)) {
-        onUps(r, i);
-      } else if ("url".equals(name)) {
-        onUrl(r, i);
-      } else if ("was_comment".equals(name)) {
-        onWasComment(r, i);
-      } else {
+      int field = getField(r.nextName());
+      if (field == FIELD_UNKNOWN
+          || parsedFields != null && !parsedFields[field]) {
         r.skipValue();
+        continue;
+      }
+      switch (field) {
+        case FIELD_AUTHOR:
+          onAuthor(r, i);
+          break;
+        case FIELD_BODY:
+          onBody(r, i);
+          break;
+        case FIELD_CHILDREN:
+          onChildren(r, i);
+          break;
+        case FIELD_COMMENT_KARMA:
+          onCommentKarma(r, i);
+          break;
+        case FIELD_CONTEXT:
+          onContext(r, i);
+          break;
+        case FIELD_CREATED_UTC:
+          onCreatedUtc(r, i);
+          break;
+        case FIELD_DESCRIPTION:
+          onDescription(r, i);
+          break;
+        case FIELD_DEST:
+          onDestination(r, i);
+          break;
+        case FIELD_DISPLAY_NAME:
+          onDisplayName(r, i);
+          break;
+        case FIELD_DOMAIN:
+          onDomain(r, i);
+          break;
+        case FIELD_DOWNS:
+          onDowns(r, i);
+          break;
+        case FIELD_HAS_MAIL:
+          onHasMail(r, i);
+          break;
+        case FIELD_HEADER_IMG:
+          onHeaderImage(r, i);
+          break;
+        case FIELD_HIDDEN:
+          onHidden(r, i);
+          break;
+        case FIELD_ID:
+          onId(r, i);
+          break;
+        case FIELD_IS_SELF:
+          onIsSelf(r, i);
+          break;
+        case FIELD_LIKES:
+          onLikes(r, i);
+          break;
+        case FIELD_LINK_ID:
+          onLinkId(r, i);
+          break;
+        case FIELD_LINK_KARMA:
+          onLinkKarma(r, i);
+          break;
+        case FIELD_LINK_TITLE:
+          onLinkTitle(r, i);
+          break;
+        case FIELD_NAME:
+          onName(r, i);
+          break;
+        case FIELD_NEW:
+          onNew(r, i);
+          break;
+        case FIELD_NUM_COMMENTS:
+          onNumComments(r, i);
+          break;
+        case FIELD_OVER_18:
+          onOver18(r, i);
+          break;
+        case FIELD_PERMALINK:
+          onPermaLink(r, i);
+          break;
+        case FIELD_REPLIES:
+          onReplies(r, i);
+          break;
+        case FIELD_SAVED:
+          onSaved(r, i);
+          break;
+        case FIELD_SCORE:
+          onScore(r, i);
+          break;
+        case FIELD_SELFTEXT:
+          onSelfText(r, i);
+          break;
+        case FIELD_SUBJECT:
+          onSubject(r, i);
+          break;
+        case FIELD_SUBREDDIT:
+          onSubreddit(r, i);
+          break;
+        case FIELD_SUBREDDIT_ID:
+          onSubredditId(r, i);
+          break;
+        case FIELD_SUBSCRIBERS:
+          onSubscribers(r, i);
+          break;
+        case FIELD_TITLE:
+          onTitle(r, i);
+          break;
+        case FIELD_THUMBNAIL:
+          onThumbnail(r, i);
+          break;
+        case FIELD_UPS:
+          onUps(r, i);
+          break;
+        case FIELD_URL:
+          onUrl(r, i);
+          break;
+        case FIELD_WAS_COMMENT:
+          onWasComment(r, i);
+          break;
+        default:
+          r.skipValue();
+          break;
       }
     }
     r.endObject();
   }
 
+  /** Returns the field constant of the key or {@link #FIELD_UNKNOWN}. */
+  static int getField(String name) {
+    Integer field = FIELDS.get(name);
+    return field != null ? field : FIELD_UNKNOWN;
+  }
+
+  /**
+   * Returns fields for {@link #getParsedFields()} with the given keys of
+   * entity data like "author" or "replies".
+   */
+  protected static boolean[] newParsedFields(String... keys) {
+    boolean[] parsedFields = new boolean[NUM_FIELDS];
+    for (int i = 0; i < keys.length; i++) {
+      int field = getField(keys[i]);
+      if (field == FIELD_UNKNOWN) {
+        throw new IllegalArgumentException(keys[i]);
+      }
+      parsedFields[field] = true;
+    }
+    return parsedFields;
+  }
+
+  /**
+   * Returns the keys of entity data the parser wants callbacks for, or null
+   * for every key. Values of other keys are skipped as soon as their names are
+   * read, so they are never decoded into strings.
+   */
+  protected boolean[] getParsedFields() {
+    return null;
+  }
+
   public void onParseStart() {
   }
 
   public void onEntityStart(int i) {
   }
 
-  public void onAuthor(JsonReader r, int i) throws IOException {
+  public void onAuthor(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onBody(JsonReader r, int i) throws IOException {
+  public void onBody(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onChildren(JsonReader r, int i) throws IOException {
+  public void onChildren(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onCommentKarma(JsonReader r, int i) throws IOException {
+  public void onCommentKarma(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onContext(JsonReader r, int i) throws IOException {
+  public void onContext(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onCreatedUtc(JsonReader r, int i) throws IOException {
+  public void onCreatedUtc(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onDescription(JsonReader r, int i) throws IOException {
+  public void onDescription(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onDestination(JsonReader r, int i) throws IOException {
+  public void onDestination(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onDisplayName(JsonReader r, int i) throws IOException {
+  public void onDisplayName(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onDomain(JsonReader r, int i) throws IOException {
+  public void onDomain(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onDowns(JsonReader r, int i) throws IOException {
+  public void onDowns(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onHeaderImage(JsonReader r, int i) throws IOException {
+  public void onHeaderImage(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onKind(JsonReader r, int i) throws IOException {
+  public void onKind(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onHasMail(JsonReader r, int i) throws IOException {
+  public void onHasMail(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onHidden(JsonReader r, int i) throws IOException {
+  public void onHidden(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onId(JsonReader r, int i) throws IOException {
+  public void onId(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onIsSelf(JsonReader r, int i) throws IOException {
+  public void onIsSelf(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onLikes(JsonReader r, int i) throws IOException {
+  public void onLikes(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onLinkId(JsonReader r, int i) throws IOException {
+  public void onLinkId(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onLinkKarma(JsonReader r, int i) throws IOException {
+  public void onLinkKarma(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onLinkTitle(JsonReader r, int i) throws IOException {
+  public void onLinkTitle(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onName(JsonReader r, int i) throws IOException {
+  public void onName(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onNew(JsonReader r, int i) throws IOException {
+  public void onNew(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onNumComments(JsonReader r, int i) throws IOException {
+  public void onNumComments(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onOver18(JsonReader r, int i) throws IOException {
+  public void onOver18(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onPermaLink(JsonReader r, int i) throws IOException {
+  public void onPermaLink(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onReplies(JsonReader r, int i) throws IOException {
+  public void onReplies(Utf8JsonReader r, int i) throws IOException {
     if (shouldParseReplies()) {
       replyNesting++;
       doParseListingObject(r);
@@ -344,58 +537,58 @@ public class JsonParser {
     }
   }
 
-  public void onSaved(JsonReader r, int i) throws IOException {
+  public void onSaved(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onScore(JsonReader r, int i) throws IOException {
+  public void onScore(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onSelfText(JsonReader r, int i) throws IOException {
+  public void onSelfText(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onSubscribers(JsonReader r, int i) throws IOException {
+  public void onSubscribers(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onSubject(JsonReader r, int i) throws IOException {
+  public void onSubject(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onSubreddit(JsonReader r, int i) throws IOException {
+  public void onSubreddit(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onSubredditId(JsonReader r, int i) throws IOException {
+  public void onSubredditId(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onTitle(JsonReader r, int i) throws IOException {
+  public void onTitle(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onThumbnail(JsonReader r, int i) throws IOException {
+  public void onThumbnail(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onUps(JsonReader r, int i) throws IOException {
+  public void onUps(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onUrl(JsonReader r, int i) throws IOException {
+  public void onUrl(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
-  public void onWasComment(JsonReader r, int i) throws IOException {
+  public void onWasComment(Utf8JsonReader r, int i) throws IOException {
     r.skipValue();
   }
 
   public void onEntityEnd(int i) {
   }
 
-  public void onAfter(JsonReader r) throws IOException {
+  public void onAfter(Utf8JsonReader r) throws IOException {
     r.skipValue();
   }
 
@@ -406,7 +599,7 @@ public class JsonParser {
     return false;
   }
 
-  protected static boolean readBoolean(JsonReader r, boolean defaultValue)
+  protected static boolean readBoolean(Utf8JsonReader r, boolean defaultValue)
       throws IOException {
     if (isNextNull(r)) {
       r.skipValue();
@@ -415,7 +608,7 @@ public class JsonParser {
     return r.nextBoolean();
   }
 
-  protected static int readInt(JsonReader r, int defaultValue)
+  protected static int readInt(Utf8JsonReader r, int defaultValue)
       throws IOException {
     if (isNextNull(r)) {
       r.skipValue();
@@ -424,7 +617,7 @@ public class JsonParser {
     return r.nextInt();
   }
 
-  protected static long readLong(JsonReader r, long defaultValue)
+  protected static long readLong(Utf8JsonReader r, long defaultValue)
       throws IOException {
     if (isNextNull(r)) {
       r.skipValue();
@@ -433,7 +626,7 @@ public class JsonParser {
     return r.nextLong();
   }
 
-  protected static String readString(JsonReader r, String defaultValue)
+  protected static String readString(Utf8JsonReader r, String defaultValue)
       throws IOException {
     if (isNextNull(r)) {
       r.skipValue();
@@ -442,11 +635,25 @@ public class JsonParser {
     return r.nextString().trim();
   }
 
-  protected static boolean isNextBoolean(JsonReader r) throws IOException {
+  /**
+   * Reads a string like {@link #readString} that is likely to repeat across
+   * entities like a subreddit or author, so that one instance is shared.
+   */
+  protected static String readInternedString(
+      Utf8JsonReader r,
+      String defaultValue) throws IOException {
+    if (isNextNull(r)) {
+      r.skipValue();
+      return defaultValue;
+    }
+    return r.nextInternedString().trim();
+  }
+
+  protected static boolean isNextBoolean(Utf8JsonReader r) throws IOException {
     return JsonToken.BOOLEAN.equals(r.peek());
   }
 
-  protected static boolean isNextNull(JsonReader r) throws IOException {
+  protected static boolean isNextNull(Utf8JsonReader r) throws IOException {
     return JsonToken.NULL.equals(r.peek());
   }
 }
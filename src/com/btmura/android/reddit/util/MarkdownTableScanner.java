@@ -16,14 +16,16 @@
 
 package com.btmura.android.reddit.util;
 
-import android.text.TextUtils;
-import android.util.SparseIntArray;
 import android.view.Gravity;
 
 import com.btmura.android.reddit.util.MarkdownTableScanner.OnTableScanListener.Cell;
 
-import java.util.Scanner;
-
+/**
+ * {@link MarkdownTableScanner} scans the rows and cells of a markdown table in
+ * one pass over the indices of the text. The second line of column alignments
+ * is walked alongside each row, so no lines, tokens or column arrays are
+ * allocated besides the contents of each cell.
+ */
 public class MarkdownTableScanner {
 
   public interface OnTableScanListener<R> {
@@ -62,69 +64,134 @@ public class MarkdownTableScanner {
   public static <R> void scan(
       String tableData,
       OnTableScanListener<R> listener) {
-    SparseIntArray columnGravity = new SparseIntArray();
-    boolean hasOuterPipes = false;
-
-    Scanner scanner = new Scanner(tableData);
-    try {
-      if (scanner.hasNextLine()) {
-        scanner.nextLine();
-        if (scanner.hasNextLine()) {
-          String specs = scanner.nextLine();
-          hasOuterPipes = specs.startsWith("|");
-          String[] tokens = specs.split("\\|");
-          for (int i = 0; i < tokens.length; i++) {
-            columnGravity.put(i, getTableColumnGravity(tokens[i]));
+    int length = tableData.length();
+
+    // Column alignments are on the second line if there is one.
+    int specStart = getNextLineStart(tableData, getLineEnd(tableData, 0));
+    int specEnd = getLineEnd(tableData, specStart);
+    int columnCount = specStart < length
+        ? getTokenCount(tableData, specStart, specEnd)
+        : 0;
+    boolean hasOuterPipes = specStart < specEnd
+        && tableData.charAt(specStart) == '|';
+
+    Cell cell = null;
+    for (int rowIndex = 0, start = 0; start < length; rowIndex++) {
+      int end = getLineEnd(tableData, start);
+      if (rowIndex != 1) {
+        R row = listener.onRowStart();
+
+        // Positions of the current token of the row and alignment lines
+        // that are past the end of the line when it has no more tokens.
+        int cellStart = start;
+        int specCellStart = specStart;
+        for (int i = 0; i < columnCount; i++) {
+          int cellEnd = cellStart <= end
+              ? getTokenEnd(tableData, cellStart, end)
+              : cellStart;
+          int specCellEnd = getTokenEnd(tableData, specCellStart, specEnd);
+          if (!hasOuterPipes || i != 0) {
+            String contents = cellStart <= end
+                ? trim(tableData, cellStart, cellEnd)
+                : "";
+            int columnIndex = hasOuterPipes ? i - 1 : i;
+            int gravity = getTableColumnGravity(tableData,
+                specCellStart,
+                specCellEnd);
+            boolean isHeader = rowIndex == 0;
+
+            if (cell == null) {
+              cell = new Cell();
+            }
+            cell.set(contents, columnIndex, gravity, isHeader);
+            listener.onCell(row, cell);
           }
+          cellStart = cellEnd + 1;
+          specCellStart = specCellEnd + 1;
         }
+        listener.onRowEnd(row);
       }
-    } finally {
-      scanner.close();
+      start = getNextLineStart(tableData, end);
     }
+  }
 
-    scanner = new Scanner(tableData);
-    Cell cell = null;
-    try {
-      for (int rowIndex = 0; scanner.hasNextLine(); rowIndex++) {
-        String line = scanner.nextLine();
-
-        if (rowIndex == 1) {
-          continue;
-        }
+  /** Returns the end of the line like {@link java.util.Scanner} finds. */
+  private static int getLineEnd(String s, int start) {
+    int length = s.length();
+    for (int i = start; i < length; i++) {
+      switch (s.charAt(i)) {
+        case '\n':
+        case '\r':
+        case '\u2028':
+        case '\u2029':
+        case '\u0085':
+          return i;
+      }
+    }
+    return length;
+  }
 
-        R row = listener.onRowStart();
-        String[] tokens = line.split("\\|");
-        int columnCount = columnGravity.size();
-        for (int i = 0; i < columnCount; i++) {
-          if (hasOuterPipes && (i == 0 || i >= columnCount)) {
-            continue;
-          }
+  /** Returns the start of the line after the line ending at the index. */
+  private static int getNextLineStart(String s, int end) {
+    if (end + 1 < s.length()
+        && s.charAt(end) == '\r'
+        && s.charAt(end + 1) == '\n') {
+      return end + 2;
+    }
+    return Math.min(end + 1, s.length());
+  }
 
-          String contents = i < tokens.length ? tokens[i].trim() : "";
-          int columnIndex = hasOuterPipes ? i - 1 : i;
-          int gravity = columnGravity.get(i);
-          boolean isHeader = rowIndex == 0;
+  /** Returns the end of the token starting at the index. */
+  private static int getTokenEnd(String s, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (s.charAt(i) == '|') {
+        return i;
+      }
+    }
+    return end;
+  }
 
-          if (cell == null) {
-            cell = new Cell();
-          }
-          cell.set(contents, columnIndex, gravity, isHeader);
-          listener.onCell(row, cell);
-        }
-        listener.onRowEnd(row);
+  /**
+   * Returns the number of tokens that splitting the line on pipes would
+   * return, which drops trailing empty tokens unless there is no pipe.
+   */
+  private static int getTokenCount(String s, int start, int end) {
+    int count = 0;
+    int nonEmptyCount = 0;
+    for (int tokenStart = start; ; ) {
+      int tokenEnd = getTokenEnd(s, tokenStart, end);
+      count++;
+      if (tokenEnd > tokenStart) {
+        nonEmptyCount = count;
+      }
+      if (tokenEnd == end) {
+        break;
       }
-    } finally {
-      scanner.close();
+      tokenStart = tokenEnd + 1;
+    }
+    return count == 1 ? 1 : nonEmptyCount;
+  }
+
+  /** Returns the token without whitespace like {@link String#trim}. */
+  private static String trim(String s, int start, int end) {
+    while (start < end && s.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && s.charAt(end - 1) <= ' ') {
+      end--;
     }
+    return start < end ? s.substring(start, end) : "";
   }
 
-  private static int getTableColumnGravity(String cell) {
-    if (!TextUtils.isEmpty(cell) && cell.length() >= 2) {
-      if (cell.startsWith(":") && cell.endsWith(":")) {
+  private static int getTableColumnGravity(String s, int start, int end) {
+    if (end - start >= 2) {
+      boolean startColon = s.charAt(start) == ':';
+      boolean endColon = s.charAt(end - 1) == ':';
+      if (startColon && endColon) {
         return Gravity.CENTER;
-      } else if (cell.startsWith(":")) {
+      } else if (startColon) {
         return Gravity.START;
-      } else if (cell.endsWith(":")) {
+      } else if (endColon) {
         return Gravity.END;
       }
     }
@@ -0,0 +1,765 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.util;
+
+import android.util.JsonToken;
+import android.util.MalformedJsonException;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * {@link Utf8JsonReader} is a streaming JSON reader with the same methods as
+ * {@link android.util.JsonReader} that tokenizes the UTF-8 bytes of the stream
+ * directly instead of decoding every byte into chars first. Skipped values and
+ * numbers never become strings, and short names and values that are read with
+ * {@link #nextInternedString()} are compared against a bounded table of
+ * shared strings before any string is allocated.
+ */
+public final class Utf8JsonReader implements Closeable {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final int REPLACEMENT_CHARACTER = 0xfffd;
+
+  /** Number of slots in the intern table that must be a power of two. */
+  private static final int INTERN_TABLE_SIZE = 512;
+
+  /** Longer strings are unlikely to repeat and not worth keeping. */
+  private static final int MAX_INTERN_LENGTH = 32;
+
+  /**
+   * Table of shared strings. Each string maps to one slot and replaces
+   * whatever was there. Entries are immutable, so threads may race on a slot
+   * without locking and at worst miss a shared string.
+   */
+  private static final InternEntry[] INTERN_TABLE =
+      new InternEntry[INTERN_TABLE_SIZE];
+
+  // Kinds of tokens that were peeked but not consumed yet.
+  private static final int PEEKED_NONE = 0;
+  private static final int PEEKED_BEGIN_OBJECT = 1;
+  private static final int PEEKED_END_OBJECT = 2;
+  private static final int PEEKED_BEGIN_ARRAY = 3;
+  private static final int PEEKED_END_ARRAY = 4;
+  private static final int PEEKED_TRUE = 5;
+  private static final int PEEKED_FALSE = 6;
+  private static final int PEEKED_NULL = 7;
+  private static final int PEEKED_STRING = 8;
+  private static final int PEEKED_NAME = 9;
+  private static final int PEEKED_NUMBER = 10;
+  private static final int PEEKED_EOF = 11;
+
+  // Scopes of the nesting stack.
+  private static final int EMPTY_ARRAY = 1;
+  private static final int NONEMPTY_ARRAY = 2;
+  private static final int EMPTY_OBJECT = 3;
+  private static final int DANGLING_NAME = 4;
+  private static final int NONEMPTY_OBJECT = 5;
+  private static final int EMPTY_DOCUMENT = 6;
+  private static final int NONEMPTY_DOCUMENT = 7;
+  private static final int CLOSED = 8;
+
+  private final InputStream in;
+
+  private final byte[] buffer = new byte[8192];
+  private int pos;
+  private int limit;
+
+  /** Bytes of strings that span the buffer or contain escapes. */
+  private byte[] scratch = new byte[256];
+  private int scratchLength;
+
+  private int[] stack = new int[32];
+  private int stackSize;
+
+  private int peeked = PEEKED_NONE;
+
+  /** Length of a peeked number that starts at {@link #pos}. */
+  private int peekedNumberLength;
+
+  private int allocatedStrings;
+  private int sharedStrings;
+
+  public Utf8JsonReader(InputStream in) {
+    if (in == null) {
+      throw new NullPointerException("in == null");
+    }
+    this.in = in;
+    stack[stackSize++] = EMPTY_DOCUMENT;
+  }
+
+  public void beginArray() throws IOException {
+    expect(PEEKED_BEGIN_ARRAY, JsonToken.BEGIN_ARRAY);
+    push(EMPTY_ARRAY);
+    peeked = PEEKED_NONE;
+  }
+
+  public void endArray() throws IOException {
+    expect(PEEKED_END_ARRAY, JsonToken.END_ARRAY);
+    stackSize--;
+    peeked = PEEKED_NONE;
+  }
+
+  public void beginObject() throws IOException {
+    expect(PEEKED_BEGIN_OBJECT, JsonToken.BEGIN_OBJECT);
+    push(EMPTY_OBJECT);
+    peeked = PEEKED_NONE;
+  }
+
+  public void endObject() throws IOException {
+    expect(PEEKED_END_OBJECT, JsonToken.END_OBJECT);
+    stackSize--;
+    peeked = PEEKED_NONE;
+  }
+
+  public boolean hasNext() throws IOException {
+    int p = peekInternal();
+    return p != PEEKED_END_OBJECT && p != PEEKED_END_ARRAY && p != PEEKED_EOF;
+  }
+
+  public JsonToken peek() throws IOException {
+    switch (peekInternal()) {
+      case PEEKED_BEGIN_OBJECT:
+        return JsonToken.BEGIN_OBJECT;
+      case PEEKED_END_OBJECT:
+        return JsonToken.END_OBJECT;
+      case PEEKED_BEGIN_ARRAY:
+        return JsonToken.BEGIN_ARRAY;
+      case PEEKED_END_ARRAY:
+        return JsonToken.END_ARRAY;
+      case PEEKED_TRUE:
+      case PEEKED_FALSE:
+        return JsonToken.BOOLEAN;
+      case PEEKED_NULL:
+        return JsonToken.NULL;
+      case PEEKED_STRING:
+        return JsonToken.STRING;
+      case PEEKED_NAME:
+        return JsonToken.NAME;
+      case PEEKED_NUMBER:
+        return JsonToken.NUMBER;
+      default:
+        return JsonToken.END_DOCUMENT;
+    }
+  }
+
+  /** Returns the next property name, which is always interned. */
+  public String nextName() throws IOException {
+    expect(PEEKED_NAME, JsonToken.NAME);
+    peeked = PEEKED_NONE;
+    return readString(true);
+  }
+
+  public String nextString() throws IOException {
+    return nextString(false);
+  }
+
+  /**
+   * Returns the next string like {@link #nextString()} but shares one instance
+   * of short values that repeat like subreddits, authors or kinds.
+   */
+  public String nextInternedString() throws IOException {
+    return nextString(true);
+  }
+
+  private String nextString(boolean intern) throws IOException {
+    int p = peekInternal();
+    if (p == PEEKED_STRING) {
+      peeked = PEEKED_NONE;
+      return readString(intern);
+    }
+    if (p == PEEKED_NUMBER) {
+      peeked = PEEKED_NONE;
+      return readNumber();
+    }
+    throw unexpected(JsonToken.STRING);
+  }
+
+  public boolean nextBoolean() throws IOException {
+    int p = peekInternal();
+    if (p == PEEKED_TRUE || p == PEEKED_FALSE) {
+      peeked = PEEKED_NONE;
+      return p == PEEKED_TRUE;
+    }
+    throw unexpected(JsonToken.BOOLEAN);
+  }
+
+  public void nextNull() throws IOException {
+    expect(PEEKED_NULL, JsonToken.NULL);
+    peeked = PEEKED_NONE;
+  }
+
+  public double nextDouble() throws IOException {
+    return Double.parseDouble(nextNumber());
+  }
+
+  public long nextLong() throws IOException {
+    int p = peekInternal();
+    if (p == PEEKED_NUMBER) {
+      long value = parseLong(buffer, pos, peekedNumberLength);
+      if (value != Long.MIN_VALUE) {
+        pos += peekedNumberLength;
+        peeked = PEEKED_NONE;
+        return value;
+      }
+    }
+    return toLong(nextNumber());
+  }
+
+  public int nextInt() throws IOException {
+    long value = nextLong();
+    if (value != (int) value) {
+      throw new NumberFormatException("Expected an int but was " + value);
+    }
+    return (int) value;
+  }
+
+  /** Skips the next value including any nested arrays or objects. */
+  public void skipValue() throws IOException {
+    int count = 0;
+    do {
+      switch (peekInternal()) {
+        case PEEKED_BEGIN_ARRAY:
+          push(EMPTY_ARRAY);
+          count++;
+          break;
+        case PEEKED_BEGIN_OBJECT:
+          push(EMPTY_OBJECT);
+          count++;
+          break;
+        case PEEKED_END_ARRAY:
+        case PEEKED_END_OBJECT:
+          stackSize--;
+          count--;
+          break;
+        case PEEKED_STRING:
+        case PEEKED_NAME:
+          skipString();
+          break;
+        case PEEKED_NUMBER:
+          pos += peekedNumberLength;
+          break;
+        case PEEKED_EOF:
+          throw new EOFException("End of input");
+      }
+      peeked = PEEKED_NONE;
+    } while (count > 0);
+  }
+
+  /** Returns the number of strings allocated so far including numbers. */
+  public int getAllocatedStrings() {
+    return allocatedStrings;
+  }
+
+  /** Returns the number of strings served from the intern table so far. */
+  public int getSharedStrings() {
+    return sharedStrings;
+  }
+
+  @Override
+  public void close() throws IOException {
+    peeked = PEEKED_NONE;
+    stack[0] = CLOSED;
+    stackSize = 1;
+    in.close();
+  }
+
+  private void expect(int expected, JsonToken token) throws IOException {
+    if (peekInternal() != expected) {
+      throw unexpected(token);
+    }
+  }
+
+  private IllegalStateException unexpected(JsonToken expected)
+      throws IOException {
+    return new IllegalStateException("Expected " + expected + " but was "
+        + peek());
+  }
+
+  private void push(int scope) {
+    if (stackSize == stack.length) {
+      int[] newStack = new int[stackSize * 2];
+      System.arraycopy(stack, 0, newStack, 0, stackSize);
+      stack = newStack;
+    }
+    stack[stackSize++] = scope;
+  }
+
+  private int peekInternal() throws IOException {
+    return peeked != PEEKED_NONE ? peeked : doPeek();
+  }
+
+  private int doPeek() throws IOException {
+    int scope = stack[stackSize - 1];
+    switch (scope) {
+      case EMPTY_ARRAY:
+        stack[stackSize - 1] = NONEMPTY_ARRAY;
+        break;
+
+      case NONEMPTY_ARRAY:
+        switch (nextNonWhitespace()) {
+          case ']':
+            pos++;
+            return peeked = PEEKED_END_ARRAY;
+          case ',':
+            pos++;
+            break;
+          default:
+            throw syntaxError("Unterminated array");
+        }
+        break;
+
+      case EMPTY_OBJECT:
+      case NONEMPTY_OBJECT:
+        stack[stackSize - 1] = DANGLING_NAME;
+        if (scope == NONEMPTY_OBJECT) {
+          switch (nextNonWhitespace()) {
+            case '}':
+              pos++;
+              return peeked = PEEKED_END_OBJECT;
+            case ',':
+              pos++;
+              break;
+            default:
+              throw syntaxError("Unterminated object");
+          }
+        }
+        int c = nextNonWhitespace();
+        if (c == '"') {
+          pos++;
+          return peeked = PEEKED_NAME;
+        }
+        if (c == '}' && scope == EMPTY_OBJECT) {
+          pos++;
+          return peeked = PEEKED_END_OBJECT;
+        }
+        throw syntaxError("Expected name");
+
+      case DANGLING_NAME:
+        stack[stackSize - 1] = NONEMPTY_OBJECT;
+        if (nextNonWhitespace() != ':') {
+          throw syntaxError("Expected ':'");
+        }
+        pos++;
+        break;
+
+      case EMPTY_DOCUMENT:
+        stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+        break;
+
+      case NONEMPTY_DOCUMENT:
+        if (nextNonWhitespaceOrEof() == -1) {
+          return peeked = PEEKED_EOF;
+        }
+        throw syntaxError("Expected end of document");
+
+      default:
+        throw new IllegalStateException("Reader is closed");
+    }
+
+    int c = nextNonWhitespace();
+    switch (c) {
+      case ']':
+        if (scope == EMPTY_ARRAY) {
+          pos++;
+          return peeked = PEEKED_END_ARRAY;
+        }
+        throw syntaxError("Unexpected value");
+      case '"':
+        pos++;
+        return peeked = PEEKED_STRING;
+      case '{':
+        pos++;
+        return peeked = PEEKED_BEGIN_OBJECT;
+      case '[':
+        pos++;
+        return peeked = PEEKED_BEGIN_ARRAY;
+      case 't':
+        return peeked = peekKeyword("true", PEEKED_TRUE);
+      case 'f':
+        return peeked = peekKeyword("false", PEEKED_FALSE);
+      case 'n':
+        return peeked = peekKeyword("null", PEEKED_NULL);
+      default:
+        if (c == '-' || c >= '0' && c <= '9') {
+          return peeked = peekNumber();
+        }
+        throw syntaxError("Unexpected value");
+    }
+  }
+
+  private int peekKeyword(String keyword, int peeking) throws IOException {
+    int length = keyword.length();
+    if (limit - pos < length && !fill(length)) {
+      throw syntaxError("Unexpected value");
+    }
+    for (int i = 0; i < length; i++) {
+      if (buffer[pos + i] != keyword.charAt(i)) {
+        throw syntaxError("Unexpected value");
+      }
+    }
+    pos += length;
+    return peeking;
+  }
+
+  /** Peeks a number by making sure all of its bytes are in the buffer. */
+  private int peekNumber() throws IOException {
+    int i = 0;
+    while (true) {
+      if (pos + i == limit) {
+        if (i == buffer.length) {
+          throw syntaxError("Number too long");
+        }
+        if (!fill(i + 1)) {
+          break;
+        }
+      }
+      byte c = buffer[pos + i];
+      if (c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.'
+          || c == 'e' || c == 'E') {
+        i++;
+      } else {
+        break;
+      }
+    }
+    peekedNumberLength = i;
+    return PEEKED_NUMBER;
+  }
+
+  private String nextNumber() throws IOException {
+    int p = peekInternal();
+    if (p == PEEKED_NUMBER) {
+      peeked = PEEKED_NONE;
+      return readNumber();
+    }
+    if (p == PEEKED_STRING) {
+      peeked = PEEKED_NONE;
+      return readString(false);
+    }
+    throw unexpected(JsonToken.NUMBER);
+  }
+
+  private String readNumber() {
+    String value = newString(buffer, pos, peekedNumberLength);
+    pos += peekedNumberLength;
+    return value;
+  }
+
+  /**
+   * Parses a plain integer without allocating or returns Long.MIN_VALUE if it
+   * has a fraction, an exponent or too many digits.
+   */
+  private static long parseLong(byte[] b, int offset, int length) {
+    int i = offset;
+    int end = offset + length;
+    boolean negative = i < end && b[i] == '-';
+    if (negative) {
+      i++;
+    }
+    if (i == end || end - i > 18) {
+      return Long.MIN_VALUE;
+    }
+    long value = 0;
+    for (; i < end; i++) {
+      int digit = b[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return Long.MIN_VALUE;
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  private static long toLong(String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      // Fall back to doubles like 1.445E9 that still have a long value.
+      double d = Double.parseDouble(value);
+      long l = (long) d;
+      if (l != d) {
+        throw new NumberFormatException("Expected a long but was " + value);
+      }
+      return l;
+    }
+  }
+
+  /** Reads the rest of a string whose opening quote was consumed. */
+  private String readString(boolean intern) throws IOException {
+    // Fast path for strings without escapes that are in the buffer already.
+    for (int i = pos; i < limit; i++) {
+      byte c = buffer[i];
+      if (c == '"') {
+        int start = pos;
+        pos = i + 1;
+        return intern ? intern(buffer, start, i - start)
+            : newString(buffer, start, i - start);
+      }
+      if (c == '\\') {
+        break;
+      }
+    }
+
+    scratchLength = 0;
+    while (true) {
+      int start = pos;
+      while (pos < limit) {
+        byte c = buffer[pos];
+        if (c == '"' || c == '\\') {
+          break;
+        }
+        pos++;
+      }
+      appendScratch(buffer, start, pos - start);
+      if (pos == limit) {
+        if (!fill(1)) {
+          throw syntaxError("Unterminated string");
+        }
+        continue;
+      }
+      if (buffer[pos++] == '"') {
+        return intern ? intern(scratch, 0, scratchLength)
+            : newString(scratch, 0, scratchLength);
+      }
+      readEscape();
+    }
+  }
+
+  /** Reads an escape whose backslash was consumed into the scratch bytes. */
+  private void readEscape() throws IOException {
+    if (pos == limit && !fill(1)) {
+      throw syntaxError("Unterminated escape sequence");
+    }
+    byte c = buffer[pos++];
+    switch (c) {
+      case 'u':
+        int codePoint = readHex();
+        if (Character.isHighSurrogate((char) codePoint)
+            && (limit - pos >= 2 || fill(2))
+            && buffer[pos] == '\\' && buffer[pos + 1] == 'u') {
+          pos += 2;
+          int low = readHex();
+          if (Character.isLowSurrogate((char) low)) {
+            codePoint = Character.toCodePoint((char) codePoint, (char) low);
+          } else {
+            appendUtf8(REPLACEMENT_CHARACTER);
+            codePoint = low;
+          }
+        }
+        // Unpaired surrogates can't be encoded, so replace them.
+        appendUtf8(codePoint >= Character.MIN_SURROGATE
+            && codePoint <= Character.MAX_SURROGATE
+            ? REPLACEMENT_CHARACTER : codePoint);
+        break;
+      case 't':
+        appendUtf8('\t');
+        break;
+      case 'b':
+        appendUtf8('\b');
+        break;
+      case 'n':
+        appendUtf8('\n');
+        break;
+      case 'r':
+        appendUtf8('\r');
+        break;
+      case 'f':
+        appendUtf8('\f');
+        break;
+      default:
+        // Covers quotes, backslashes and slashes.
+        appendUtf8(c & 0xff);
+        break;
+    }
+  }
+
+  private int readHex() throws IOException {
+    if (limit - pos < 4 && !fill(4)) {
+      throw syntaxError("Unterminated escape sequence");
+    }
+    int value = 0;
+    for (int i = 0; i < 4; i++) {
+      int c = buffer[pos++];
+      int digit = Character.digit(c, 16);
+      if (digit == -1) {
+        throw syntaxError("Invalid escape sequence");
+      }
+      value = value << 4 | digit;
+    }
+    return value;
+  }
+
+  private void skipString() throws IOException {
+    while (true) {
+      while (pos < limit) {
+        byte c = buffer[pos++];
+        if (c == '"') {
+          return;
+        }
+        if (c == '\\') {
+          // The escaped byte is never a quote that ends the string.
+          if (pos == limit && !fill(1)) {
+            break;
+          }
+          pos++;
+        }
+      }
+      if (!fill(1)) {
+        throw syntaxError("Unterminated string");
+      }
+    }
+  }
+
+  private void appendScratch(byte[] b, int offset, int length) {
+    ensureScratch(length);
+    System.arraycopy(b, offset, scratch, scratchLength, length);
+    scratchLength += length;
+  }
+
+  private void appendUtf8(int codePoint) {
+    ensureScratch(4);
+    if (codePoint < 0x80) {
+      scratch[scratchLength++] = (byte) codePoint;
+    } else if (codePoint < 0x800) {
+      scratch[scratchLength++] = (byte) (0xc0 | codePoint >> 6);
+      scratch[scratchLength++] = (byte) (0x80 | codePoint & 0x3f);
+    } else if (codePoint < 0x10000) {
+      scratch[scratchLength++] = (byte) (0xe0 | codePoint >> 12);
+      scratch[scratchLength++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+      scratch[scratchLength++] = (byte) (0x80 | codePoint & 0x3f);
+    } else {
+      scratch[scratchLength++] = (byte) (0xf0 | codePoint >> 18);
+      scratch[scratchLength++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+      scratch[scratchLength++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+      scratch[scratchLength++] = (byte) (0x80 | codePoint & 0x3f);
+    }
+  }
+
+  private void ensureScratch(int length) {
+    if (scratchLength + length > scratch.length) {
+      byte[] newScratch =
+          new byte[Math.max(scratch.length * 2, scratchLength + length)];
+      System.arraycopy(scratch, 0, newScratch, 0, scratchLength);
+      scratch = newScratch;
+    }
+  }
+
+  private String newString(byte[] b, int offset, int length) {
+    allocatedStrings++;
+    return new String(b, offset, length, UTF_8);
+  }
+
+  /** Returns a shared string of the bytes if possible before allocating. */
+  private String intern(byte[] b, int offset, int length) {
+    if (length > MAX_INTERN_LENGTH) {
+      return newString(b, offset, length);
+    }
+    int hash = 0;
+    for (int i = offset; i < offset + length; i++) {
+      hash = 31 * hash + b[i];
+    }
+    int index = (hash ^ hash >>> 16) & (INTERN_TABLE_SIZE - 1);
+    InternEntry entry = INTERN_TABLE[index];
+    if (entry != null && entry.matches(b, offset, length)) {
+      sharedStrings++;
+      return entry.value;
+    }
+    String value = newString(b, offset, length);
+    byte[] bytes = new byte[length];
+    System.arraycopy(b, offset, bytes, 0, length);
+    INTERN_TABLE[index] = new InternEntry(bytes, value);
+    return value;
+  }
+
+  /**
+   * Returns the next byte that isn't whitespace without consuming it. Throws
+   * an EOFException at the end of the stream.
+   */
+  private int nextNonWhitespace() throws IOException {
+    int c = nextNonWhitespaceOrEof();
+    if (c == -1) {
+      throw new EOFException("End of input");
+    }
+    return c;
+  }
+
+  private int nextNonWhitespaceOrEof() throws IOException {
+    while (true) {
+      if (pos == limit && !fill(1)) {
+        return -1;
+      }
+      int c = buffer[pos];
+      if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+        pos++;
+      } else {
+        return c;
+      }
+    }
+  }
+
+  /**
+   * Moves the unread bytes to the start of the buffer and reads until at
+   * least the given number are available. Returns false at the end of the
+   * stream.
+   */
+  private boolean fill(int minimum) throws IOException {
+    if (pos != 0) {
+      limit -= pos;
+      System.arraycopy(buffer, pos, buffer, 0, limit);
+      pos = 0;
+    }
+    while (limit < minimum) {
+      int read = in.read(buffer, limit, buffer.length - limit);
+      if (read == -1) {
+        return false;
+      }
+      limit += read;
+    }
+    return true;
+  }
+
+  private IOException syntaxError(String message) {
+    return new MalformedJsonException(message);
+  }
+
+  private static class InternEntry {
+
+    final byte[] bytes;
+    final String value;
+
+    InternEntry(byte[] bytes, String value) {
+      this.bytes = bytes;
+      this.value = value;
+    }
+
+    boolean matches(byte[] b, int offset, int length) {
+      if (bytes.length != length) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (bytes[i] != b[offset + i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.widget;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.btmura.android.reddit.BuildConfig;
+import com.btmura.android.reddit.text.MarkdownFormatter;
+import com.btmura.android.reddit.text.MarkdownSpans;
+import com.btmura.android.reddit.util.Objects;
+import com.btmura.android.reddit.util.Strings;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link BodyCache} keeps the bodies that {@link ThingView} shows by thing id
+ * and body hash, so rebinding rows after a cursor swap for a vote, expand or
+ * collapse reuses the formatted text instead of formatting it again. It is
+ * emptied by {@link com.btmura.android.reddit.app.RedditApplication} when the
+ * system asks the app to trim its memory.
+ */
+public class BodyCache {
+
+  public static final String TAG = "BodyCache";
+
+  /** Maximum number of characters of bodies and formatted text to keep. */
+  private static final int MAX_CHARS = 128 * 1024;
+
+  private static final LruCache<Key, Entry> CACHE =
+      new LruCache<Key, Entry>(MAX_CHARS) {
+        @Override
+        protected int sizeOf(Key key, Entry value) {
+          return value.body.length() + value.text.length() + 1;
+        }
+      };
+
+  private static final AtomicInteger HITS = new AtomicInteger();
+  private static final AtomicInteger MISSES = new AtomicInteger();
+
+  private static class Key {
+    final String thingId;
+    final int bodyHash;
+    final int maxTextLength;
+
+    Key(String thingId, int bodyHash, int maxTextLength) {
+      this.thingId = thingId;
+      this.bodyHash = bodyHash;
+      this.maxTextLength = maxTextLength;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key) o;
+      return bodyHash == k.bodyHash
+          && maxTextLength == k.maxTextLength
+          && Objects.equals(thingId, k.thingId);
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = thingId.hashCode();
+      hash = 31 * hash + bodyHash;
+      return 31 * hash + maxTextLength;
+    }
+  }
+
+  /** Formatted body ready to be shown along with its hash for layouts. */
+  static class Entry {
+    final CharSequence body;
+    final CharSequence text;
+    final int textHash;
+
+    Entry(CharSequence body, CharSequence text) {
+      this.body = body;
+      this.text = text;
+      this.textHash = LayoutCache.hashText(text);
+    }
+  }
+
+  /**
+   * Returns the body formatted from its span runs or the formatter and
+   * ellipsized to the maximum length. Bodies without thing ids like pending
+   * comments aren't cached. Can be called from any thread with a formatter
+   * owned by that thread.
+   */
+  static Entry get(
+      Context ctx,
+      String thingId,
+      CharSequence body,
+      byte[] bodySpans,
+      int maxTextLength,
+      MarkdownFormatter formatter) {
+    if (TextUtils.isEmpty(thingId)) {
+      return format(ctx, body, bodySpans, maxTextLength, formatter);
+    }
+
+    Key key = new Key(thingId, LayoutCache.hashText(body), maxTextLength);
+    Entry entry = CACHE.get(key);
+    if (entry != null && TextUtils.equals(body, entry.body)) {
+      HITS.incrementAndGet();
+      return entry;
+    }
+
+    MISSES.incrementAndGet();
+    entry = format(ctx, body, bodySpans, maxTextLength, formatter);
+    CACHE.put(key, entry);
+    return entry;
+  }
+
+  /** Returns the number of bodies found in the cache. */
+  static int hitCount() {
+    return HITS.get();
+  }
+
+  /** Returns the number of bodies that had to be formatted. */
+  static int missCount() {
+    return MISSES.get();
+  }
+
+  /** Removes all the bodies from the cache. */
+  public static void evictAll() {
+    if (BuildConfig.DEBUG) {
+      Log.d(TAG, "evictAll hits: " + hitCount() + " misses: " + missCount()
+          + " chars: " + CACHE.size());
+    }
+    CACHE.evictAll();
+  }
+
+  private static Entry format(
+      Context ctx,
+      CharSequence body,
+      byte[] bodySpans,
+      int maxTextLength,
+      MarkdownFormatter formatter) {
+    // Rebuild the spans formatted at ingest and only format pending bodies.
+    CharSequence formatted = bodySpans != null
+        ? MarkdownSpans.decode(body, bodySpans)
+        : null;
+    if (formatted == null) {
+      formatted = formatter.formatSpans(ctx, body);
+    }
+    return new Entry(body, Strings.ellipsize(formatted, maxTextLength));
+  }
+}
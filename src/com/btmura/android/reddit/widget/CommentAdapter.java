@@ -18,6 +18,7 @@ package com.btmura.android.reddit.widget;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.text.TextUtils;
 import android.view.View;
 import android.view.ViewGroup;
 
@@ -26,23 +27,118 @@ import com.btmura.android.reddit.content.CommentLoader;
 import com.btmura.android.reddit.text.MarkdownFormatter;
 import com.btmura.android.reddit.widget.ThingView.OnThingViewClickListener;
 
+import java.util.ArrayList;
+import java.util.concurrent.Future;
+
 public class CommentAdapter extends BaseCursorAdapter {
 
+  /** Number of rows around the bound row whose bodies are laid out ahead. */
+  private static final int PREFETCH_ROWS = 40;
+
   private final MarkdownFormatter formatter = new MarkdownFormatter();
   private final long nowTimeMs = System.currentTimeMillis();
 
+  private final Context ctx;
   private final String accountName;
   private final OnThingViewClickListener listener;
 
+  /** Width that the list measures its rows with or 0 if not known yet. */
+  private int rowWidth;
+
+  /** Row around which the bodies were last laid out ahead or -1 if none. */
+  private int prefetchPosition = -1;
+  private Future<?> prefetch;
+
   public CommentAdapter(
       Context ctx,
       String accountName,
       OnThingViewClickListener listener) {
     super(ctx, null, 0);
+    this.ctx = ctx;
     this.accountName = accountName;
     this.listener = listener;
   }
 
+  @Override
+  public Cursor swapCursor(Cursor newCursor) {
+    Cursor oldCursor = super.swapCursor(newCursor);
+    cancelPrefetch();
+    return oldCursor;
+  }
+
+  @Override
+  public View getView(int position, View convertView, ViewGroup parent) {
+    View v = super.getView(position, convertView, parent);
+
+    // Lay out the bodies ahead once the list has a width to measure rows
+    // and a view has set up the paints. Do it again when the width changes
+    // or the list has scrolled a ways from the last rows laid out.
+    int width = parent.getWidth() - parent.getPaddingLeft()
+        - parent.getPaddingRight();
+    if (width > 0 && width != rowWidth) {
+      rowWidth = width;
+      prefetchLayouts(position);
+    } else if (rowWidth > 0
+        && (prefetchPosition == -1
+        || Math.abs(position - prefetchPosition) >= PREFETCH_ROWS / 4)) {
+      prefetchLayouts(position);
+    }
+    return v;
+  }
+
+  private void cancelPrefetch() {
+    if (prefetch != null) {
+      prefetch.cancel(true);
+      prefetch = null;
+    }
+    prefetchPosition = -1;
+  }
+
+  /**
+   * Lays out the expanded bodies of the rows around the position on a
+   * background thread, so {@link ThingView#onMeasure} finds them in the
+   * {@link LayoutCache} instead of making them while flinging through the
+   * comments. Only a window of rows is read, since the cursor can't be shared
+   * with the worker and reading all of it would stall the main thread.
+   */
+  private void prefetchLayouts(int position) {
+    cancelPrefetch();
+
+    Cursor c = getCursor();
+    if (c == null) {
+      return;
+    }
+    prefetchPosition = position;
+
+    boolean drawVotingArrows = AccountUtils.isAccount(accountName);
+    ArrayList<LayoutCache.Body> bodies = new ArrayList<LayoutCache.Body>();
+    int start = Math.max(0, position - PREFETCH_ROWS / 4);
+    int end = Math.min(c.getCount(), start + PREFETCH_ROWS);
+    for (int i = start; i < end && c.moveToPosition(i); i++) {
+      String body = c.getString(CommentLoader.INDEX_BODY);
+      if (c.getInt(CommentLoader.INDEX_EXPANDED) == 1
+          && !TextUtils.isEmpty(body)) {
+        int width = ThingView.getBodyWidth(rowWidth,
+            0,
+            c.getInt(CommentLoader.INDEX_NESTING),
+            drawVotingArrows,
+            false);
+        bodies.add(new LayoutCache.Body(c.getString(
+            CommentLoader.INDEX_THING_ID),
+            body,
+            c.getBlob(CommentLoader.INDEX_BODY_SPANS),
+            width));
+      }
+    }
+    if (!bodies.isEmpty()) {
+      // Comments aren't new and use the full body length.
+      prefetch = LayoutCache.prefetch(ctx,
+          bodies,
+          CustomView.TEXT_PAINTS[CustomView.THING_BODY],
+          -1);
+    }
+  }
+
   @Override
   public View newView(Context ctx, Cursor c, ViewGroup parent) {
     return new ThingView(ctx);
@@ -52,6 +148,7 @@ public class CommentAdapter extends BaseCursorAdapter {
   public void bindView(View view, Context ctx, Cursor c) {
     final String author = c.getString(CommentLoader.INDEX_AUTHOR);
     final String body = c.getString(CommentLoader.INDEX_BODY);
+    final byte[] bodySpans = c.getBlob(CommentLoader.INDEX_BODY_SPANS);
     final long createdUtc = c.getLong(CommentLoader.INDEX_CREATED_UTC);
     final String destination = null; // Only messages have destinations.
     final String domain = null; // Only posts have domains.
@@ -84,6 +181,7 @@ public class CommentAdapter extends BaseCursorAdapter {
     tv.setStatusClickable(true);
     tv.setData(author,
         body,
+        bodySpans,
         createdUtc,
         destination,
         domain,
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.widget;
+
+import android.content.Context;
+import android.os.Process;
+import android.text.Layout;
+import android.text.Layout.Alignment;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.btmura.android.reddit.BuildConfig;
+import com.btmura.android.reddit.text.MarkdownFormatter;
+import com.btmura.android.reddit.util.Objects;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link LayoutCache} keeps the {@link StaticLayout}s of {@link ThingView}
+ * text by thing id, width, text and paint, so measuring rows while scrolling
+ * reuses layouts instead of making new ones. Adapters can fill it on a
+ * background thread with {@link #prefetch} as soon as they know the bodies
+ * and widths of their rows.
+ */
+public class LayoutCache {
+
+  public static final String TAG = "LayoutCache";
+
+  /** Maximum number of characters of text kept by all the layouts. */
+  private static final int MAX_CHARS = 256 * 1024;
+
+  /** Maximum number of characters to lay out ahead in one batch. */
+  private static final int MAX_PREFETCH_CHARS = MAX_CHARS / 2;
+
+  private static final LruCache<Key, Layout> CACHE =
+      new LruCache<Key, Layout>(MAX_CHARS) {
+        @Override
+        protected int sizeOf(Key key, Layout value) {
+          return value.getText().length() + 1;
+        }
+      };
+
+  private static final ExecutorService EXECUTOR =
+      Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          return new Thread(new Runnable() {
+            @Override
+            public void run() {
+              Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+              r.run();
+            }
+          }, TAG);
+        }
+      });
+
+  /**
+   * Key of a layout that views can reuse for each lookup. The text is compared
+   * on a hit, so different texts with the same hash don't share a layout.
+   */
+  static class Key {
+    String thingId;
+    int width;
+    CharSequence text;
+    int textHash;
+    TextPaint paint;
+
+    Key set(
+        String thingId,
+        int width,
+        CharSequence text,
+        int textHash,
+        TextPaint paint) {
+      this.thingId = thingId;
+      this.width = width;
+      this.text = text;
+      this.textHash = textHash;
+      this.paint = paint;
+      return this;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key k = (Key) o;
+      return width == k.width
+          && textHash == k.textHash
+          && paint == k.paint
+          && Objects.equals(thingId, k.thingId)
+          && TextUtils.equals(text, k.text);
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = thingId != null ? thingId.hashCode() : 0;
+      hash = 31 * hash + width;
+      hash = 31 * hash + textHash;
+      return 31 * hash + System.identityHashCode(paint);
+    }
+  }
+
+  /** Body of a row to lay out ahead of the row being measured. */
+  static class Body {
+    final String thingId;
+    final String body;
+    final byte[] bodySpans;
+    final int width;
+
+    Body(String thingId, String body, byte[] bodySpans, int width) {
+      this.thingId = thingId;
+      this.body = body;
+      this.bodySpans = bodySpans;
+      this.width = width;
+    }
+  }
+
+  /** Returns the cached layout for the key or null if there is none. */
+  static Layout get(Key key) {
+    return CACHE.get(key);
+  }
+
+  /** Caches the layout under a copy of the key. */
+  static void put(Key key, Layout layout) {
+    CACHE.put(new Key().set(key.thingId,
+        key.width,
+        key.text,
+        key.textHash,
+        key.paint), layout);
+  }
+
+  /** Removes all the layouts from the cache. */
+  public static void evictAll() {
+    CACHE.evictAll();
+  }
+
+  static Layout makeLayout(TextPaint paint, CharSequence text, int width) {
+    return new StaticLayout(text,
+        paint,
+        width,
+        Alignment.ALIGN_NORMAL,
+        1f,
+        0f,
+        true);
+  }
+
+  /** Returns a hash of the characters of the text ignoring any spans. */
+  static int hashText(CharSequence text) {
+    if (text == null) {
+      return 0;
+    }
+    if (text instanceof String) {
+      return text.hashCode();
+    }
+    int hash = 0;
+    int length = text.length();
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + text.charAt(i);
+    }
+    return hash;
+  }
+
+  /**
+   * Formats and lays out the bodies on a background thread the way
+   * {@link ThingView} would with the paint and maximum text length, which also
+   * puts the formatted bodies into the {@link BodyCache}. Returns a
+   * future to cancel when the bodies are replaced by another cursor.
+   */
+  static Future<?> prefetch(
+      Context ctx,
+      final List<Body> bodies,
+      TextPaint paint,
+      final int maxTextLength) {
+    final Context appContext = ctx.getApplicationContext();
+    final TextPaint keyPaint = paint;
+
+    // Lay out with a copy, since the view may use the paint at the same time.
+    final TextPaint layoutPaint = new TextPaint(paint);
+
+    return EXECUTOR.submit(new Runnable() {
+      @Override
+      public void run() {
+        MarkdownFormatter formatter = new MarkdownFormatter();
+        Key key = new Key();
+        int chars = 0;
+        int count = bodies.size();
+        int i = 0;
+        for (; i < count && chars < MAX_PREFETCH_CHARS; i++) {
+          if (Thread.interrupted()) {
+            break;
+          }
+          Body b = bodies.get(i);
+          BodyCache.Entry entry = BodyCache.get(appContext,
+              b.thingId,
+              b.body,
+              b.bodySpans,
+              maxTextLength,
+              formatter);
+          key.set(b.thingId, b.width, entry.text, entry.textHash, keyPaint);
+          if (get(key) == null) {
+            put(key, makeLayout(layoutPaint, entry.text, b.width));
+          }
+          chars += entry.text.length();
+        }
+        if (BuildConfig.DEBUG) {
+          Log.d(TAG, "prefetched: " + i + "/" + count + " chars: " + chars);
+        }
+      }
+    });
+  }
+}
@@ -59,6 +59,7 @@ public class MessageListAdapter extends AbstractThingListAdapter {
   private void bindMessageThingView(View v, Cursor c) {
     final String author = c.getString(MessageThingLoader.INDEX_AUTHOR);
     final String body = c.getString(MessageThingLoader.INDEX_BODY);
+    final byte[] bodySpans = c.getBlob(MessageThingLoader.INDEX_BODY_SPANS);
     final long createdUtc = c.getLong(
         MessageThingLoader.INDEX_CREATED_UTC);
     final String destination = c.getString(
@@ -88,6 +89,7 @@ public class MessageListAdapter extends AbstractThingListAdapter {
     ThingView tv = (ThingView) v;
     tv.setData(author,
         body,
+        bodySpans,
         createdUtc,
         destination,
         domain,
@@ -50,6 +50,7 @@ public class MessageThreadAdapter extends BaseCursorAdapter {
   public void bindView(View view, Context ctx, Cursor c) {
     final String author = c.getString(MessageThreadLoader.INDEX_AUTHOR);
     final String body = c.getString(MessageThreadLoader.INDEX_BODY);
+    final byte[] bodySpans = c.getBlob(MessageThreadLoader.INDEX_BODY_SPANS);
     final long createdUtc = c.getLong(
         MessageThreadLoader.INDEX_CREATED_UTC);
     final String destination = null;
@@ -81,6 +82,7 @@ public class MessageThreadAdapter extends BaseCursorAdapter {
     tv.setType(ThingView.TYPE_MESSAGE_THREAD_LIST);
     tv.setData(author,
         body,
+        bodySpans,
         createdUtc,
         destination,
         domain,
@@ -92,6 +92,7 @@ public class ThingListAdapter extends AbstractThingListAdapter
   private void bindThingView(View v, Context ctx, Cursor c) {
     final String author = c.getString(INDEX_AUTHOR);
     final String body = c.getString(INDEX_BODY);
+    final byte[] bodySpans = c.getBlob(INDEX_BODY_SPANS);
     final long createdUtc = c.getLong(INDEX_CREATED_UTC);
     final String destination = null; // Only messages have destinations.
     final String domain = c.getString(INDEX_DOMAIN);
@@ -125,6 +126,7 @@ public class ThingListAdapter extends AbstractThingListAdapter
     ThingView tv = (ThingView) v;
     tv.setData(author,
         body,
+        bodySpans,
         createdUtc,
         destination,
         domain,
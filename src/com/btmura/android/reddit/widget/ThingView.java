@@ -21,7 +21,6 @@ import android.text.Layout;
 import android.text.Layout.Alignment;
 import android.text.Spannable;
 import android.text.SpannableStringBuilder;
-import android.text.StaticLayout;
 import android.text.TextPaint;
 import android.text.TextUtils;
 import android.text.TextUtils.TruncateAt;
@@ -121,6 +120,7 @@ public class ThingView extends CustomView implements OnGestureListener {
   private CharSequence linkTitle;
   private String subreddit;
   private int thingBodyWidth;
+  private String thingId;
   private CharSequence title;
   private int ups;
 
@@ -154,6 +154,10 @@ public class ThingView extends CustomView implements OnGestureListener {
   private Layout linkTitleLayout;
   private Layout titleLayout;
   private Layout bodyLayout;
+  private final LayoutCache.Key layoutKey = new LayoutCache.Key();
+  private int linkTitleHash;
+  private int titleHash;
+  private int bodyHash;
   private BoringLayout.Metrics statusMetrics;
   private BoringLayout statusLayout;
 
@@ -242,6 +246,7 @@ public class ThingView extends CustomView implements OnGestureListener {
   public void setData(
       String author,
       CharSequence body,
+      byte[] bodySpans,
       long createdUtc,
       String destination,
       String domain,
@@ -282,8 +287,11 @@ public class ThingView extends CustomView implements OnGestureListener {
     this.linkTitle = Strings.ellipsize(linkTitle, maxTextLength);
     this.subreddit = subreddit;
     this.thingBodyWidth = thingBodyWidth;
+    this.thingId = thingId;
     this.title = Strings.ellipsize(title, maxTextLength);
     this.ups = ups;
+    linkTitleHash = LayoutCache.hashText(this.linkTitle);
+    titleHash = LayoutCache.hashText(this.title);
 
     this.drawVotingArrows = drawVotingArrows;
     isVotable = drawVotingArrows && !TextUtils.isEmpty(thingId) && expanded;
@@ -295,7 +303,7 @@ public class ThingView extends CustomView implements OnGestureListener {
       scoreText = VotingArrows.getScoreText(score);
     }
 
-    setBodyFields(body, isNew, formatter);
+    setBodyFields(body, bodySpans, isNew, formatter);
     setThumbnailFields(showThumbnail);
 
     if (nesting > 0) {
@@ -325,11 +333,18 @@ public class ThingView extends CustomView implements OnGestureListener {
 
   private void setBodyFields(
       CharSequence body,
+      byte[] bodySpans,
       boolean isNew,
       MarkdownFormatter formatter) {
     if (!TextUtils.isEmpty(body)) {
-      this.body = Strings.ellipsize(formatter.formatSpans(getContext(), body),
-          maxTextLength);
+      BodyCache.Entry entry = BodyCache.get(getContext(),
+          thingId,
+          body,
+          bodySpans,
+          maxTextLength,
+          formatter);
+      this.body = entry.text;
+      bodyHash = entry.textHash;
       if (bodyBounds == null) {
         bodyBounds = new RectF();
       }
@@ -537,11 +552,14 @@ public class ThingView extends CustomView implements OnGestureListener {
     int totalDetailsWidth = 0;
 
     int linkTitleWidth;
-    int titleWidth;
+    int titleWidth = getBodyWidth(measuredWidth,
+        thingBodyWidth,
+        nesting,
+        drawVotingArrows,
+        showThumbnail);
 
     if (thingBodyWidth > 0) {
-      linkTitleWidth = titleWidth = Math.min(measuredWidth,
-          thingBodyWidth) - outerPadding;
+      linkTitleWidth = Math.min(measuredWidth, thingBodyWidth) - outerPadding;
 
       // Calculate and setup the details we can fit in the extra space.
       numFittingDetails = 0;
@@ -557,7 +575,7 @@ public class ThingView extends CustomView implements OnGestureListener {
         makeDetails(i);
       }
     } else {
-      linkTitleWidth = titleWidth = contentWidth;
+      linkTitleWidth = contentWidth;
 
       // No thing body width means no details will be shown.
       numFittingDetails = 0;
@@ -573,7 +591,6 @@ public class ThingView extends CustomView implements OnGestureListener {
     if (showThumbnail) {
       leftGadgetWidth += Thumbnail.getWidth() + PADDING;
     }
-    titleWidth -= leftGadgetWidth;
 
     int statusWidth = contentWidth - leftGadgetWidth;
     if (totalDetailsWidth > 0) {
@@ -581,7 +598,6 @@ public class ThingView extends CustomView implements OnGestureListener {
     }
 
     linkTitleWidth = Math.max(0, linkTitleWidth);
-    titleWidth = Math.max(0, titleWidth);
     statusWidth = Math.max(0, statusWidth);
     totalDetailsWidth = Math.max(0, totalDetailsWidth);
 
@@ -687,7 +703,35 @@ public class ThingView extends CustomView implements OnGestureListener {
     }
   }
 
+  /**
+   * Returns the width of the title and body of a row measured with the given
+   * width, so their layouts can be made before the row is measured.
+   */
+  static int getBodyWidth(
+      int measuredWidth,
+      int thingBodyWidth,
+      int nesting,
+      boolean drawVotingArrows,
+      boolean showThumbnail) {
+    int outerPadding = getNestingIndent(drawVotingArrows) * nesting
+        + PADDING * 2;
+    int width = thingBodyWidth > 0
+        ? Math.min(measuredWidth, thingBodyWidth) - outerPadding
+        : measuredWidth - outerPadding;
+    if (drawVotingArrows) {
+      width -= VotingArrows.getWidth(drawVotingArrows) + PADDING;
+    }
+    if (showThumbnail) {
+      width -= Thumbnail.getWidth() + PADDING;
+    }
+    return Math.max(0, width);
+  }
+
   private int getNestingIndent() {
+    return getNestingIndent(drawVotingArrows);
+  }
+
+  private static int getNestingIndent(boolean drawVotingArrows) {
     return PADDING + VotingArrows.getWidth(drawVotingArrows) / 2;
   }
 
@@ -712,32 +756,41 @@ public class ThingView extends CustomView implements OnGestureListener {
   }
 
   private Layout createLinkTitleLayout(int width) {
-    CharSequence truncated = TextUtils.ellipsize(linkTitle,
-        TEXT_PAINTS[linkTitlePaint],
-        width,
-        TruncateAt.END);
-    return makeStaticLayout(linkTitlePaint, truncated, width);
+    TextPaint paint = TEXT_PAINTS[linkTitlePaint];
+    layoutKey.set(thingId, width, linkTitle, linkTitleHash, paint);
+    Layout layout = LayoutCache.get(layoutKey);
+    if (layout == null) {
+      CharSequence truncated = TextUtils.ellipsize(linkTitle,
+          paint,
+          width,
+          TruncateAt.END);
+      layout = LayoutCache.makeLayout(paint, truncated, width);
+      LayoutCache.put(layoutKey, layout);
+    }
+    return layout;
   }
 
   private Layout createTitleLayout(int width) {
-    return makeStaticLayout(titlePaint, title, width);
+    return getLayout(titlePaint, title, titleHash, width);
   }
 
   private Layout createBodyLayout(int width) {
-    return makeStaticLayout(bodyPaint, body, width);
+    return getLayout(bodyPaint, body, bodyHash, width);
   }
 
-  private static Layout makeStaticLayout(
+  /** Returns a cached layout or makes one if it wasn't made ahead of time. */
+  private Layout getLayout(
       int paint,
       CharSequence text,
+      int textHash,
       int width) {
-    return new StaticLayout(text,
-        TEXT_PAINTS[paint],
-        width,
-        Alignment.ALIGN_NORMAL,
-        1f,
-        0f,
-        true);
+    layoutKey.set(thingId, width, text, textHash, TEXT_PAINTS[paint]);
+    Layout layout = LayoutCache.get(layoutKey);
+    if (layout == null) {
+      layout = LayoutCache.makeLayout(TEXT_PAINTS[paint], text, width);
+      LayoutCache.put(layoutKey, layout);
+    }
+    return layout;
   }
 
   private BoringLayout createStatusLayout(int width) {
@@ -28,6 +28,7 @@ import android.util.LruCache;
 
 import com.btmura.android.reddit.BuildConfig;
 import com.btmura.android.reddit.R;
+import com.btmura.android.reddit.net.RedditApi;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -114,6 +115,7 @@ public class ThumbnailLoader {
       }
 
       HttpURLConnection conn = null;
+      InputStream is = null;
       try {
         URL u = new URL(url);
         conn = (HttpURLConnection) u.openConnection();
@@ -124,35 +126,25 @@ public class ThumbnailLoader {
           return null;
         }
 
-        InputStream is = null;
-        try {
-          is = conn.getInputStream();
-          if (isCancelled()) {
-            if (DEBUG) {
-              Log.d(TAG, taskId + ": cancelled(3)");
-            }
-            return null;
-          }
-
-          BitmapFactory.Options options = new BitmapFactory.Options();
-          options.inScaled = true;
-          options.inDensity = DisplayMetrics.DENSITY_MEDIUM;
-          options.inTargetDensity = context.getResources().getDisplayMetrics().densityDpi;
-          return BitmapFactory.decodeStream(is, null, options);
-        } finally {
-          if (is != null) {
-            is.close();
+        is = conn.getInputStream();
+        if (isCancelled()) {
+          if (DEBUG) {
+            Log.d(TAG, taskId + ": cancelled(3)");
           }
+          return null;
         }
 
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = true;
+        options.inDensity = DisplayMetrics.DENSITY_MEDIUM;
+        options.inTargetDensity = context.getResources().getDisplayMetrics().densityDpi;
+        return BitmapFactory.decodeStream(is, null, options);
       } catch (MalformedURLException e) {
         Log.e(TAG, e.getMessage(), e);
       } catch (IOException e) {
         Log.e(TAG, e.getMessage(), e);
       } finally {
-        if (conn != null) {
-          conn.disconnect();
-        }
+        RedditApi.close(is, conn);
       }
       return null;
     }
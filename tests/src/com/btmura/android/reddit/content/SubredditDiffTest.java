@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.content;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class SubredditDiffTest extends TestCase {
+
+  private static final String TAG = "SubredditDiffTest";
+
+  private static final int NUM_SUBSCRIPTIONS = 5000;
+
+  public void testMatch() {
+    SubredditDiff diff = new SubredditDiff(Arrays.asList("Android", "pics"));
+    assertEquals("Android", diff.match("android"));
+    assertNull(diff.match("ANDROID"));
+    assertNull(diff.match("askreddit"));
+    assertEquals(Arrays.asList("pics"), new ArrayList<String>(
+        diff.getUnmatched()));
+  }
+
+  public void testBenchmark() {
+    // Server and database each have 5,000 subscriptions spelled differently,
+    // and half of each are shared, so there are matches, deletes and inserts.
+    List<String> server = new ArrayList<String>(NUM_SUBSCRIPTIONS);
+    List<String> local = new ArrayList<String>(NUM_SUBSCRIPTIONS);
+    for (int i = 0; i < NUM_SUBSCRIPTIONS * 3 / 2; i++) {
+      if (i % 3 != 2) {
+        server.add("Subreddit" + i);
+      }
+      if (i % 3 != 1) {
+        local.add("subreddit" + i);
+      }
+    }
+
+    long start = SystemClock.elapsedRealtime();
+    SubredditDiff diff = new SubredditDiff(server);
+    int matches = 0;
+    int deletes = 0;
+    for (int i = 0; i < local.size(); i++) {
+      if (diff.match(local.get(i)) != null) {
+        matches++;
+      } else {
+        deletes++;
+      }
+    }
+    HashSet<String> inserts = new HashSet<String>(diff.getUnmatched());
+    long elapsed = SystemClock.elapsedRealtime() - start;
+    Log.d(TAG, "diffed " + NUM_SUBSCRIPTIONS + " subscriptions in "
+        + elapsed + "ms");
+
+    assertEquals(NUM_SUBSCRIPTIONS / 2, matches);
+    assertEquals(NUM_SUBSCRIPTIONS / 2, deletes);
+    assertEquals(NUM_SUBSCRIPTIONS / 2, inserts.size());
+    assertTrue(inserts.contains("Subreddit1"));
+  }
+}
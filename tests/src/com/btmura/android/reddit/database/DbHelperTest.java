@@ -82,6 +82,15 @@ public class DbHelperTest extends AndroidTestCase {
       AccountActions.TABLE_NAME,
   };
 
+  private static final String[] TABLES_V5 = TABLES_V4;
+
+  /** Tables that got a column for the span runs of their bodies in v5. */
+  private static final String[] BODY_SPANS_TABLES_V5 = {
+      Comments.TABLE_NAME,
+      Messages.TABLE_NAME,
+      Things.TABLE_NAME,
+  };
+
   @Override
   protected void setUp() throws Exception {
     super.setUp();
@@ -118,6 +127,13 @@ public class DbHelperTest extends AndroidTestCase {
     helper.close();
   }
 
+  public void testOnCreate_v5() {
+    DbHelper helper = createHelperVersion(5);
+    assertTablesExist(helper.getReadableDatabase(), TABLES_V5);
+    assertBodySpansExist(helper.getReadableDatabase());
+    helper.close();
+  }
+
   public void testOnUpgrade() {
     DbHelper helper = createHelperVersion(1);
     assertTablesExist(helper.getReadableDatabase(), TABLES_V1);
@@ -134,6 +150,11 @@ public class DbHelperTest extends AndroidTestCase {
     helper = createHelperVersion(4);
     assertTablesExist(helper.getReadableDatabase(), TABLES_V4);
     helper.close();
+
+    helper = createHelperVersion(5);
+    assertTablesExist(helper.getReadableDatabase(), TABLES_V5);
+    assertBodySpansExist(helper.getReadableDatabase());
+    helper.close();
   }
 
   public void testSubreddits_defaults() {
@@ -229,4 +250,16 @@ public class DbHelperTest extends AndroidTestCase {
     assertNotNull("Missing table: " + table,
         db.query(table, null, null, null, null, null, null));
   }
+
+  private void assertBodySpansExist(SQLiteDatabase db) {
+    for (String table : BODY_SPANS_TABLES_V5) {
+      Cursor c = db.query(table, null, null, null, null, null, null);
+      try {
+        assertTrue("Missing body spans: " + table,
+            c.getColumnIndex(Things.COLUMN_BODY_SPANS) != -1);
+      } finally {
+        c.close();
+      }
+    }
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+public class ConnectionPoolTest extends TestCase {
+
+  public void testReleaseUnread_drainsBody() throws Exception {
+    FakeConnection conn = new FakeConnection(new FakeStream(100), null);
+    ConnectionPool.Stats before = ConnectionPool.getStats();
+    ConnectionPool.releaseUnread(conn);
+    ConnectionPool.Stats after = ConnectionPool.getStats();
+
+    assertTrue(conn.in.drained);
+    assertTrue(conn.in.closed);
+    assertFalse(conn.disconnected);
+    assertEquals(before.releases + 1, after.releases);
+    assertEquals(before.discards, after.discards);
+  }
+
+  public void testReleaseUnread_drainsErrorBody() throws Exception {
+    FakeConnection conn = new FakeConnection(null, new FakeStream(100));
+    ConnectionPool.releaseUnread(conn);
+
+    assertTrue(conn.es.drained);
+    assertTrue(conn.es.closed);
+    assertFalse(conn.disconnected);
+  }
+
+  public void testReleaseUnread_disconnectsLongBody() throws Exception {
+    FakeConnection conn = new FakeConnection(new FakeStream(1024 * 1024), null);
+    ConnectionPool.Stats before = ConnectionPool.getStats();
+    ConnectionPool.releaseUnread(conn);
+    ConnectionPool.Stats after = ConnectionPool.getStats();
+
+    assertFalse(conn.in.drained);
+    assertTrue(conn.in.closed);
+    assertTrue(conn.disconnected);
+    assertEquals(before.releases, after.releases);
+    assertEquals(before.discards + 1, after.discards);
+  }
+
+  public void testRelease_keepsClosedBody() throws Exception {
+    FakeConnection conn = new FakeConnection(new FakeStream(100), null);
+    ConnectionPool.release(conn);
+
+    assertFalse(conn.in.drained);
+    assertFalse(conn.disconnected);
+  }
+
+  static class FakeConnection extends HttpURLConnection {
+
+    final FakeStream in;
+    final FakeStream es;
+    boolean disconnected;
+
+    FakeConnection(FakeStream in, FakeStream es) throws IOException {
+      super(new URL("https://oauth.reddit.com/r/random"));
+      this.in = in;
+      this.es = es;
+    }
+
+    @Override
+    public void connect() {
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+      if (in == null) {
+        throw new IOException();
+      }
+      return in;
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+      return es;
+    }
+
+    @Override
+    public boolean usingProxy() {
+      return false;
+    }
+
+    @Override
+    public void disconnect() {
+      disconnected = true;
+    }
+  }
+
+  static class FakeStream extends ByteArrayInputStream {
+
+    boolean drained;
+    boolean closed;
+
+    FakeStream(int length) {
+      super(new byte[length]);
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) {
+      int read = super.read(b, off, len);
+      drained = read == -1;
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      closed = true;
+      super.close();
+    }
+  }
+}
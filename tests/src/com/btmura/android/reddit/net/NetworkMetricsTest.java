@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import junit.framework.TestCase;
+
+import java.net.URL;
+
+public class NetworkMetricsTest extends TestCase {
+
+  public void testGetEndpoint() throws Exception {
+    assertEndpoint("oauth.reddit.com/r/*/hot",
+        "https://oauth.reddit.com/r/android/hot?limit=25");
+    assertEndpoint("www.reddit.com/r/*/comments/*",
+        "https://www.reddit.com/r/android/comments/abc/some_title.json");
+    assertEndpoint("oauth.reddit.com/comments/*",
+        "https://oauth.reddit.com/comments/abc/some_title/def");
+    assertEndpoint("oauth.reddit.com/user/*/comments",
+        "https://oauth.reddit.com/user/btmura/comments");
+    assertEndpoint("oauth.reddit.com/by_id/*",
+        "https://oauth.reddit.com/by_id/t3_abc,t3_def");
+    assertEndpoint("oauth.reddit.com/message/messages/*",
+        "https://oauth.reddit.com/message/messages/abc");
+    assertEndpoint("www.reddit.com/captcha/*",
+        "https://www.reddit.com/captcha/abc.png");
+    assertEndpoint("www.reddit.com/api/info",
+        "https://www.reddit.com/api/info.json?id=t3_abc");
+  }
+
+  public void testGetEndpoint_otherHosts() throws Exception {
+    assertEndpoint(NetworkMetrics.OTHER_ENDPOINT,
+        "http://i.imgur.com/abc.jpg");
+    assertEndpoint(NetworkMetrics.OTHER_ENDPOINT,
+        "https://b.thumbs.redditmedia.com/abc.jpg");
+  }
+
+  private static void assertEndpoint(String expected, String url)
+      throws Exception {
+    assertEquals(expected, NetworkMetrics.getEndpoint(new URL(url)));
+  }
+}
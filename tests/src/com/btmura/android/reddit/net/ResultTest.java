@@ -17,12 +17,12 @@
 package com.btmura.android.reddit.net;
 
 import android.test.AndroidTestCase;
-import android.util.JsonReader;
+
+import com.btmura.android.reddit.util.Utf8JsonReader;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 
 public class ResultTest extends AndroidTestCase {
 
@@ -41,7 +41,7 @@ public class ResultTest extends AndroidTestCase {
   private Result parse(String json) throws IOException {
     InputStream in = new ByteArrayInputStream(json.getBytes());
     try {
-      return Result.getResult(new JsonReader(new InputStreamReader(in)));
+      return Result.getResult(new Utf8JsonReader(in));
     } finally {
       in.close();
     }
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.net;
+
+import junit.framework.TestCase;
+
+public class SubredditResultTest extends TestCase {
+
+  public void testScanAfter() {
+    assertEquals("t5_2qh1i", scan("{\"kind\": \"Listing\", \"data\": "
+        + "{\"after\": \"t5_2qh1i\", \"children\": []}}"));
+    assertEquals("t5_2qh1i", scan("{\"data\":{\"children\":[],"
+        + "\"after\" :\n\"t5_2qh1i\",\"before\":null}}"));
+  }
+
+  public void testScanAfter_none() {
+    assertNull(scan("{\"data\": {\"after\": null, \"children\": []}}"));
+    assertNull(scan("{\"data\": {\"children\": []}}"));
+    assertNull(scan(""));
+  }
+
+  public void testScanAfter_skipsValues() {
+    assertEquals("t5_abc", scan("{\"data\": {\"children\": [{\"data\": "
+        + "{\"description\": \"\\\"after\\\": \\\"t5_xyz\\\"\"}}], "
+        + "\"after\": \"t5_abc\"}}"));
+  }
+
+  private String scan(String json) {
+    return SubredditResult.scanAfter(json.getBytes());
+  }
+}
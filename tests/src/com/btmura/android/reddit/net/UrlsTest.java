@@ -34,11 +34,11 @@ public class UrlsTest extends TestCase {
 
   public void testThingInfo() {
     assertCharSequenceEquals(
-        "https://www.reddit.com/api/info.json?id=t3_thingId",
+        "https://www.reddit.com/api/info.json?id=t3_thingId&raw_json=1",
         Urls.thingInfo(NO_ACCOUNT, THING_ID));
 
     assertCharSequenceEquals(
-        "https://oauth.reddit.com/api/info?id=t3_thingId",
+        "https://oauth.reddit.com/api/info?id=t3_thingId&raw_json=1",
         Urls.thingInfo(ACCOUNT, THING_ID));
   }
 
@@ -50,12 +50,12 @@ public class UrlsTest extends TestCase {
 
   public void testSubreddit() {
     assertCharSequenceEquals(
-        "https://www.reddit.com/r/android/hot.json",
+        "https://www.reddit.com/r/android/hot.json?raw_json=1",
         Urls.subreddit(NO_ACCOUNT, "android", Filter.SUBREDDIT_HOT, NO_MORE,
             NO_COUNT));
 
     assertCharSequenceEquals(
-        "https://oauth.reddit.com/r/android/new",
+        "https://oauth.reddit.com/r/android/new?raw_json=1",
         Urls.subreddit(ACCOUNT, "android", Filter.SUBREDDIT_NEW, NO_MORE,
             NO_COUNT));
   }
@@ -66,16 +66,31 @@ public class UrlsTest extends TestCase {
         Urls.subredditLink("androiddev"));
   }
 
-  // TODO(btmura): add test for comment URLs
+  public void testComments() {
+    assertCharSequenceEquals(
+        "https://www.reddit.com/comments/abc.json?raw_json=1",
+        Urls.comments(NO_ACCOUNT, "t3_abc", null, NO_FILTER, Urls.NO_LIMIT));
+
+    assertCharSequenceEquals(
+        "https://oauth.reddit.com/comments/abc?raw_json=1&comment=def"
+            + "&context=3",
+        Urls.comments(ACCOUNT, "t1_def", "t3_abc", NO_FILTER, Urls.NO_LIMIT));
+  }
+
+  public void testCommentsLink() {
+    assertCharSequenceEquals(
+        "https://www.reddit.com/comments/abc",
+        Urls.commentsLink("t3_abc", null));
+  }
 
   public void testProfile() {
     assertCharSequenceEquals(
-        "https://www.reddit.com/user/btmura/overview.json",
+        "https://www.reddit.com/user/btmura/overview.json?raw_json=1",
         Urls.profile(NO_ACCOUNT, "btmura", Filter.PROFILE_OVERVIEW, NO_MORE,
             NO_COUNT));
 
     assertCharSequenceEquals(
-        "https://oauth.reddit.com/user/btmura/comments",
+        "https://oauth.reddit.com/user/btmura/comments?raw_json=1",
         Urls.profile(ACCOUNT, "btmura", Filter.PROFILE_COMMENTS, NO_MORE,
             NO_COUNT));
   }
@@ -100,31 +115,33 @@ public class UrlsTest extends TestCase {
 
   public void testSearch() {
     assertCharSequenceEquals(
-        "https://www.reddit.com/search.json?q=s2000",
+        "https://www.reddit.com/search.json?q=s2000&raw_json=1",
         Urls.search(NO_ACCOUNT, NO_SUBREDDIT, "s2000", NO_FILTER, NO_MORE,
             NO_COUNT));
 
     assertCharSequenceEquals(
-        "https://oauth.reddit.com/search?q=s2000",
+        "https://oauth.reddit.com/search?q=s2000&raw_json=1",
         Urls.search(ACCOUNT, NO_SUBREDDIT, "s2000", NO_FILTER, NO_MORE,
             NO_COUNT));
 
     assertCharSequenceEquals(
-        "https://www.reddit.com/r/cars/search.json?q=s2000&restrict_sr=on",
+        "https://www.reddit.com/r/cars/search.json?q=s2000&restrict_sr=on"
+            + "&raw_json=1",
         Urls.search(NO_ACCOUNT, "cars", "s2000", NO_FILTER, NO_MORE, NO_COUNT));
 
     assertCharSequenceEquals(
-        "https://oauth.reddit.com/r/cars/search?q=s2000&restrict_sr=on",
+        "https://oauth.reddit.com/r/cars/search?q=s2000&restrict_sr=on"
+            + "&raw_json=1",
         Urls.search(ACCOUNT, "cars", "s2000", NO_FILTER, NO_MORE, NO_COUNT));
   }
 
   public void testSubredditSearch() {
     assertCharSequenceEquals(
-        "https://www.reddit.com/subreddits/search.json?q=s2000",
+        "https://www.reddit.com/subreddits/search.json?q=s2000&raw_json=1",
         Urls.subredditSearch(NO_ACCOUNT, "s2000"));
 
     assertCharSequenceEquals(
-        "https://oauth.reddit.com/subreddits/search?q=s2000",
+        "https://oauth.reddit.com/subreddits/search?q=s2000&raw_json=1",
         Urls.subredditSearch(ACCOUNT, "s2000"));
   }
 
@@ -138,6 +155,17 @@ public class UrlsTest extends TestCase {
         Urls.sidebar(ACCOUNT, "cars"));
   }
 
+  public void testHideQuery() {
+    assertCharSequenceEquals("id=t3_a", Urls.hideQuery("t3_a"));
+    assertCharSequenceEquals("id=t3_a,t3_b,t3_c",
+        Urls.hideQuery(new String[]{"t3_a", "t3_b", "t3_c"}));
+  }
+
+  public void testReadMessageQuery() {
+    assertCharSequenceEquals("id=t4_a,t1_b",
+        Urls.readMessageQuery(new String[]{"t4_a", "t1_b"}));
+  }
+
   public void testUserInfo() {
     assertCharSequenceEquals(
         "https://www.reddit.com/user/btmura/about.json",
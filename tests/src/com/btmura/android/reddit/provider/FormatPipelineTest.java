@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.provider;
+
+import android.test.AndroidTestCase;
+
+import com.btmura.android.reddit.database.Comments;
+import com.btmura.android.reddit.database.Messages;
+import com.btmura.android.reddit.text.MarkdownFormatter;
+import com.btmura.android.reddit.text.MarkdownSpans;
+
+public class FormatPipelineTest extends AndroidTestCase {
+
+  private static final int NUM_COMMENTS = 500;
+
+  private static final RowBuffer.Schema SCHEMA = new RowBuffer.Schema(
+      new String[0],
+      new String[] {Comments.COLUMN_BODY, Comments.COLUMN_TITLE},
+      new String[] {Comments.COLUMN_BODY_SPANS});
+
+  public void testFinish() {
+    RowBuffer values = new RowBuffer(SCHEMA, NUM_COMMENTS);
+    FormatPipeline formats = new FormatPipeline(mContext);
+    for (int i = 0; i < NUM_COMMENTS; i++) {
+      values.addRow();
+      formats.format(i, Comments.COLUMN_BODY, Comments.COLUMN_BODY_SPANS,
+          getBody(i));
+      if (i % 7 == 0) {
+        formats.format(i, Comments.COLUMN_TITLE, "Title &amp; " + i);
+      }
+    }
+    formats.finish(values);
+
+    MarkdownFormatter formatter = new MarkdownFormatter();
+    for (int i = 0; i < NUM_COMMENTS; i++) {
+      String body = formatter.formatRawNoSpans(getBody(i)).toString();
+      assertEquals(body, values.getString(i, Comments.COLUMN_BODY));
+      assertEquals(formatter.formatSpans(mContext, body).toString(),
+          MarkdownSpans.decode(body,
+              values.getBlob(i, Comments.COLUMN_BODY_SPANS)).toString());
+      if (i % 7 == 0) {
+        assertEquals("Title & " + i,
+            values.getString(i, Comments.COLUMN_TITLE));
+      } else {
+        assertFalse(values.has(i, Comments.COLUMN_TITLE));
+      }
+    }
+  }
+
+  public void testFinish_spansOnly() {
+    RowBuffer.Schema schema = new RowBuffer.Schema(
+        new String[0],
+        new String[0],
+        new String[] {Messages.COLUMN_BODY_SPANS});
+    RowBuffer values = new RowBuffer(schema, 2);
+    FormatPipeline formats = new FormatPipeline(mContext);
+    formats.formatSpans(values.addRow(), Messages.COLUMN_BODY_SPANS,
+        "**bold** &amp;");
+    formats.formatSpans(values.addRow(), Messages.COLUMN_BODY_SPANS, "");
+    formats.finish(values);
+
+    // Message urls don't ask for raw JSON, so message bodies are stored
+    // escaped and their spans are computed over the escaped text.
+    assertEquals("bold &amp;", MarkdownSpans.decode("**bold** &amp;",
+        values.getBlob(0, Messages.COLUMN_BODY_SPANS)).toString());
+    assertNull(values.getBlob(1, Messages.COLUMN_BODY_SPANS));
+  }
+
+  private static String getBody(int i) {
+    return "Comment " + i + " &lt;3 &gt; &amp;amp; http://www.reddit.com/r/"
+        + i;
+  }
+}
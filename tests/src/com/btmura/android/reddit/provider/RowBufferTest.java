@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.provider;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils.InsertHelper;
+import android.database.sqlite.SQLiteDatabase;
+import android.test.AndroidTestCase;
+
+import com.btmura.android.reddit.database.DbHelper;
+import com.btmura.android.reddit.database.Things;
+
+import java.util.Arrays;
+
+public class RowBufferTest extends AndroidTestCase {
+
+  private static final RowBuffer.Schema SCHEMA = new RowBuffer.Schema(
+      new String[] {Things.COLUMN_SCORE, Things.COLUMN_HIDDEN},
+      new String[] {Things.COLUMN_THING_ID, Things.COLUMN_AUTHOR},
+      new String[] {Things.COLUMN_BODY_SPANS});
+
+  private static final String[] PROJECTION = {
+      Things.COLUMN_THING_ID,
+      Things.COLUMN_AUTHOR,
+      Things.COLUMN_SCORE,
+      Things.COLUMN_HIDDEN,
+      Things.COLUMN_BODY_SPANS,
+  };
+
+  private SQLiteDatabase db;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    mContext.deleteDatabase(DbHelper.DATABASE_TEST);
+    db = new DbHelper(mContext, DbHelper.DATABASE_TEST,
+        DbHelper.LATEST_VERSION).getWritableDatabase();
+  }
+
+  @Override
+  protected void tearDown() throws Exception {
+    super.tearDown();
+    mContext.deleteDatabase(DbHelper.DATABASE_TEST);
+  }
+
+  public void testAddRemoveRow() {
+    // Start with no capacity to make the buffer grow.
+    RowBuffer rows = new RowBuffer(SCHEMA, 0);
+    for (int i = 0; i < 20; i++) {
+      rows.put(rows.addRow(), Things.COLUMN_SCORE, i);
+    }
+    rows.addRow(0);
+    rows.put(0, Things.COLUMN_THING_ID, "first");
+    assertEquals(21, rows.size());
+    assertFalse(rows.has(0, Things.COLUMN_SCORE));
+    assertEquals(0, rows.getInt(1, Things.COLUMN_SCORE));
+    assertEquals(19, rows.getInt(20, Things.COLUMN_SCORE));
+
+    rows.removeRow(0);
+    assertEquals(20, rows.size());
+    assertNull(rows.getString(0, Things.COLUMN_THING_ID));
+    assertTrue(rows.has(0, Things.COLUMN_SCORE));
+    assertFalse(rows.has(0, Things.COLUMN_THING_ID));
+  }
+
+  public void testUnknownColumn() {
+    RowBuffer rows = new RowBuffer(SCHEMA, 1);
+    rows.addRow();
+    try {
+      rows.put(0, Things.COLUMN_URL, "http://www.reddit.com");
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected since the column isn't in the schema.
+    }
+  }
+
+  public void testInsert() {
+    RowBuffer rows = new RowBuffer(SCHEMA, 2);
+    rows.put(rows.addRow(), Things.COLUMN_THING_ID, "t3_1");
+    rows.put(0, Things.COLUMN_SCORE, 42);
+    rows.put(0, Things.COLUMN_HIDDEN, true);
+    rows.put(0, Things.COLUMN_BODY_SPANS, new byte[] {1, 2, 3});
+    rows.put(rows.addRow(), Things.COLUMN_THING_ID, "t3_2");
+    rows.put(1, Things.COLUMN_AUTHOR, (String) null);
+    rows.insert(new InsertHelper(db, Things.TABLE_NAME));
+
+    Cursor c = db.query(Things.TABLE_NAME, PROJECTION, null, null, null, null,
+        Things._ID);
+    try {
+      assertEquals(2, c.getCount());
+
+      assertTrue(c.moveToNext());
+      assertEquals("t3_1", c.getString(0));
+      assertTrue(c.isNull(1));
+      assertEquals(42, c.getInt(2));
+      assertEquals(1, c.getInt(3));
+      assertTrue(Arrays.equals(new byte[] {1, 2, 3}, c.getBlob(4)));
+
+      // Unset columns get their defaults like with ContentValues.
+      assertTrue(c.moveToNext());
+      assertEquals("t3_2", c.getString(0));
+      assertTrue(c.isNull(1));
+      assertEquals(0, c.getInt(2));
+      assertEquals(0, c.getInt(3));
+      assertTrue(c.isNull(4));
+    } finally {
+      c.close();
+    }
+  }
+}
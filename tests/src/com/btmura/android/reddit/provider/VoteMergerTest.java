@@ -47,6 +47,10 @@ public class VoteMergerTest extends AndroidTestCase {
 
   private static final String SELECTION = Things._ID + "=?";
 
+  private static final RowBuffer.Schema SCHEMA = new RowBuffer.Schema(
+      new String[] {COLUMN_SCORE, COLUMN_LIKES, COLUMN_UPS, COLUMN_DOWNS},
+      new String[] {Things.COLUMN_ACCOUNT, Things.COLUMN_THING_ID});
+
   private SQLiteDatabase db;
 
   @Override
@@ -65,26 +69,27 @@ public class VoteMergerTest extends AndroidTestCase {
     mContext.deleteDatabase(DbHelper.DATABASE_TEST);
   }
 
-  public void testUpdateContentValues() {
-    ContentValues thingValues = newThingValues();
+  public void testUpdateRow() {
+    RowBuffer rows = new RowBuffer(SCHEMA, 1);
+    rows.put(rows.addRow(), Things.COLUMN_THING_ID, THING_ID);
 
-    VoteMerger.updateContentValues(thingValues, ACTION_VOTE_UP);
-    assertContentValues(thingValues, 1, ACTION_VOTE_UP, 1, 0);
+    VoteMerger.updateRow(rows, 0, ACTION_VOTE_UP);
+    assertRow(rows, 1, ACTION_VOTE_UP, 1, 0);
 
-    VoteMerger.updateContentValues(thingValues, ACTION_VOTE_UP);
-    assertContentValues(thingValues, 2, ACTION_VOTE_UP, 2, 0);
+    VoteMerger.updateRow(rows, 0, ACTION_VOTE_UP);
+    assertRow(rows, 2, ACTION_VOTE_UP, 2, 0);
 
-    VoteMerger.updateContentValues(thingValues, ACTION_VOTE_DOWN);
-    assertContentValues(thingValues, 1, ACTION_VOTE_DOWN, 2, 1);
+    VoteMerger.updateRow(rows, 0, ACTION_VOTE_DOWN);
+    assertRow(rows, 1, ACTION_VOTE_DOWN, 2, 1);
 
-    VoteMerger.updateContentValues(thingValues, ACTION_VOTE_NEUTRAL);
-    assertContentValues(thingValues, 2, ACTION_VOTE_NEUTRAL, 2, 0);
+    VoteMerger.updateRow(rows, 0, ACTION_VOTE_NEUTRAL);
+    assertRow(rows, 2, ACTION_VOTE_NEUTRAL, 2, 0);
 
-    VoteMerger.updateContentValues(thingValues, ACTION_VOTE_UP);
-    assertContentValues(thingValues, 3, ACTION_VOTE_UP, 3, 0);
+    VoteMerger.updateRow(rows, 0, ACTION_VOTE_UP);
+    assertRow(rows, 3, ACTION_VOTE_UP, 3, 0);
 
-    VoteMerger.updateContentValues(thingValues, ACTION_VOTE_NEUTRAL);
-    assertContentValues(thingValues, 2, ACTION_VOTE_NEUTRAL, 2, 0);
+    VoteMerger.updateRow(rows, 0, ACTION_VOTE_NEUTRAL);
+    assertRow(rows, 2, ACTION_VOTE_NEUTRAL, 2, 0);
   }
 
   public void testUpdateDatabase() {
@@ -127,21 +132,16 @@ public class VoteMergerTest extends AndroidTestCase {
     return v;
   }
 
-  private void assertContentValues(
-      ContentValues v,
+  private void assertRow(
+      RowBuffer rows,
       int score,
       int likes,
       int ups,
       int downs) {
-    assertValue(score, v, COLUMN_SCORE);
-    assertValue(likes, v, COLUMN_LIKES);
-    assertValue(ups, v, COLUMN_UPS);
-    assertValue(downs, v, COLUMN_DOWNS);
-  }
-
-  private void assertValue(int expected, ContentValues v, String key) {
-    assertEquals(expected,
-        v.containsKey(key) ? v.getAsInteger(key).intValue() : 0);
+    assertEquals(score, rows.getInt(0, COLUMN_SCORE));
+    assertEquals(likes, rows.getInt(0, COLUMN_LIKES));
+    assertEquals(ups, rows.getInt(0, COLUMN_UPS));
+    assertEquals(downs, rows.getInt(0, COLUMN_DOWNS));
   }
 
   private long insertThing() {
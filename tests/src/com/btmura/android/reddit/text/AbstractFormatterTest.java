@@ -18,6 +18,7 @@ package com.btmura.android.reddit.text;
 
 import android.test.AndroidTestCase;
 import android.text.SpannableStringBuilder;
+import android.text.Spanned;
 import android.text.style.BulletSpan;
 import android.text.style.ImageSpan;
 import android.text.style.StrikethroughSpan;
@@ -27,22 +28,26 @@ import android.text.style.TypefaceSpan;
 import com.btmura.android.reddit.text.MarkdownFormatter.Escaped;
 import com.btmura.android.reddit.text.MarkdownFormatter.RawLinks;
 import com.btmura.android.reddit.text.MarkdownFormatter.RelativeLinks;
-import com.btmura.android.reddit.text.MarkdownFormatter.Styles;
+import com.btmura.android.reddit.text.style.MarkdownTableSpan;
 import com.btmura.android.reddit.text.style.SubredditSpan;
 import com.btmura.android.reddit.text.style.URLSpan;
 import com.btmura.android.reddit.text.style.UserSpan;
 import com.btmura.android.reddit.util.Array;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.regex.Matcher;
 
 abstract class AbstractFormatterTest extends AndroidTestCase {
 
   protected Matcher matcher;
+  protected MarkdownTokenizer tokenizer;
 
   @Override
   protected void setUp() throws Exception {
     super.setUp();
     matcher = RawLinks.PATTERN.matcher("");
+    tokenizer = new MarkdownTokenizer();
   }
 
   void assertEscapedFormat(String input, String expected) {
@@ -51,8 +56,8 @@ abstract class AbstractFormatterTest extends AndroidTestCase {
         actual);
   }
 
-  CharSequence assertStyleFormat(int style, String input, String expected) {
-    CharSequence cs = Styles.format(matcher, input, style);
+  CharSequence assertStyleFormat(String input, String expected) {
+    CharSequence cs = tokenizer.format(input);
     String actual = cs.toString();
     assertEquals("Expected: " + expected + " Actual: " + actual, expected,
         actual);
@@ -60,7 +65,7 @@ abstract class AbstractFormatterTest extends AndroidTestCase {
   }
 
   CharSequence assertBulletFormat(String input, String expected) {
-    CharSequence cs = MarkdownFormatter.Bullets.format(matcher, input);
+    CharSequence cs = tokenizer.format(input);
     String actual = cs.toString();
     assertEquals("Expected: " + expected + " Actual: " + actual, expected,
         actual);
@@ -68,7 +73,7 @@ abstract class AbstractFormatterTest extends AndroidTestCase {
   }
 
   CharSequence assertCodeBlockFormat(String input, String expected) {
-    CharSequence cs = MarkdownFormatter.CodeBlock.format(matcher, input);
+    CharSequence cs = tokenizer.format(input);
     String actual = cs.toString();
     assertEquals("Expected: " + expected + " Actual: " + actual, expected,
         actual);
@@ -101,7 +106,7 @@ abstract class AbstractFormatterTest extends AndroidTestCase {
   }
 
   CharSequence assertHeadingFormat(String input, String expected) {
-    CharSequence cs = MarkdownFormatter.Heading.format(matcher, input);
+    CharSequence cs = tokenizer.format(input);
     String actual = cs.toString();
     assertEquals("Expected: " + expected + " Actual: " + actual, expected,
         actual);
@@ -113,8 +118,11 @@ abstract class AbstractFormatterTest extends AndroidTestCase {
       int start,
       int end,
       Class<T> spanClass) {
-    SpannableStringBuilder b = (SpannableStringBuilder) cs;
-    T[] spans = b.getSpans(start, end, spanClass);
+    // Text that the tokenizer left alone has no spans at all.
+    if (!(cs instanceof Spanned)) {
+      return;
+    }
+    T[] spans = ((Spanned) cs).getSpans(start, end, spanClass);
     assertTrue(Array.isEmpty(spans));
   }
 
@@ -190,4 +198,37 @@ abstract class AbstractFormatterTest extends AndroidTestCase {
     ImageSpan[] spans = b.getSpans(start, end, ImageSpan.class);
     assertEquals(1, spans.length);
   }
+
+  /** Returns the text and its sorted spans to compare them as a string. */
+  static String describeSpans(CharSequence cs) {
+    ArrayList<String> spans = new ArrayList<String>();
+    if (cs instanceof Spanned) {
+      Spanned s = (Spanned) cs;
+      Object[] all = s.getSpans(0, s.length(), Object.class);
+      for (int i = 0; i < all.length; i++) {
+        spans.add(describeSpan(all[i]) + " " + s.getSpanStart(all[i]) + "-"
+            + s.getSpanEnd(all[i]));
+      }
+    }
+    Collections.sort(spans);
+    return cs.toString() + " " + spans;
+  }
+
+  private static String describeSpan(Object span) {
+    String name = span.getClass().getSimpleName();
+    if (span instanceof StyleSpan) {
+      return name + ((StyleSpan) span).getStyle();
+    } else if (span instanceof TypefaceSpan) {
+      return name + ((TypefaceSpan) span).getFamily();
+    } else if (span instanceof URLSpan) {
+      return name + ((URLSpan) span).getURL();
+    } else if (span instanceof SubredditSpan) {
+      return name + ((SubredditSpan) span).subreddit;
+    } else if (span instanceof UserSpan) {
+      return name + ((UserSpan) span).user;
+    } else if (span instanceof MarkdownTableSpan) {
+      return name + ((MarkdownTableSpan) span).getTableData();
+    }
+    return name;
+  }
 }
@@ -18,87 +18,35 @@ package com.btmura.android.reddit.text;
 
 import android.text.style.TypefaceSpan;
 
-import com.btmura.android.reddit.text.MarkdownFormatter.CodeBlock;
-
 public class MarkdownFormatter_CodeBlockTest extends AbstractFormatterTest {
 
-  private String[] lines;
-
-  /**
-   * Tests that the underlying regular expression catches indented lines
-   * properly.
-   */
-  public void testPattern() throws Exception {
-    // Line with 3 spaces shouldn't match.
-    setLines("   line1");
-    assertFalse(matcher.find());
-
-    // Line with some text before the indentation shouldn't match.
-    setLines("first    line1");
-    assertFalse(matcher.find());
-
-    // Line with 4 spaces should match.
-    setLines("    line1");
-    assertTrue(matcher.find());
-    assertEquals(lines[0], matcher.group());
-    assertFalse(matcher.find());
-
-    // Line with 5 spaces should still match.
-    setLines("     line1");
-    assertTrue(matcher.find());
-    assertEquals(lines[0], matcher.group());
-    assertFalse(matcher.find());
+  /** Tests that lines are only code when they start with indentation. */
+  public void testFormat_indentation() throws Exception {
+    // Line with 3 spaces shouldn't be code.
+    CharSequence cs = assertCodeBlockFormat("   line1", "   line1");
+    assertNoSpans(cs, 0, 8, TypefaceSpan.class);
 
-    // Line with 1 tab should match.
-    setLines("\tline1");
-    assertTrue(matcher.find());
-    assertEquals(lines[0], matcher.group());
-    assertFalse(matcher.find());
+    // Line with some text before the indentation shouldn't be code.
+    cs = assertCodeBlockFormat("first    line1", "first    line1");
+    assertNoSpans(cs, 0, 14, TypefaceSpan.class);
 
-    // Line with 2 tabs should match.
-    setLines("\t\tline1");
-    assertTrue(matcher.find());
-    assertEquals(lines[0], matcher.group());
-    assertFalse(matcher.find());
+    // Line with 5 spaces should be code keeping the extra space.
+    cs = assertCodeBlockFormat("     line1", " line1");
+    assertCodeBlockSpan(cs, 0, 6);
 
-    // Two lines with indentation and a third without.
-    setLines("    line1", "    line2", "last");
-    assertTrue(matcher.find());
-    assertEquals(lines[0], matcher.group());
-    assertTrue(matcher.find());
-    assertEquals(lines[1], matcher.group());
-    assertFalse(matcher.find());
-
-    // Two lines with spaces and tabs.
-    setLines("    line1", "\tline2", "last");
-    assertTrue(matcher.find());
-    assertEquals(lines[0], matcher.group());
-    assertTrue(matcher.find());
-    assertEquals(lines[1], matcher.group());
-    assertFalse(matcher.find());
-  }
-
-  private void setLines(String firstLine, String... moreLines) {
-    int lineCount = 1;
-    if (moreLines != null) {
-      lineCount += moreLines.length;
-    }
-
-    // Save the lines in an array to refer to them easily in the test.
-    lines = new String[lineCount];
-    for (int i = 0; i < lineCount; i++) {
-      lines[i] = i == 0 ? firstLine : moreLines[i - 1];
-    }
+    // Line with 1 tab should be code.
+    cs = assertCodeBlockFormat("\tline1", "line1");
+    assertCodeBlockSpan(cs, 0, 5);
 
-    // Join all the lines together to pass to the matcher.
-    StringBuilder joinedLines = new StringBuilder();
-    joinedLines.append(firstLine);
-    for (String line : moreLines) {
-      joinedLines.append("\n").append(line);
-    }
+    // Line with 2 tabs should be code keeping the extra tab.
+    cs = assertCodeBlockFormat("\t\tline1", "\tline1");
+    assertCodeBlockSpan(cs, 0, 6);
 
-    // Set the lines on the matcher.
-    matcher = CodeBlock.PATTERN_CODE_BLOCK.matcher(joinedLines);
+    // Two lines with spaces and tabs and a third without.
+    cs = assertCodeBlockFormat("    line1\n\tline2\nlast",
+        "line1\nline2\nlast");
+    assertCodeBlockSpan(cs, 0, 11);
+    assertNoSpans(cs, 12, 16, TypefaceSpan.class);
   }
 
   /** Tests that the formatter properly applies spans to regions of the text. */
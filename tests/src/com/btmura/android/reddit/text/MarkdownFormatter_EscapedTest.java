@@ -66,4 +66,29 @@ public class MarkdownFormatter_EscapedTest extends AbstractFormatterTest {
   public void testFormat_escapedEscapes() {
     assertEscapedFormat("&amp;gt;", ">");
   }
+
+  public void testFormatRaw_matchesEscaped() {
+    // Raw text as typed and what reddit sends for it without raw_json=1.
+    String[] raw = {
+        "title",
+        "",
+        "AT&T < Verizon > Sprint",
+        "a && b || c <= d",
+        "&gt; quoted &amp; typed &#3232; &#xCA0; &mdash;",
+        "&amp;gt; &amp;amp;",
+        "&lt;3 &l<t; &<gt; &#<65; &;",
+        "https://www.reddit.com/search?q=a&sort=new&t=all",
+        "<<&>>&&amp;;",
+    };
+    MarkdownFormatter formatter = new MarkdownFormatter();
+    for (int i = 0; i < raw.length; i++) {
+      assertEquals(raw[i],
+          formatter.formatNoSpans(escape(raw[i])).toString(),
+          formatter.formatRawNoSpans(raw[i]).toString());
+    }
+  }
+
+  private static String escape(String raw) {
+    return raw.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+  }
 }
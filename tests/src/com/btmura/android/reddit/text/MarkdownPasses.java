@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.text;
+
+import android.graphics.Typeface;
+import android.text.style.BulletSpan;
+import android.text.style.StrikethroughSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+
+import com.btmura.android.reddit.text.MarkdownFormatter.CodeBlock;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.btmura.android.reddit.text.MarkdownFormatter.delete;
+import static com.btmura.android.reddit.text.MarkdownFormatter.setSpan;
+
+/**
+ * {@link MarkdownPasses} keeps the regular expression passes for code blocks,
+ * styles, headings and bullets that {@link MarkdownTokenizer} replaced, so
+ * that the tokenizer's output can be compared against them.
+ */
+class MarkdownPasses {
+
+  static final int STYLE_BOLD = 0;
+  static final int STYLE_ITALIC = 1;
+  static final int STYLE_STRIKETHROUGH = 2;
+
+  private static final Pattern PATTERN_CODE_BLOCK =
+      Pattern.compile("(?m)^(    |\t)(?:.*)$");
+
+  private static final Pattern PATTERN_BOLD =
+      Pattern.compile("\\*\\*.+?\\*\\*");
+  private static final Pattern PATTERN_ITALIC = Pattern.compile("\\*.+?\\*");
+  private static final Pattern PATTERN_STRIKETHROUGH =
+      Pattern.compile("~~.+?~~");
+
+  private static final Pattern PATTERN_HEADING =
+      Pattern.compile("(?m)^(#{1,} ?)(?:.+?)(#*)$");
+
+  private static final Pattern PATTERN_BULLET =
+      Pattern.compile("(?m)^( *[*+-] )(?:.+)$");
+
+  /** Formats the text with the passes in the order the formatter ran them. */
+  static CharSequence format(Matcher matcher, CharSequence c) {
+    c = formatCodeBlocks(matcher, c);
+    c = formatStyle(matcher, c, STYLE_BOLD);
+    c = formatStyle(matcher, c, STYLE_ITALIC);
+    c = formatStyle(matcher, c, STYLE_STRIKETHROUGH);
+    c = formatHeadings(matcher, c);
+    return formatBullets(matcher, c);
+  }
+
+  static CharSequence formatCodeBlocks(Matcher matcher, CharSequence text) {
+    CharSequence s = text;
+    Matcher m = matcher.usePattern(PATTERN_CODE_BLOCK).reset(text);
+    int totalStart = -1;
+    int totalEnd = -1;
+    for (int deleted = 0; m.find(); ) {
+      int start = m.start() - deleted;
+      int end = m.end() - deleted;
+
+      // Remove the leading indentation on the line.
+      int headStart = start;
+      int headEnd = start + m.group(1).length();
+      s = delete(s, headStart, headEnd);
+
+      // Update the end of the match and the deleted count.
+      end -= m.group(1).length();
+      deleted += m.group(1).length();
+
+      // Continuing line. Update the end but don't span since there may be more lines.
+      if (totalEnd != -1 && totalEnd + 1 == start) {
+        totalEnd = end;
+        continue;
+      }
+
+      // New block or 1st time. Set the span on the prior block and reset the markers.
+      if (totalStart != -1) {
+        s = setSpan(s, totalStart, totalEnd, new TypefaceSpan("monospace"));
+      }
+      totalStart = start;
+      totalEnd = end;
+    }
+
+    // There may not have been a new match to flush out the pending block so do it here.
+    if (totalStart != -1) {
+      s = setSpan(s, totalStart, totalEnd, new TypefaceSpan("monospace"));
+    }
+
+    return s;
+  }
+
+  static CharSequence formatStyle(
+      Matcher matcher,
+      CharSequence text,
+      int style) {
+    Pattern p = null;
+    int charsDeleted = -1;
+    switch (style) {
+      case STYLE_BOLD:
+        p = PATTERN_BOLD;
+        charsDeleted = 4;
+        break;
+
+      case STYLE_ITALIC:
+        p = PATTERN_ITALIC;
+        charsDeleted = 2;
+        break;
+
+      case STYLE_STRIKETHROUGH:
+        p = PATTERN_STRIKETHROUGH;
+        charsDeleted = 4;
+        break;
+
+      default:
+        throw new IllegalArgumentException("Unsupported style: " + style);
+    }
+
+    Matcher m = matcher.usePattern(p).reset(text);
+    CharSequence s = text;
+
+    for (int deleted = 0; m.find(); ) {
+      int start = m.start() - deleted;
+      int end = m.end() - deleted;
+
+      // Don't apply formatting within code blocks.
+      if (CodeBlock.isCodeBlock(s, start, end)) {
+        continue;
+      }
+
+      int headStart = start;
+      int headEnd = start + charsDeleted / 2;
+      s = delete(s, headStart, headEnd);
+
+      int tailEnd = end - charsDeleted / 2;
+      int tailStart = tailEnd - charsDeleted / 2;
+      s = delete(s, tailStart, tailEnd);
+
+      Object span = null;
+      switch (style) {
+        case STYLE_BOLD:
+          span = new StyleSpan(Typeface.BOLD);
+          break;
+
+        case STYLE_ITALIC:
+          span = new StyleSpan(Typeface.ITALIC);
+          break;
+
+        case STYLE_STRIKETHROUGH:
+          span = new StrikethroughSpan();
+          break;
+
+        default:
+          throw new IllegalArgumentException("Unsupported style: " + style);
+      }
+
+      int totalStart = start;
+      int totalEnd = end - charsDeleted;
+      s = setSpan(s, totalStart, totalEnd, span);
+
+      deleted += charsDeleted;
+    }
+
+    return s;
+  }
+
+  static CharSequence formatHeadings(Matcher matcher, CharSequence text) {
+    CharSequence s = text;
+    Matcher m = matcher.usePattern(PATTERN_HEADING).reset(text);
+    for (int deleted = 0; m.find(); ) {
+      int start = m.start() - deleted;
+      int end = m.end() - deleted;
+
+      // Don't apply formatting within code blocks.
+      if (CodeBlock.isCodeBlock(s, start, end)) {
+        continue;
+      }
+
+      // Apply the span to the entire matching line.
+      s = setSpan(s, start, end, new StyleSpan(Typeface.BOLD_ITALIC));
+
+      // Trim off the beginning #s
+      int headStart = start;
+      int headEnd = start + m.group(1).length();
+      s = delete(s, headStart, headEnd);
+
+      // Trim off the ending #s
+      int tailEnd = end - m.group(1).length();
+      int tailStart = tailEnd - m.group(2).length();
+      s = delete(s, tailStart, tailEnd);
+
+      // Increment how much we deleted.
+      deleted += m.group(1).length() + m.group(2).length();
+    }
+    return s;
+  }
+
+  static CharSequence formatBullets(Matcher matcher, CharSequence text) {
+    CharSequence s = text;
+    Matcher m = matcher.usePattern(PATTERN_BULLET).reset(text);
+    for (int deleted = 0; m.find(); ) {
+      int start = m.start() - deleted;
+      int end = m.end() - deleted;
+
+      // Don't apply formatting within code blocks.
+      if (CodeBlock.isCodeBlock(s, start, end)) {
+        continue;
+      }
+
+      // Apply the bullet span to the entire line.
+      s = setSpan(s, start, end, new BulletSpan(20));
+
+      // Delete the beginning *s.
+      int headStart = start;
+      int headEnd = start + m.group(1).length();
+      s = delete(s, headStart, headEnd);
+
+      // Increment how much we deleted.
+      deleted += m.group(1).length();
+    }
+    return s;
+  }
+
+  private MarkdownPasses() {
+  }
+}
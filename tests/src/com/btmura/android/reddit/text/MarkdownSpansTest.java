@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.text;
+
+import android.text.SpannableStringBuilder;
+import android.text.style.BackgroundColorSpan;
+
+public class MarkdownSpansTest extends AbstractFormatterTest {
+
+  private static final String[] INPUTS = {
+      "plain text without markdown",
+      "**bold** *italic* ~~strike~~",
+      "# Heading\n* bullet one\n* bullet two",
+      "    code line\n    another code line",
+      "see [the wiki](/r/rbb/wiki) or http://www.reddit.com/r/android",
+      "ask /r/android or /u/btmura about it",
+      "a|b\n-|-\n1|2\n3|4\n",
+  };
+
+  private MarkdownFormatter formatter;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    formatter = new MarkdownFormatter();
+  }
+
+  public void testDecode() {
+    for (int i = 0; i < INPUTS.length; i++) {
+      CharSequence formatted = formatter.formatSpans(mContext, INPUTS[i]);
+      byte[] runs = MarkdownSpans.encode(INPUTS[i], formatted);
+      assertEquals(describeSpans(formatted),
+          describeSpans(MarkdownSpans.decode(INPUTS[i], runs)));
+    }
+  }
+
+  public void testDecode_unchangedText() {
+    String input = "plain text without markdown";
+    byte[] runs = MarkdownSpans.encode(input, input);
+
+    // Only the version, text flag and span count.
+    assertEquals(3, runs.length);
+    assertSame(input, MarkdownSpans.decode(input, runs));
+  }
+
+  public void testDecode_longText() {
+    // Make the text longer than a single writeUTF can hold.
+    StringBuilder b = new StringBuilder();
+    for (int i = 0; i < 4000; i++) {
+      b.append("**line ").append(i).append("** é中\n");
+    }
+    String input = b.toString();
+    CharSequence formatted = formatter.formatSpans(mContext, input);
+    byte[] runs = MarkdownSpans.encode(input, formatted);
+    assertEquals(describeSpans(formatted),
+        describeSpans(MarkdownSpans.decode(input, runs)));
+  }
+
+  public void testEncode_unsupportedSpan() {
+    SpannableStringBuilder b = new SpannableStringBuilder("text");
+    b.setSpan(new BackgroundColorSpan(0), 0, 4, 0);
+    assertNull(MarkdownSpans.encode("text", b));
+  }
+
+  public void testDecode_badRuns() {
+    assertNull(MarkdownSpans.decode("text", new byte[0]));
+    assertNull(MarkdownSpans.decode("text", new byte[] {99}));
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.text;
+
+import android.graphics.Typeface;
+import android.os.SystemClock;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.text.style.BulletSpan;
+import android.text.style.StrikethroughSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+import android.util.Log;
+
+public class MarkdownTokenizerTest extends AbstractFormatterTest {
+
+  private static final String TAG = "MarkdownTokenizerTest";
+
+  private static final int ITERATIONS = 50;
+
+  /**
+   * Inputs from the formatter suites that the tokenizer now handles followed
+   * by ones with the other line terminators of the passes' patterns. Each
+   * mixes styles only where the passes don't match over a builder that an
+   * earlier pass already changed.
+   */
+  private static final String[] INPUTS = {
+      "**bold**",
+      "**bold\n**bold",
+      "this is **bold** and **bold** text",
+      "*italic*",
+      "this is *italic* and *italic* text",
+      "~~strikethrough~~",
+      "**yes** no **yes**",
+      "***both***",
+      "* bullet1\n+ bullet2\n- bullet3",
+      "  * indented\n* item",
+      "1* bullet1\n2* bullet2",
+      "#Hello",
+      "##Hello",
+      "#Hello#",
+      "##Hello##",
+      "# Hello ##",
+      "#\n##\n# \n###\n# ##",
+      "    line1",
+      "\tline1\n\tline2\n\tline3",
+      "\tline1\nline2\n\tline3\n\tline4",
+      "    code **line** 1\nnot a code line\n\tcode *line* 2",
+      "    **bullet1\n\t[hello](http://hello.com)\n\t### HEADING",
+      "no markdown at all",
+      "    code\r",
+      "    code\r\n    more code\r\nnot code",
+      "\tcode\r\tmore code",
+      "# Title #\r",
+      "# Title #\r\n## Subtitle",
+      "**bold\rbold**",
+      "*italic\r\nitalic*",
+      "* bullet1\r+ bullet2\r\n- bullet3",
+      "    code\u2028not code\u0085    code\u2029text",
+      "# Title\u2028* bullet\u2029    code",
+  };
+
+  public void testFormat() {
+    for (int i = 0; i < INPUTS.length; i++) {
+      assertSameFormat(INPUTS[i]);
+    }
+  }
+
+  public void testFormat_unchanged() {
+    String input = "no markdown at all\nor here";
+    assertSame(input, tokenizer.format(input));
+  }
+
+  public void testFormat_longText() {
+    // The passes throw or misplace spans on text like this, since they match
+    // over the builder they are deleting markers from.
+    Spanned s = (Spanned) tokenizer.format(getCommentBody());
+    assertEquals(-1, TextUtils.indexOf(s, '*'));
+    assertEquals(-1, TextUtils.indexOf(s, '~'));
+    assertEquals(-1, TextUtils.indexOf(s, "    "));
+    assertEquals(40, countStyleSpans(s, Typeface.BOLD));
+    assertEquals(40, countStyleSpans(s, Typeface.ITALIC));
+    assertEquals(40, s.getSpans(0, s.length(), StrikethroughSpan.class).length);
+    assertEquals(80, s.getSpans(0, s.length(), BulletSpan.class).length);
+    assertEquals(40, s.getSpans(0, s.length(), TypefaceSpan.class).length);
+
+    s = (Spanned) tokenizer.format(getSidebar());
+    assertEquals(-1, TextUtils.indexOf(s, '#'));
+    assertEquals(20, countStyleSpans(s, Typeface.BOLD_ITALIC));
+    assertEquals(60, s.getSpans(0, s.length(), BulletSpan.class).length);
+  }
+
+  public void testFormat_styles() {
+    CharSequence cs = tokenizer.format("**bold** *italic* ~~strike~~");
+    assertEquals("bold italic strike", cs.toString());
+    assertStyleSpan(cs, 0, 4, Typeface.BOLD);
+    assertStyleSpan(cs, 5, 11, Typeface.ITALIC);
+    assertStrikethroughSpan(cs, 12, 18);
+    assertNoSpans(cs, 4, 5, StyleSpan.class);
+  }
+
+  public void testBenchmark() {
+    String[] inputs = {getCommentBody(), getSidebar()};
+    for (int i = 0; i < inputs.length; i++) {
+      long start = SystemClock.elapsedRealtime();
+      for (int n = 0; n < ITERATIONS; n++) {
+        formatPassesCopied(inputs[i]);
+      }
+      long passesMs = SystemClock.elapsedRealtime() - start;
+
+      start = SystemClock.elapsedRealtime();
+      for (int n = 0; n < ITERATIONS; n++) {
+        tokenizer.format(inputs[i]);
+      }
+      long tokenizerMs = SystemClock.elapsedRealtime() - start;
+
+      Log.d(TAG, "length: " + inputs[i].length() + " passes: " + passesMs
+          + "ms tokenizer: " + tokenizerMs + "ms");
+    }
+  }
+
+  private void assertSameFormat(String input) {
+    String expected = describeSpans(MarkdownPasses.format(matcher, input));
+    String actual = describeSpans(tokenizer.format(input));
+    assertEquals(expected, actual);
+  }
+
+  /**
+   * Times the passes over long text by handing each a copy of the text, so
+   * they don't throw, at the cost of dropping the spans of earlier passes.
+   */
+  private CharSequence formatPassesCopied(CharSequence c) {
+    c = MarkdownPasses.formatCodeBlocks(matcher, c.toString());
+    c = MarkdownPasses.formatStyle(matcher, c.toString(),
+        MarkdownPasses.STYLE_BOLD);
+    c = MarkdownPasses.formatStyle(matcher, c.toString(),
+        MarkdownPasses.STYLE_ITALIC);
+    c = MarkdownPasses.formatStyle(matcher, c.toString(),
+        MarkdownPasses.STYLE_STRIKETHROUGH);
+    c = MarkdownPasses.formatHeadings(matcher, c.toString());
+    return MarkdownPasses.formatBullets(matcher, c.toString());
+  }
+
+  private static int countStyleSpans(Spanned s, int style) {
+    StyleSpan[] spans = s.getSpans(0, s.length(), StyleSpan.class);
+    int count = 0;
+    for (int i = 0; i < spans.length; i++) {
+      if (spans[i].getStyle() == style) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Returns a long comment with paragraphs of styles, bullets and code. */
+  private static String getCommentBody() {
+    StringBuilder b = new StringBuilder();
+    for (int i = 0; i < 40; i++) {
+      b.append("This is paragraph ").append(i)
+          .append(" with **some bold** words in it.\n")
+          .append("Here is some *emphasis* that goes on for a while.\n")
+          .append("And the ~~wrong~~ thing was crossed out.\n\n")
+          .append("* first point\n")
+          .append("* second point\n\n")
+          .append("    int x = ").append(i).append(";\n")
+          .append("    return x;\n\n");
+    }
+    return b.toString();
+  }
+
+  /** Returns a sidebar with headings, bullets and links. */
+  private static String getSidebar() {
+    StringBuilder b = new StringBuilder();
+    for (int i = 0; i < 20; i++) {
+      b.append("## Section ").append(i).append(" ##\n\n")
+          .append("- [Rules](/r/rbb/wiki/rules)\n")
+          .append("- [FAQ](http://www.reddit.com/r/rbb/wiki/faq)\n")
+          .append("+ /r/android and /u/btmura\n\n")
+          .append("Plain text that describes the section at length.\n\n");
+    }
+    return b.toString();
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.util;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+public class JsonParserTest extends TestCase {
+
+  private static final String TAG = "JsonParserTest";
+
+  private static final int ITERATIONS = 10000;
+
+  /** Keys of a link as reddit returns them including ones we don't use. */
+  private static final String[] LINK_KEYS = {
+      "domain", "banned_by", "media_embed", "subreddit", "selftext_html",
+      "selftext", "likes", "suggested_sort", "user_reports", "secure_media",
+      "link_flair_text", "id", "from_kind", "gilded", "archived", "clicked",
+      "report_reasons", "author", "media", "score", "approved_by", "over_18",
+      "hidden", "num_comments", "thumbnail", "subreddit_id", "hide_score",
+      "edited", "link_flair_css_class", "author_flair_css_class", "downs",
+      "secure_media_embed", "saved", "removal_reason", "stickied", "from",
+      "is_self", "from_id", "permalink", "locked", "name", "created", "url",
+      "author_flair_text", "quarantine", "title", "created_utc",
+      "distinguished", "mod_reports", "visited", "num_reports", "ups",
+      "preview", "post_hint", "upvote_ratio", "contest_mode", "spoiler",
+      "brand_safe", "can_gild",
+  };
+
+  public void testGetField() {
+    assertTrue(JsonParser.getField("author") != JsonParser.FIELD_UNKNOWN);
+    assertEquals(JsonParser.getField("over_18"), JsonParser.getField("over18"));
+    assertEquals(JsonParser.FIELD_UNKNOWN, JsonParser.getField("media_embed"));
+    assertEquals(JsonParser.FIELD_UNKNOWN, JsonParser.getField(""));
+  }
+
+  public void testGetField_matchesLadder() {
+    for (int i = 0; i < LINK_KEYS.length; i++) {
+      assertEquals(LINK_KEYS[i], getLadderField(LINK_KEYS[i]) != -1,
+          JsonParser.getField(LINK_KEYS[i]) != JsonParser.FIELD_UNKNOWN);
+    }
+  }
+
+  public void testParsedFields() throws IOException {
+    final StringBuilder sb = new StringBuilder();
+    JsonParser parser = new JsonParser() {
+      private final boolean[] parsedFields = newParsedFields("author");
+
+      @Override
+      protected boolean[] getParsedFields() {
+        return parsedFields;
+      }
+
+      @Override
+      public void onAuthor(Utf8JsonReader r, int i) throws IOException {
+        sb.append(readString(r, ""));
+      }
+
+      @Override
+      public void onTitle(Utf8JsonReader r, int i) throws IOException {
+        sb.append(readString(r, ""));
+      }
+    };
+    parser.parseEntityData(new Utf8JsonReader(new ByteArrayInputStream((
+        "{\"title\": \"skipped\", \"media_embed\": {\"content\": \"x\"}, "
+            + "\"author\": \"btmura\"}").getBytes("UTF-8"))));
+    assertEquals("btmura", sb.toString());
+  }
+
+  public void testNewParsedFields_unknownKey() {
+    try {
+      JsonParser.newParsedFields("media_embed");
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected since there's no callback for the key.
+    }
+  }
+
+  public void testBenchmark() {
+    // Copy the keys so that their hash codes aren't cached yet like names
+    // that were just read.
+    int matches = 0;
+    long start = SystemClock.elapsedRealtime();
+    for (int n = 0; n < ITERATIONS; n++) {
+      for (int i = 0; i < LINK_KEYS.length; i++) {
+        if (getLadderField(new String(LINK_KEYS[i])) != -1) {
+          matches++;
+        }
+      }
+    }
+    long ladderMs = SystemClock.elapsedRealtime() - start;
+
+    start = SystemClock.elapsedRealtime();
+    for (int n = 0; n < ITERATIONS; n++) {
+      for (int i = 0; i < LINK_KEYS.length; i++) {
+        if (JsonParser.getField(new String(LINK_KEYS[i]))
+            != JsonParser.FIELD_UNKNOWN) {
+          matches--;
+        }
+      }
+    }
+    long hashMs = SystemClock.elapsedRealtime() - start;
+
+    Log.d(TAG, "ladder: " + ladderMs + "ms hash: " + hashMs + "ms");
+    assertEquals(0, matches);
+  }
+
+  /** Resolves keys like the chain of equals calls that was replaced. */
+  private static int getLadderField(String name) {
+    if ("author".equals(name)) {
+      return 0;
+    } else if ("body".equals(name)) {
+      return 1;
+    } else if ("children".equals(name)) {
+      return 2;
+    } else if ("comment_karma".equals(name)) {
+      return 3;
+    } else if ("context".equals(name)) {
+      return 4;
+    } else if ("created_utc".equals(name)) {
+      return 5;
+    } else if ("description".equals(name)) {
+      return 6;
+    } else if ("dest".equals(name)) {
+      return 7;
+    } else if ("display_name".equals(name)) {
+      return 8;
+    } else if ("domain".equals(name)) {
+      return 9;
+    } else if ("downs".equals(name)) {
+      return 10;
+    } else if ("has_mail".equals(name)) {
+      return 11;
+    } else if ("header_img".equals(name)) {
+      return 12;
+    } else if ("hidden".equals(name)) {
+      return 13;
+    } else if ("id".equals(name)) {
+      return 14;
+    } else if ("is_self".equals(name)) {
+      return 15;
+    } else if ("likes".equals(name)) {
+      return 16;
+    } else if ("link_id".equals(name)) {
+      return 17;
+    } else if ("link_karma".equals(name)) {
+      return 18;
+    } else if ("link_title".equals(name)) {
+      return 19;
+    } else if ("name".equals(name)) {
+      return 20;
+    } else if ("new".equals(name)) {
+      return 21;
+    } else if ("num_comments".equals(name)) {
+      return 22;
+    } else if ("over_18".equals(name) || "over18".equals(name)) {
+      return 23;
+    } else if ("permalink".equals(name)) {
+      return 24;
+    } else if ("replies".equals(name)) {
+      return 25;
+    } else if ("saved".equals(name)) {
+      return 26;
+    } else if ("score".equals(name)) {
+      return 27;
+    } else if ("selftext".equals(name)) {
+      return 28;
+    } else if ("subject".equals(name)) {
+      return 29;
+    } else if ("subreddit".equals(name)) {
+      return 30;
+    } else if ("subreddit_id".equals(name)) {
+      return 31;
+    } else if ("subscribers".equals(name)) {
+      return 32;
+    } else if ("title".equals(name)) {
+      return 33;
+    } else if ("thumbnail".equals(name)) {
+      return 34;
+    } else if ("ups".equals(name)) {
+      return 35;
+    } else if ("url".equals(name)) {
+      return 36;
+    } else if ("was_comment".equals(name)) {
+      return 37;
+    }
+    return -1;
+  }
+}
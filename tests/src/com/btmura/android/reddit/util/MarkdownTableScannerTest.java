@@ -16,6 +16,10 @@
 
 package com.btmura.android.reddit.util;
 
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.Gravity;
 
 import com.btmura.android.reddit.util.MarkdownTableScanner.OnTableScanListener;
@@ -25,9 +29,14 @@ import junit.framework.TestCase;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Scanner;
 
 public class MarkdownTableScannerTest extends TestCase {
 
+  private static final String TAG = "MarkdownTableScannerTest";
+
+  private static final int ITERATIONS = 200;
+
   private static final String OUTER_PIPES = "|a|b|c|\n"
       + "|:-|::|-:|\n"
       + "|d|e|f|";
@@ -46,6 +55,27 @@ public class MarkdownTableScannerTest extends TestCase {
       + "||c\n"
       + "|";
 
+  private static final String CRLF = "a|b\r\n"
+      + ":-|-:\r\n"
+      + " c | d \r\n";
+
+  /** Tables with lines that the previous scanner split in unusual ways. */
+  private static final String[] INPUTS = {
+      "",
+      "a|b",
+      "a|b\n",
+      "a|b\n\n",
+      "a|b\n\nc|d",
+      "a|b\n|\nc|d",
+      "a|b\n:-:\nc|d|e",
+      "|a|b|\n|-|-|\n|c|d|\n\n|e|f|",
+      "a|b|\n::|:\n\t|  |\n",
+      OUTER_PIPES,
+      NO_OUTER_PIPES,
+      EMPTY_HEADERS,
+      MISSING_CELLS,
+      CRLF,
+  };
   public void testScan_outerPipes() {
     Table table = scan(OUTER_PIPES);
     assertTableSize(table, 2, 3);
@@ -106,6 +136,48 @@ public class MarkdownTableScannerTest extends TestCase {
     assertCell(table, 3, 2, "", Gravity.END, false);
   }
 
+  public void testScan_crlf() {
+    Table table = scan(CRLF);
+    assertTableSize(table, 2, 2);
+
+    assertCell(table, 0, 0, "a", Gravity.START, true);
+    assertCell(table, 0, 1, "b", Gravity.END, true);
+
+    assertCell(table, 1, 0, "c", Gravity.START, false);
+    assertCell(table, 1, 1, "d", Gravity.END, false);
+  }
+
+  public void testScan_sameAsScanner() {
+    for (int i = 0; i < INPUTS.length; i++) {
+      assertEquals("input: " + i, describe(scanWithScanner(INPUTS[i])),
+          describe(scan(INPUTS[i])));
+    }
+  }
+
+  public void testBenchmark() {
+    String[] inputs = {getScheduleTable(), getLinksTable()};
+    for (int i = 0; i < inputs.length; i++) {
+      assertEquals(describe(scanWithScanner(inputs[i])),
+          describe(scan(inputs[i])));
+
+      Counter counter = new Counter();
+      long start = SystemClock.elapsedRealtime();
+      for (int n = 0; n < ITERATIONS; n++) {
+        scanWithScanner(inputs[i], counter);
+      }
+      long scannerMs = SystemClock.elapsedRealtime() - start;
+
+      start = SystemClock.elapsedRealtime();
+      for (int n = 0; n < ITERATIONS; n++) {
+        MarkdownTableScanner.scan(inputs[i], counter);
+      }
+      long indexMs = SystemClock.elapsedRealtime() - start;
+
+      Log.d(TAG, "length: " + inputs[i].length() + " scanner: " + scannerMs
+          + "ms index: " + indexMs + "ms");
+    }
+  }
+
   private static Table scan(String tableData) {
     Table table = new Table();
     MarkdownTableScanner.scan(tableData, table);
@@ -135,6 +207,148 @@ public class MarkdownTableScannerTest extends TestCase {
     assertEquals(expectedIsHeader, cell.isHeader);
   }
 
+  private static String describe(Table table) {
+    StringBuilder b = new StringBuilder();
+    for (List<Cell> row : table.rows) {
+      b.append('[');
+      for (Cell cell : row) {
+        b.append('(').append(cell.contents)
+            .append(',').append(cell.column)
+            .append(',').append(cell.gravity)
+            .append(',').append(cell.isHeader)
+            .append(')');
+      }
+      b.append(']');
+    }
+    return b.toString();
+  }
+
+  private static Table scanWithScanner(String tableData) {
+    Table table = new Table();
+    scanWithScanner(tableData, table);
+    return table;
+  }
+
+  /** Scans the table like the scanner did before it walked the indices. */
+  private static <R> void scanWithScanner(
+      String tableData,
+      OnTableScanListener<R> listener) {
+    SparseIntArray columnGravity = new SparseIntArray();
+    boolean hasOuterPipes = false;
+
+    Scanner scanner = new Scanner(tableData);
+    try {
+      if (scanner.hasNextLine()) {
+        scanner.nextLine();
+        if (scanner.hasNextLine()) {
+          String specs = scanner.nextLine();
+          hasOuterPipes = specs.startsWith("|");
+          String[] tokens = specs.split("\\|");
+          for (int i = 0; i < tokens.length; i++) {
+            columnGravity.put(i, getTableColumnGravity(tokens[i]));
+          }
+        }
+      }
+    } finally {
+      scanner.close();
+    }
+
+    scanner = new Scanner(tableData);
+    Cell cell = null;
+    try {
+      for (int rowIndex = 0; scanner.hasNextLine(); rowIndex++) {
+        String line = scanner.nextLine();
+
+        if (rowIndex == 1) {
+          continue;
+        }
+
+        R row = listener.onRowStart();
+        String[] tokens = line.split("\\|");
+        int columnCount = columnGravity.size();
+        for (int i = 0; i < columnCount; i++) {
+          if (hasOuterPipes && i == 0) {
+            continue;
+          }
+
+          String contents = i < tokens.length ? tokens[i].trim() : "";
+          int columnIndex = hasOuterPipes ? i - 1 : i;
+          int gravity = columnGravity.get(i);
+          boolean isHeader = rowIndex == 0;
+
+          if (cell == null) {
+            cell = new Cell();
+          }
+          cell.set(contents, columnIndex, gravity, isHeader);
+          listener.onCell(row, cell);
+        }
+        listener.onRowEnd(row);
+      }
+    } finally {
+      scanner.close();
+    }
+  }
+
+  private static int getTableColumnGravity(String cell) {
+    if (!TextUtils.isEmpty(cell) && cell.length() >= 2) {
+      if (cell.startsWith(":") && cell.endsWith(":")) {
+        return Gravity.CENTER;
+      } else if (cell.startsWith(":")) {
+        return Gravity.START;
+      } else if (cell.endsWith(":")) {
+        return Gravity.END;
+      }
+    }
+    return Gravity.START;
+  }
+
+  /** Returns a sidebar table of game times like sports subreddits have. */
+  private static String getScheduleTable() {
+    StringBuilder b = new StringBuilder()
+        .append("|Date|Opponent|Time (ET)|TV|Result|\n")
+        .append("|:--|:--:|:--:|:--:|--:|\n");
+    for (int i = 0; i < 82; i++) {
+      b.append("|").append(i % 12 + 1).append("/").append(i % 28 + 1)
+          .append("|[@Opponent ").append(i).append("](/r/team").append(i)
+          .append(")|7:30 PM|**NBATV**|")
+          .append(i % 3 == 0 ? "W 102-99" : "").append("|\n");
+    }
+    return b.toString();
+  }
+
+  /** Returns a sidebar table of related links without outer pipes. */
+  private static String getLinksTable() {
+    StringBuilder b = new StringBuilder()
+        .append("Subreddit | Description | Subscribers\n")
+        .append(":-- | :-- | --:\n");
+    for (int i = 0; i < 40; i++) {
+      b.append("/r/related").append(i)
+          .append(" | A *related* community about topic ").append(i)
+          .append(" | ").append(i * 1000).append("\n");
+    }
+    return b.toString();
+  }
+
+  /** Counts the cells so the benchmark doesn't allocate rows. */
+  static class Counter implements OnTableScanListener<Object> {
+
+    int cells;
+
+    @Override
+    public Object onRowStart() {
+      return this;
+    }
+
+    @Override
+    public void onCell(Object rowObject, Cell cell) {
+      cells++;
+    }
+
+    @Override
+    public void onRowEnd(Object row) {
+    }
+  }
+
   static class Table implements OnTableScanListener<List<Cell>> {
 
     private final List<List<Cell>> rows = new ArrayList<List<Cell>>();
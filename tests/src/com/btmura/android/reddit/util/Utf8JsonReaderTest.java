@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.util;
+
+import android.util.JsonToken;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class Utf8JsonReaderTest extends TestCase {
+
+  public void testObject() throws IOException {
+    Utf8JsonReader r = newReader("{\"a\": \"b\", \"c\": [1, -2, 3.5e1],"
+        + " \"d\": true, \"e\": false, \"f\": null, \"g\": {}}");
+    r.beginObject();
+    assertEquals("a", r.nextName());
+    assertEquals("b", r.nextString());
+    assertEquals("c", r.nextName());
+    r.beginArray();
+    assertEquals(1, r.nextInt());
+    assertEquals(-2L, r.nextLong());
+    assertEquals(35.0, r.nextDouble());
+    assertFalse(r.hasNext());
+    r.endArray();
+    assertEquals("d", r.nextName());
+    assertTrue(r.nextBoolean());
+    assertEquals("e", r.nextName());
+    assertFalse(r.nextBoolean());
+    assertEquals("f", r.nextName());
+    assertEquals(JsonToken.NULL, r.peek());
+    r.nextNull();
+    assertEquals("g", r.nextName());
+    r.beginObject();
+    r.endObject();
+    r.endObject();
+    assertEquals(JsonToken.END_DOCUMENT, r.peek());
+  }
+
+  public void testNumbers() throws IOException {
+    Utf8JsonReader r = newReader("[1445000000.0, \"42\", 7, 2.5]");
+    r.beginArray();
+    assertEquals(1445000000L, r.nextLong());
+    assertEquals(42, r.nextInt());
+    assertEquals("7", r.nextString());
+    try {
+      r.nextLong();
+      fail();
+    } catch (NumberFormatException e) {
+      // Expected since 2.5 has a fraction.
+    }
+  }
+
+  public void testEscapes() throws IOException {
+    Utf8JsonReader r = newReader("[\"a\\\"b\\\\c\\/d\\n\\u00e9\\ud83d\\ude00\","
+        + " \"é中\"]");
+    r.beginArray();
+    assertEquals("a\"b\\c/d\né😀", r.nextString());
+    assertEquals("é中", r.nextString());
+    r.endArray();
+  }
+
+  public void testLongStringAcrossBuffer() throws IOException {
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      value.append(i % 2 == 0 ? "é" : "\\\"");
+    }
+    Utf8JsonReader r = newReader("[\"" + value + "\", 1]");
+    r.beginArray();
+    assertEquals(value.toString().replace("\\\"", "\""), r.nextString());
+    assertEquals(1, r.nextInt());
+    r.endArray();
+  }
+
+  public void testSkipValue() throws IOException {
+    Utf8JsonReader r = newReader("{\"skip\": {\"a\": [1, \"}\\\"]\", {}],"
+        + " \"b\": null}, \"keep\": \"x\"}");
+    r.beginObject();
+    assertEquals("skip", r.nextName());
+    int allocatedStrings = r.getAllocatedStrings();
+    r.skipValue();
+    assertEquals(allocatedStrings, r.getAllocatedStrings());
+    assertEquals("keep", r.nextName());
+    assertEquals("x", r.nextString());
+    r.endObject();
+  }
+
+  public void testInterning() throws IOException {
+    // Read from one buffer to cover strings that needn't be copied first.
+    byte[] json = "[\"AskReddit\", \"AskReddit\"]".getBytes("UTF-8");
+    Utf8JsonReader r = new Utf8JsonReader(new ByteArrayInputStream(json));
+    r.beginArray();
+    String first = r.nextInternedString();
+    int sharedStrings = r.getSharedStrings();
+    String second = r.nextInternedString();
+    assertEquals("AskReddit", first);
+    assertSame(first, second);
+    assertEquals(sharedStrings + 1, r.getSharedStrings());
+
+    r = new Utf8JsonReader(new ByteArrayInputStream(json));
+    r.beginArray();
+    assertNotSame(r.nextString(), r.nextString());
+    assertEquals(0, r.getSharedStrings());
+  }
+
+  public void testMalformed() throws IOException {
+    Utf8JsonReader r = newReader("{\"a\" 1}");
+    r.beginObject();
+    r.nextName();
+    try {
+      r.nextInt();
+      fail();
+    } catch (IOException e) {
+      // Expected since the colon is missing.
+    }
+  }
+
+  private static Utf8JsonReader newReader(String json) throws IOException {
+    return new Utf8JsonReader(new OneByteInputStream(json.getBytes("UTF-8")));
+  }
+
+  /** Stream that returns one byte at a time to cover refilling the buffer. */
+  static class OneByteInputStream extends InputStream {
+
+    private final InputStream in;
+
+    OneByteInputStream(byte[] bytes) {
+      in = new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public int read() throws IOException {
+      return in.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return in.read(b, off, Math.min(1, len));
+    }
+  }
+}
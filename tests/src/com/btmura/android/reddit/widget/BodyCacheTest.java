@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.widget;
+
+import android.test.AndroidTestCase;
+
+import com.btmura.android.reddit.text.MarkdownFormatter;
+
+public class BodyCacheTest extends AndroidTestCase {
+
+  private final MarkdownFormatter formatter = new MarkdownFormatter();
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    BodyCache.evictAll();
+  }
+
+  public void testGet() {
+    BodyCache.Entry entry = get("t1_a", "**bold** text", -1);
+    assertEquals("bold text", entry.text.toString());
+    assertEquals(LayoutCache.hashText(entry.text), entry.textHash);
+
+    // Rebinding the same body, like after a vote, shouldn't format again.
+    int hits = BodyCache.hitCount();
+    int misses = BodyCache.missCount();
+    assertSame(entry, get("t1_a", new String("**bold** text"), -1));
+    assertEquals(hits + 1, BodyCache.hitCount());
+    assertEquals(misses, BodyCache.missCount());
+  }
+
+  public void testGet_changedBody() {
+    get("t1_a", "**bold** text", -1);
+    int misses = BodyCache.missCount();
+    BodyCache.Entry entry = get("t1_a", "*edited* text", -1);
+    assertEquals("edited text", entry.text.toString());
+    assertEquals(misses + 1, BodyCache.missCount());
+  }
+
+  public void testGet_maxTextLength() {
+    BodyCache.Entry full = get("t3_a", "some long self text", -1);
+    BodyCache.Entry ellipsized = get("t3_a", "some long self text", 4);
+    assertEquals("some long self text", full.text.toString());
+    assertEquals("some…", ellipsized.text.toString());
+  }
+
+  public void testGet_noThingId() {
+    int hits = BodyCache.hitCount();
+    int misses = BodyCache.missCount();
+    get(null, "pending **comment**", -1);
+    get(null, "pending **comment**", -1);
+    assertEquals(hits, BodyCache.hitCount());
+    assertEquals(misses, BodyCache.missCount());
+  }
+
+  public void testEvictAll() {
+    BodyCache.Entry entry = get("t1_a", "**bold** text", -1);
+    BodyCache.evictAll();
+    assertNotSame(entry, get("t1_a", "**bold** text", -1));
+  }
+
+  private BodyCache.Entry get(String thingId, String body, int maxTextLength) {
+    return BodyCache.get(mContext, thingId, body, null, maxTextLength,
+        formatter);
+  }
+}
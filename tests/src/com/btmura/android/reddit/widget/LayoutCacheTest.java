@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015 Brian Muramatsu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.btmura.android.reddit.widget;
+
+import android.test.AndroidTestCase;
+import android.text.Layout;
+import android.text.SpannableStringBuilder;
+import android.text.TextPaint;
+
+import com.btmura.android.reddit.text.MarkdownFormatter;
+
+import java.util.ArrayList;
+
+public class LayoutCacheTest extends AndroidTestCase {
+
+  private final TextPaint paint = new TextPaint();
+
+  public void testHashText() {
+    String text = "some text";
+    assertEquals(LayoutCache.hashText(text),
+        LayoutCache.hashText(new SpannableStringBuilder(text)));
+    assertEquals(0, LayoutCache.hashText(null));
+  }
+
+  public void testPut() {
+    int hash = LayoutCache.hashText("text");
+    LayoutCache.Key key = new LayoutCache.Key();
+    key.set("t1_put", 100, "text", hash, paint);
+    Layout layout = LayoutCache.makeLayout(paint, "text", 100);
+    LayoutCache.put(key, layout);
+
+    // Reusing the key for other lookups shouldn't change the cached one.
+    key.set("t1_other", 100, "text", hash, paint);
+    assertNull(LayoutCache.get(key));
+    key.set("t1_put", 100, new SpannableStringBuilder("text"), hash, paint);
+    assertSame(layout, LayoutCache.get(key));
+
+    key.set("t1_put", 101, "text", hash, paint);
+    assertNull(LayoutCache.get(key));
+    key.set("t1_put", 100, "text", hash, new TextPaint());
+    assertNull(LayoutCache.get(key));
+  }
+
+  public void testPut_sameHash() {
+    assertEquals(LayoutCache.hashText("Aa"), LayoutCache.hashText("BB"));
+    int hash = LayoutCache.hashText("Aa");
+    LayoutCache.Key key = new LayoutCache.Key();
+    key.set("t1_hash", 100, "Aa", hash, paint);
+    LayoutCache.put(key, LayoutCache.makeLayout(paint, "Aa", 100));
+
+    key.set("t1_hash", 100, "BB", hash, paint);
+    assertNull(LayoutCache.get(key));
+  }
+
+  public void testPrefetch() throws Exception {
+    String body = "**bold** and *italic* text";
+    ArrayList<LayoutCache.Body> bodies = new ArrayList<LayoutCache.Body>();
+    bodies.add(new LayoutCache.Body("t1_prefetch", body, null, 200));
+    LayoutCache.prefetch(mContext, bodies, paint, -1).get();
+
+    CharSequence text = new MarkdownFormatter().formatSpans(mContext, body);
+    LayoutCache.Key key = new LayoutCache.Key();
+    key.set("t1_prefetch", 200, text, LayoutCache.hashText(text), paint);
+    Layout layout = LayoutCache.get(key);
+    assertNotNull(layout);
+    assertEquals(200, layout.getWidth());
+    assertEquals(text.toString(), layout.getText().toString());
+  }
+}